@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Start-up latency and peak buffer memory of each @c AudioLoadProfile, playing a 60 s
+ * 44.1 KHZ stereo WAV file through the same pool and media source factory as the output
+ * channels. Results go to logcat under this tag: ./gradlew :app:connectedRemoteDebugAndroidTest
+ */
+@RunWith( AndroidJUnit4.class )
+public class AudioLoadProfileMeasurement {
+
+    private static final String sTag = AudioLoadProfileMeasurement.class.getSimpleName();
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int SECONDS = 60;
+    private static final long TIMEOUT_MS = 10000;
+    private static final long LOADING_MS = 20000; // Longer than the largest minBufferMs
+
+    private Context mContext;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mFile = new File( mContext.getCacheDir(), sTag + ".wav" );
+        writeWav( mFile );
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void startupLatencyAndPeakBufferPerProfile() throws Exception {
+        for ( AudioLoadProfile profile : AudioLoadProfile.values() ) {
+            measure( profile );
+        }
+    }
+
+    private void measure( final AudioLoadProfile profile ) throws Exception {
+        final AudioPlayerPool pool = new AudioPlayerPool();
+        final SimpleExoPlayer[] player = new SimpleExoPlayer[1];
+        final long[] startMs = new long[1];
+        final long[] playingMs = new long[1];
+        final CountDownLatch playing = new CountDownLatch( 1 );
+        final Player.DefaultEventListener listener = new Player.DefaultEventListener() {
+            @Override
+            public void onPlayerStateChanged( boolean playWhenReady, int playbackState ) {
+                if ( playWhenReady && playbackState == Player.STATE_READY && playing.getCount() > 0 ) {
+                    playingMs[0] = SystemClock.elapsedRealtime();
+                    playing.countDown();
+                }
+            }
+        };
+
+        runOnMainSync( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // The factory's handler belongs to the main thread, as in the channels
+                    MediaSourceFactory factory = new MediaSourceFactory( mContext, sTag );
+                    player[0] = pool.acquire( profile );
+                    player[0].addListener( listener );
+                    player[0].setPlayWhenReady( true );
+                    startMs[0] = SystemClock.elapsedRealtime();
+                    player[0].prepare( factory.createFileMediaSource( Uri.fromFile( mFile ) ) );
+                } catch ( Exception e ) {
+                    throw new RuntimeException( e );
+                }
+            }
+        } );
+        assertTrue( profile + " did not start playing", playing.await( TIMEOUT_MS, TimeUnit.MILLISECONDS ) );
+        Thread.sleep( LOADING_MS );
+        runOnMainSync( new Runnable() {
+            @Override
+            public void run() {
+                player[0].removeListener( listener );
+                player[0].release();
+            }
+        } );
+
+        long peakBytes = pool.getPeakBufferBytes( profile );
+        Log.i( sTag, String.format( "%s: PLAYING after %d ms, peak buffer %d KB of %d KB",
+                profile, playingMs[0] - startMs[0], peakBytes / 1024, profile.getMaxBufferBytes() / 1024 ) );
+        // Loading stops at the first allocation over the cap
+        assertTrue( peakBytes <= profile.getMaxBufferBytes() + C.DEFAULT_BUFFER_SEGMENT_SIZE );
+    }
+
+    private static void runOnMainSync( Runnable runnable ) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync( runnable );
+    }
+
+    // PCM 16 with a 440 HZ tone, so the file is not silent
+    private static void writeWav( File file ) throws IOException {
+        int dataSize = SAMPLE_RATE * CHANNELS * 2 * SECONDS;
+        ByteBuffer header = ByteBuffer.allocate( 44 ).order( ByteOrder.LITTLE_ENDIAN );
+        header.put( "RIFF".getBytes() ).putInt( 36 + dataSize ).put( "WAVE".getBytes() );
+        header.put( "fmt ".getBytes() ).putInt( 16 ).putShort( ( short ) 1 ).putShort( ( short ) CHANNELS );
+        header.putInt( SAMPLE_RATE ).putInt( SAMPLE_RATE * CHANNELS * 2 );
+        header.putShort( ( short ) ( CHANNELS * 2 ) ).putShort( ( short ) 16 );
+        header.put( "data".getBytes() ).putInt( dataSize );
+
+        ByteBuffer second = ByteBuffer.allocate( SAMPLE_RATE * CHANNELS * 2 ).order( ByteOrder.LITTLE_ENDIAN );
+        for ( int i = 0; i < SAMPLE_RATE; i++ ) {
+            short sample = ( short ) ( Math.sin( 2 * Math.PI * 440 * i / SAMPLE_RATE ) * Short.MAX_VALUE / 4 );
+            for ( int channel = 0; channel < CHANNELS; channel++ ) second.putShort( sample );
+        }
+        try ( FileOutputStream os = new FileOutputStream( file ) ) {
+            os.write( header.array() );
+            for ( int i = 0; i < SECONDS; i++ ) os.write( second.array() );
+        }
+    }
+}
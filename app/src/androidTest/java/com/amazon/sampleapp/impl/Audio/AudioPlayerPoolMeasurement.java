@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.amazon.sampleapp.aace.audio.AudioOutputProvider.AudioOutputType;
+import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Threads and heap held by idle output channels, with a player per channel created up front as
+ * before pooling, against the pool with one channel playing. Results go to logcat under this
+ * tag: ./gradlew :app:connectedRemoteDebugAndroidTest
+ */
+@RunWith( AndroidJUnit4.class )
+public class AudioPlayerPoolMeasurement {
+
+    private static final String sTag = AudioPlayerPoolMeasurement.class.getSimpleName();
+
+    // Every type but COMMUNICATION opens an ExoPlayer channel
+    private static final int CHANNELS = AudioOutputType.values().length - 1;
+    private static final long SETTLE_MS = 500;
+
+    @Test
+    public void pooledChannelsHoldFewerThreadsAndLessHeap() throws Exception {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final List<SimpleExoPlayer> players = new ArrayList<>();
+
+        Usage baseline = Usage.measure();
+        runOnMainSync( new Runnable() {
+            @Override
+            public void run() {
+                for ( int i = 0; i < CHANNELS; i++ ) {
+                    players.add( ExoPlayerFactory.newSimpleInstance( context, new DefaultTrackSelector() ) );
+                }
+            }
+        } );
+        Usage eager = Usage.measure().minus( baseline );
+        releaseOnMainSync( players );
+
+        baseline = Usage.measure();
+        final AudioPlayerPool pool = new AudioPlayerPool();
+        runOnMainSync( new Runnable() {
+            @Override
+            public void run() {
+                players.add( pool.acquire( AudioLoadProfile.SPEECH ) );
+            }
+        } );
+        Usage pooled = Usage.measure().minus( baseline );
+        assertEquals( 1, pool.getPlayersCreated() );
+        releaseOnMainSync( players );
+
+        Log.i( sTag, String.format( "%d idle channels, eager: %s", CHANNELS, eager ) );
+        Log.i( sTag, String.format( "%d idle channels, pooled with one playing: %s", CHANNELS, pooled ) );
+        Log.i( sTag, String.format( "Saved: %s", eager.minus( pooled ) ) );
+        assertTrue( pooled.mThreads < eager.mThreads );
+    }
+
+    private static void runOnMainSync( Runnable runnable ) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync( runnable );
+    }
+
+    private static void releaseOnMainSync( final List<SimpleExoPlayer> players ) {
+        runOnMainSync( new Runnable() {
+            @Override
+            public void run() {
+                for ( SimpleExoPlayer player : players ) player.release();
+                players.clear();
+            }
+        } );
+    }
+
+    //
+    // Live threads and retained heap, after the collector and exiting threads have settled
+    //
+    private static class Usage {
+
+        final int mThreads;
+        final long mJavaHeapBytes;
+        final long mNativeHeapBytes;
+
+        Usage( int threads, long javaHeapBytes, long nativeHeapBytes ) {
+            mThreads = threads;
+            mJavaHeapBytes = javaHeapBytes;
+            mNativeHeapBytes = nativeHeapBytes;
+        }
+
+        static Usage measure() throws InterruptedException {
+            Runtime runtime = Runtime.getRuntime();
+            for ( int i = 0; i < 2; i++ ) {
+                Thread.sleep( SETTLE_MS );
+                runtime.gc();
+                runtime.runFinalization();
+            }
+            return new Usage( Thread.getAllStackTraces().size(),
+                    runtime.totalMemory() - runtime.freeMemory(),
+                    Debug.getNativeHeapAllocatedSize() );
+        }
+
+        Usage minus( Usage other ) {
+            return new Usage( mThreads - other.mThreads, mJavaHeapBytes - other.mJavaHeapBytes,
+                    mNativeHeapBytes - other.mNativeHeapBytes );
+        }
+
+        @Override
+        public String toString() {
+            return String.format( "%d threads, %d KB Java heap, %d KB native heap",
+                    mThreads, mJavaHeapBytes / 1024, mNativeHeapBytes / 1024 );
+        }
+    }
+}
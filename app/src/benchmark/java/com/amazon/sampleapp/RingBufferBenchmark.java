@@ -0,0 +1,95 @@
+package com.amazon.sampleapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of adding to a full history, against the LimitedSizeArrayList these buffers replaced,
+ * which shifted its whole array on every add once full.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RingBufferBenchmark {
+
+    private static final Integer ELEMENT = 42;
+
+    @Param( { "100", "10000" } )
+    public int mCapacity;
+
+    private RingBuffer<Integer> mRing;
+    private RingBuffer<Integer> mConcurrentRing;
+    private LongRingBuffer mLongRing;
+    private List<Integer> mList;
+
+    @Setup
+    public void setUp() {
+        mRing = new RingBuffer<>( mCapacity );
+        mConcurrentRing = RingBuffer.createConcurrent( mCapacity );
+        mLongRing = new LongRingBuffer( mCapacity );
+        mList = new LimitedSizeArrayList<>( mCapacity );
+        for ( int i = 0; i < mCapacity; i++ ) {
+            mRing.add( ELEMENT );
+            mConcurrentRing.add( ELEMENT );
+            mLongRing.add( i );
+            mList.add( ELEMENT );
+        }
+    }
+
+    @Benchmark
+    public List<Integer> ringBuffer() {
+        mRing.add( ELEMENT );
+        return mRing;
+    }
+
+    @Benchmark
+    public List<Integer> concurrentRingBuffer() {
+        mConcurrentRing.add( ELEMENT );
+        return mConcurrentRing;
+    }
+
+    @Benchmark
+    public LongRingBuffer longRingBuffer() {
+        mLongRing.add( 42 );
+        return mLongRing;
+    }
+
+    @Benchmark
+    public List<Integer> limitedSizeArrayList() {
+        mList.add( ELEMENT );
+        return mList;
+    }
+
+    // The removed implementation, as the baseline
+    private static class LimitedSizeArrayList<T> extends ArrayList<T> {
+        private final int mMaxSize;
+
+        LimitedSizeArrayList( int size ) {
+            mMaxSize = size;
+        }
+
+        @Override
+        public boolean add( T t ) {
+            boolean r = super.add( t );
+            int size = size();
+            if ( size > mMaxSize ) removeRange( 0, size - mMaxSize );
+            return r;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preprocessing one 10 ms capture frame, for each stage alone and for the chain the
+ * voice input uses. Run with @c -prof gc to check that nothing is allocated per frame.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class AudioProcessingChainBenchmark {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = 160; // 10 ms
+    private static final int FRAMES = 100; // 1 s of speech, replayed
+
+    @Param( { "chain", "DcRemovalStage", "HighPassStage", "GainStage", "SoftLimiterStage" } )
+    public String mStages;
+
+    private final short[] mSpeech = new short[FRAME_SAMPLES * FRAMES];
+    private final ByteBuffer mFrame = ByteBuffer.allocateDirect( FRAME_SAMPLES * 2 );
+    private AudioProcessingChain mChain;
+    private int mNextFrame;
+
+    @Setup
+    public void setUp() {
+        // 440 HZ with a DC offset, loud enough for the limiter to bend its peaks
+        for ( int i = 0; i < mSpeech.length; i++ ) {
+            mSpeech[i] = ( short ) Math.round( 500 + 30000 * Math.sin( 2 * Math.PI * 440 * i / SAMPLE_RATE ) );
+        }
+        mChain = new AudioProcessingChain( FRAME_SAMPLES );
+        switch ( mStages ) {
+            case "DcRemovalStage":
+                mChain.setStages( new DcRemovalStage() );
+                break;
+            case "HighPassStage":
+                mChain.setStages( new HighPassStage() );
+                break;
+            case "GainStage":
+                mChain.setStages( GainStage.createAutomatic() );
+                break;
+            case "SoftLimiterStage":
+                mChain.setStages( new SoftLimiterStage() );
+                break;
+            default:
+                mChain.setStages( new DcRemovalStage(), new HighPassStage(), GainStage.createAutomatic(),
+                    new SoftLimiterStage() );
+                break;
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer process() {
+        int offset = mNextFrame * FRAME_SAMPLES;
+        if ( ++mNextFrame == FRAMES ) mNextFrame = 0;
+        for ( int i = 0; i < FRAME_SAMPLES; i++ ) mFrame.putShort( i * 2, mSpeech[offset + i] );
+        mChain.process( mFrame, FRAME_SAMPLES * 2 );
+        return mFrame;
+    }
+}
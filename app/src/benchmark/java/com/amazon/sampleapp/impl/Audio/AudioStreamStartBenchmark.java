@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import com.amazon.sampleapp.aace.audio.AudioStream;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Time from the Engine's @c prepare( AudioStream ) until the player has the bytes it waits for
+ * before PLAYING: the @c SPEECH profile's 250 ms playback start threshold.
+ *
+ * @c spoolToFile is the path before streaming: drain the whole stream into a file, then read
+ * the file. @c stream reads the threshold straight through @c AudioStreamDataSource. The
+ * mocked stream has the whole response ready, as if it had already been downloaded, so the
+ * spooled times are a lower bound. Decoder and renderer start-up are the same for both paths
+ * and are not included.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class AudioStreamStartBenchmark {
+
+    private static final int START_THRESHOLD_MS = 250;
+    private static final int ENGINE_CHUNK = 4096; // Bytes the Engine returns per read
+    private static final int SPOOL_BUFFER = 4096; // As in the spooling prepare()
+
+    @Param( { "LPCM", "MP3" } )
+    public String mEncoding;
+
+    @Param( { "2", "10", "30" } )
+    public int mSeconds;
+
+    private byte[] mContent;
+    private int mStartBytes;
+    private int mStreamPosition;
+    private AudioStream mStream;
+    private File mFile;
+    private final byte[] mBuffer = new byte[SPOOL_BUFFER];
+
+    @Setup
+    public void setUp() throws IOException {
+        // PCM 16 mono @ 16 KHZ, or MP3 at 48 kbps
+        int bytesPerSecond = "LPCM".equals( mEncoding ) ? 32000 : 6000;
+        mContent = new byte[bytesPerSecond * mSeconds];
+        for ( int i = 0; i < mContent.length; i++ ) mContent[i] = ( byte ) ( i * 31 );
+        mStartBytes = bytesPerSecond * START_THRESHOLD_MS / 1000;
+        mFile = File.createTempFile( "alexa_media", null );
+        mStream = mock( AudioStream.class );
+        when( mStream.read( any( byte[].class ), anyInt(), anyInt() ) ).thenAnswer( new Answer<Integer>() {
+            @Override
+            public Integer answer( InvocationOnMock invocation ) {
+                byte[] buffer = invocation.getArgument( 0 );
+                int offset = invocation.getArgument( 1 );
+                int size = Math.min( Math.min( ( int ) invocation.getArgument( 2 ), ENGINE_CHUNK ),
+                    mContent.length - mStreamPosition );
+                System.arraycopy( mContent, mStreamPosition, buffer, offset, size );
+                mStreamPosition += size;
+                return size;
+            }
+        } );
+        when( mStream.isClosed() ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( InvocationOnMock invocation ) {
+                return mStreamPosition == mContent.length;
+            }
+        } );
+    }
+
+    @Setup( Level.Invocation )
+    public void rewind() {
+        mStreamPosition = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public int spoolToFile() throws IOException {
+        try ( FileOutputStream os = new FileOutputStream( mFile ) ) {
+            int size;
+            while ( !mStream.isClosed() ) {
+                while ( ( size = mStream.read( mBuffer, 0, mBuffer.length ) ) > 0 ) os.write( mBuffer, 0, size );
+            }
+        }
+        try ( FileInputStream is = new FileInputStream( mFile ) ) {
+            int read = 0;
+            int size;
+            while ( read < mStartBytes && ( size = is.read( mBuffer, 0, Math.min( mBuffer.length, mStartBytes - read ) ) ) > 0 ) {
+                read += size;
+            }
+            return read;
+        }
+    }
+
+    @Benchmark
+    public int stream() throws IOException {
+        DataSource source = new AudioStreamDataSource.Factory( mStream ).createDataSource();
+        source.open( new DataSpec( null, 0, C.LENGTH_UNSET, null ) );
+        int read = 0;
+        int size;
+        while ( read < mStartBytes && ( size = source.read( mBuffer, 0, Math.min( mBuffer.length, mStartBytes - read ) ) ) > 0 ) {
+            read += size;
+        }
+        source.close();
+        return read;
+    }
+}
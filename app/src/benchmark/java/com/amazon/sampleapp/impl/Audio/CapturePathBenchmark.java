@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java-side cost of moving one 10 ms capture frame to the Engine. The JNI copies made by
+ * @c AudioRecord.read() and @c AudioInput.write() are stood in for by @c System.arraycopy(),
+ * so every path pays for them the same way.
+ *
+ * @c baseline is the original handler: read into an array and write that array. @c ring is the
+ * current path: read into the hub frame, copy into a ring slot, write the slot's backing array.
+ * @c directFallback is the removed direct buffer path: the same ring in direct memory, with each
+ * slot copied out to a scratch array because the Engine has no direct entry point. Run with
+ * @c -prof gc to compare allocation.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CapturePathBenchmark {
+
+    private static final int FRAME_SIZE = 320; // 10 ms of PCM 16 mono @ 16 KHZ
+
+    private final byte[] mMicrophone = new byte[FRAME_SIZE]; // Stands in for the AudioRecord buffer
+    private final byte[] mEngine = new byte[FRAME_SIZE]; // Stands in for the Engine's buffer
+    private final byte[] mBaselineFrame = new byte[FRAME_SIZE];
+    private final ByteBuffer mHubFrame = ByteBuffer.allocate( FRAME_SIZE );
+    private final ByteBuffer mDirectFrame = ByteBuffer.allocateDirect( FRAME_SIZE );
+    private final ByteBuffer mDirectSlot = ByteBuffer.allocateDirect( FRAME_SIZE );
+    private final byte[] mScratch = new byte[FRAME_SIZE];
+    private AudioFrameRing mRing;
+
+    @Setup
+    public void setUp() {
+        for ( int i = 0; i < FRAME_SIZE; i++ ) mMicrophone[i] = ( byte ) i;
+        mRing = new AudioFrameRing( 50, FRAME_SIZE );
+    }
+
+    @Benchmark
+    public byte[] baseline() {
+        System.arraycopy( mMicrophone, 0, mBaselineFrame, 0, FRAME_SIZE ); // AudioRecord.read()
+        System.arraycopy( mBaselineFrame, 0, mEngine, 0, FRAME_SIZE ); // write()
+        return mEngine;
+    }
+
+    @Benchmark
+    public byte[] ring() {
+        System.arraycopy( mMicrophone, 0, mHubFrame.array(), 0, FRAME_SIZE ); // AudioRecord.read()
+        mHubFrame.clear();
+        ByteBuffer slot = mRing.writeSlot();
+        slot.clear();
+        slot.put( mHubFrame );
+        mRing.commitWrite( FRAME_SIZE, 0 );
+
+        slot = mRing.readSlot();
+        System.arraycopy( slot.array(), slot.arrayOffset(), mEngine, 0, FRAME_SIZE ); // write()
+        mRing.commitRead();
+        return mEngine;
+    }
+
+    @Benchmark
+    public byte[] directFallback() {
+        mDirectFrame.clear();
+        mDirectFrame.put( mMicrophone ); // AudioRecord.read( ByteBuffer )
+        mDirectFrame.flip();
+        mDirectSlot.clear();
+        mDirectSlot.put( mDirectFrame );
+        mDirectSlot.flip();
+        mDirectSlot.get( mScratch ); // Copy out to an array for the byte[] entry point
+        System.arraycopy( mScratch, 0, mEngine, 0, FRAME_SIZE ); // write()
+        return mEngine;
+    }
+}
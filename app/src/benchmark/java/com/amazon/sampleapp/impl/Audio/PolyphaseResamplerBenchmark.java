@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resampling one 10 ms capture frame from a native rate down to the Engine's 16 KHZ.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class PolyphaseResamplerBenchmark {
+
+    private static final int OUTPUT_RATE = 16000;
+
+    @Param( { "48000", "44100" } )
+    public int mInputRate;
+
+    private final ByteBuffer mOutput = ByteBuffer.allocate( OUTPUT_RATE / 50 );
+    private short[] mFrame;
+    private PolyphaseResampler mResampler;
+
+    @Setup
+    public void setUp() {
+        mFrame = new short[mInputRate / 100];
+        for ( int i = 0; i < mFrame.length; i++ ) mFrame[i] = ( short ) ( i * 97 );
+        mResampler = new PolyphaseResampler( mInputRate, OUTPUT_RATE, mFrame.length );
+    }
+
+    @Benchmark
+    public int process() {
+        System.arraycopy( mFrame, 0, mResampler.inputBuffer(), mResampler.inputOffset(), mFrame.length );
+        return mResampler.process( mFrame.length, mOutput );
+    }
+}
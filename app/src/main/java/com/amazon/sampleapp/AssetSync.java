@@ -0,0 +1,353 @@
+package com.amazon.sampleapp;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/***
+ * Copies asset directories to the file system, skipping files that are already up to date.
+ *
+ * A manifest records the size, CRC32 and APK version of every file copied. While the APK is
+ * unchanged a file is skipped if its size and modification time still match the manifest,
+ * without reading the asset. After an APK update an asset is read to compare its checksum, but
+ * only rewritten if it changed. Files are copied in parallel through a 64 KB buffer into a
+ * temporary file that is renamed into place, so an interrupted copy never leaves a truncated
+ * file behind.
+ */
+public class AssetSync {
+    private static final String TAG = AssetSync.class.getSimpleName();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_THREADS = 4;
+    private static final String TEMP_SUFFIX = ".sync";
+
+    // Manifest keys
+    private static final String KEY_APK_VERSION = "apkVersion";
+    private static final String KEY_BYTES_PER_SECOND = "bytesPerSecond";
+    private static final String KEY_FILES = "files";
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_CRC = "crc";
+    private static final String KEY_MODIFIED = "modified";
+
+    /**
+     * What one sync did
+     */
+    public static class Result {
+        private final int mFilesCopied;
+        private final int mFilesSkipped;
+        private final int mFilesFailed;
+        private final long mBytesCopied;
+        private final long mBytesSkipped;
+        private final long mElapsedMs;
+        private final long mSavedMs;
+
+        Result(int filesCopied, int filesSkipped, int filesFailed, long bytesCopied,
+               long bytesSkipped, long elapsedMs, long savedMs) {
+            mFilesCopied = filesCopied;
+            mFilesSkipped = filesSkipped;
+            mFilesFailed = filesFailed;
+            mBytesCopied = bytesCopied;
+            mBytesSkipped = bytesSkipped;
+            mElapsedMs = elapsedMs;
+            mSavedMs = savedMs;
+        }
+
+        public int getFilesCopied() { return mFilesCopied; }
+
+        public int getFilesSkipped() { return mFilesSkipped; }
+
+        public int getFilesFailed() { return mFilesFailed; }
+
+        public long getBytesCopied() { return mBytesCopied; }
+
+        public long getBytesSkipped() { return mBytesSkipped; }
+
+        public long getElapsedMs() { return mElapsedMs; }
+
+        /**
+         * @return The estimated time copying the skipped files would have taken, at the copy
+         * rate of this or an earlier sync
+         */
+        public long getSavedMs() { return mSavedMs; }
+
+        @Override
+        public String toString() {
+            return String.format("copied %d files (%d bytes), skipped %d files (%d bytes), "
+                    + "%d failed, took %d ms, saved about %d ms", mFilesCopied, mBytesCopied,
+                    mFilesSkipped, mBytesSkipped, mFilesFailed, mElapsedMs, mSavedMs);
+        }
+    }
+
+    private final AssetManager mAssets;
+    private final File mManifestFile;
+    private final String mApkVersion;
+    private final List<String> mAssetDirs = new ArrayList<>();
+    private final List<File> mDestDirs = new ArrayList<>();
+
+    // State of the sync in progress
+    private final Map<String, JSONObject> mEntries = new ConcurrentHashMap<>();
+    private final AtomicInteger mFilesCopied = new AtomicInteger();
+    private final AtomicInteger mFilesSkipped = new AtomicInteger();
+    private final AtomicInteger mFilesFailed = new AtomicInteger();
+    private final AtomicLong mBytesCopied = new AtomicLong();
+    private final AtomicLong mBytesSkipped = new AtomicLong();
+    private final AtomicLong mCopyNanos = new AtomicLong(); // Summed over the threads
+
+    /**
+     * @param manifestFile Where to keep the manifest, next to the copied files
+     */
+    public AssetSync(Context context, File manifestFile) {
+        mAssets = context.getAssets();
+        mManifestFile = manifestFile;
+        mApkVersion = getApkVersion(context);
+    }
+
+    /**
+     * Adds a directory of assets, including subdirectories, to copy to @c destDir
+     */
+    public AssetSync addDirectory(String assetDir, File destDir) {
+        mAssetDirs.add(assetDir);
+        mDestDirs.add(destDir);
+        return this;
+    }
+
+    // The version code alone does not change between development builds
+    private static String getApkVersion(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return info.versionCode + "-" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Copies the added directories, then updates the manifest
+     */
+    public Result sync() {
+        long start = SystemClock.elapsedRealtime();
+        reset();
+        JSONObject manifest = readManifest();
+        JSONObject previousFiles = manifest.optJSONObject(KEY_FILES);
+        boolean sameApk = !mApkVersion.isEmpty()
+                && mApkVersion.equals(manifest.optString(KEY_APK_VERSION, null));
+
+        List<String[]> files = new ArrayList<>(); // Asset path, destination path
+        for (int i = 0; i < mAssetDirs.size(); i++) {
+            listAssets(mAssetDirs.get(i), mDestDirs.get(i), files);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_THREADS, files.size())));
+        List<Future<?>> futures = new ArrayList<>();
+        for (final String[] file : files) {
+            final JSONObject previous = previousFiles != null ? previousFiles.optJSONObject(file[1]) : null;
+            final boolean trustManifest = sameApk;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    syncFile(file[0], new File(file[1]), previous, trustManifest);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                mFilesFailed.incrementAndGet();
+                Log.e(TAG, "Asset sync failed", e.getCause());
+            }
+        }
+        executor.shutdownNow();
+
+        long bytesCopied = mBytesCopied.get();
+        long copyNanos = mCopyNanos.get();
+        double bytesPerSecond = manifest.optDouble(KEY_BYTES_PER_SECOND, 0);
+        if (bytesCopied >= BUFFER_SIZE && copyNanos > 0) {
+            bytesPerSecond = bytesCopied * 1e9 / copyNanos;
+        }
+        long savedMs = bytesPerSecond > 0 ? (long) (mBytesSkipped.get() * 1000 / bytesPerSecond) : 0;
+
+        writeManifest(bytesPerSecond);
+        Result result = new Result(mFilesCopied.get(), mFilesSkipped.get(), mFilesFailed.get(),
+                bytesCopied, mBytesSkipped.get(), SystemClock.elapsedRealtime() - start, savedMs);
+        Log.i(TAG, "Asset sync " + result);
+        return result;
+    }
+
+    private void reset() {
+        mEntries.clear();
+        mFilesCopied.set(0);
+        mFilesSkipped.set(0);
+        mFilesFailed.set(0);
+        mBytesCopied.set(0);
+        mBytesSkipped.set(0);
+        mCopyNanos.set(0);
+    }
+
+    private void listAssets(String assetPath, File dest, List<String[]> files) {
+        try {
+            String[] children = mAssets.list(assetPath);
+            if (children == null || children.length == 0) {
+                files.add(new String[] {assetPath, dest.getAbsolutePath()});
+                return;
+            }
+            for (String child : children) {
+                listAssets(assetPath + "/" + child, new File(dest, child), files);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot list assets in " + assetPath + ": " + e.getMessage());
+        }
+    }
+
+    private void syncFile(String assetPath, File dest, JSONObject previous, boolean trustManifest) {
+        String key = dest.getAbsolutePath();
+        long size = previous != null ? previous.optLong(KEY_SIZE, -1) : -1;
+        boolean destIntact = previous != null && dest.length() == size
+                && dest.lastModified() == previous.optLong(KEY_MODIFIED, -1);
+
+        if (destIntact && trustManifest) {
+            skip(key, previous, size);
+            return;
+        }
+        try {
+            if (destIntact && checksum(assetPath) == previous.optLong(KEY_CRC, -1)) {
+                skip(key, previous, size); // Same content in a new APK
+                return;
+            }
+            mEntries.put(key, copy(assetPath, dest));
+            mFilesCopied.incrementAndGet();
+        } catch (IOException | JSONException e) {
+            mFilesFailed.incrementAndGet();
+            Log.e(TAG, "Cannot copy " + assetPath + " into " + dest + ": " + e.getMessage());
+        }
+    }
+
+    private void skip(String key, JSONObject entry, long size) {
+        mEntries.put(key, entry);
+        mFilesSkipped.incrementAndGet();
+        mBytesSkipped.addAndGet(size);
+    }
+
+    private long checksum(String assetPath) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = mAssets.open(assetPath)) {
+            int length;
+            while ((length = is.read(buffer)) > 0) {
+                crc.update(buffer, 0, length);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Copies into a temporary file and renames it over dest, returning the manifest entry
+    private JSONObject copy(String assetPath, File dest) throws IOException, JSONException {
+        File parent = dest.getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        long start = System.nanoTime();
+        File temp = new File(parent, dest.getName() + TEMP_SUFFIX);
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = mAssets.open(assetPath);
+             FileOutputStream os = new FileOutputStream(temp)) {
+            int length;
+            while ((length = is.read(buffer)) > 0) {
+                os.write(buffer, 0, length);
+                crc.update(buffer, 0, length);
+                size += length;
+            }
+            os.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(dest)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + dest);
+        }
+        mCopyNanos.addAndGet(System.nanoTime() - start);
+        mBytesCopied.addAndGet(size);
+
+        JSONObject entry = new JSONObject();
+        entry.put(KEY_SIZE, size);
+        entry.put(KEY_CRC, crc.getValue());
+        entry.put(KEY_MODIFIED, dest.lastModified());
+        entry.put(KEY_APK_VERSION, mApkVersion);
+        return entry;
+    }
+
+    private JSONObject readManifest() {
+        if (mManifestFile.exists()) {
+            try (FileInputStream is = new FileInputStream(mManifestFile)) {
+                byte[] buffer = new byte[(int) mManifestFile.length()];
+                int read = 0;
+                int length;
+                while (read < buffer.length && (length = is.read(buffer, read, buffer.length - read)) > 0) {
+                    read += length;
+                }
+                return new JSONObject(new String(buffer, 0, read, StandardCharsets.UTF_8));
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Ignoring unreadable asset manifest: " + e.getMessage());
+            }
+        }
+        return new JSONObject();
+    }
+
+    private void writeManifest(double bytesPerSecond) {
+        File temp = new File(mManifestFile.getPath() + TEMP_SUFFIX);
+        try {
+            JSONObject files = new JSONObject();
+            for (Map.Entry<String, JSONObject> entry : mEntries.entrySet()) {
+                files.put(entry.getKey(), entry.getValue());
+            }
+            JSONObject manifest = new JSONObject();
+            manifest.put(KEY_APK_VERSION, mApkVersion);
+            manifest.put(KEY_BYTES_PER_SECOND, bytesPerSecond);
+            manifest.put(KEY_FILES, files);
+
+            File parent = mManifestFile.getParentFile();
+            if (parent != null && !parent.exists()) parent.mkdirs();
+            try (FileOutputStream os = new FileOutputStream(temp)) {
+                os.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+                os.getFD().sync();
+            }
+            if (!temp.renameTo(mManifestFile)) {
+                throw new IOException("Cannot rename " + temp + " to " + mManifestFile);
+            }
+        } catch (IOException | JSONException e) {
+            temp.delete();
+            Log.e(TAG, "Cannot write asset manifest: " + e.getMessage());
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.amazon.sampleapp.aace.alexa.AlexaClient;
 import com.amazon.sampleapp.aace.alexa.config.AlexaConfiguration;
 import com.amazon.sampleapp.aace.core.CoreProperties;
 import com.amazon.sampleapp.aace.core.Engine;
+import com.amazon.sampleapp.aace.core.PlatformInterface;
 import com.amazon.sampleapp.aace.core.config.ConfigurationFile;
 import com.amazon.sampleapp.aace.core.config.EngineConfiguration;
 import com.amazon.sampleapp.aace.storage.config.StorageConfiguration;
@@ -28,10 +29,17 @@ import com.amazon.sampleapp.impl.AlexaClient.AlexaClientHandler;
 import com.amazon.sampleapp.impl.AlexaSpeaker.AlexaSpeakerHandler;
 import com.amazon.sampleapp.impl.Audio.AudioInputProviderHandler;
 import com.amazon.sampleapp.impl.Audio.AudioOutputProviderHandler;
+import com.amazon.sampleapp.impl.Audio.FileAudioInput;
 import com.amazon.sampleapp.impl.AudioPlayer.AudioPlayerHandler;
 import com.amazon.sampleapp.impl.AuthProvider.AuthProviderHandler;
 import com.amazon.sampleapp.impl.AuthProvider.LoginWithAmazonCBL;
+import com.amazon.sampleapp.impl.Events.EventBus;
 import com.amazon.sampleapp.impl.GlobalPreset.GlobalPresetHandler;
+import com.amazon.sampleapp.impl.Logger.FlightRecorder;
+import com.amazon.sampleapp.impl.Logger.LogFilter;
+import com.amazon.sampleapp.impl.Logger.LoggerHandler;
+import com.amazon.sampleapp.impl.Metrics.MetricsExporter;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
 import com.amazon.sampleapp.impl.NetworkInfoProvider.NetworkInfoProviderHandler;
 import com.amazon.sampleapp.impl.PlaybackController.PlaybackControllerHandler;
 import com.amazon.sampleapp.impl.SpeechRecognizer.SpeechRecognizerHandler;
@@ -41,13 +49,16 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
-public class AsvAlexaPlugin implements Observer {
+public class AsvAlexaPlugin implements EventBus.Subscriber<SpeechRecognizerHandler.AudioCueState> {
     private Activity mActivity;
     private Context mContext;
 
@@ -56,6 +67,11 @@ public class AsvAlexaPlugin implements Observer {
             Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.READ_EXTERNAL_STORAGE};
 
     private static final String sDeviceConfigFile = "app_config.json";
+    private static final String sDiagnosticsConfigKey = "diagnostics";
+    private static final String sMetricsFileName = "metrics.json";
+    private static final String sFlightRecorderFileName = "flight-recorder.bin";
+    private static final String sFileAudioInputKey = "fileAudioInput";
+    private static final int sStartupThreads = 4;
 
     private MediaPlayer mAudioCueStartVoice; // Voice-initiated listening audio cue
     private MediaPlayer mAudioCueStartTouch; // Touch-initiated listening audio cue
@@ -63,9 +79,11 @@ public class AsvAlexaPlugin implements Observer {
     private SharedPreferences mPreferences;
 
     private LVCConfigReceiver mLVCConfigReceiver;
+    private MetricsExporter mMetricsExporter;
 
     // Core
     private Engine mEngine;
+    private LoggerHandler mLogger;
     private boolean mEngineStarted = false;
     private NetworkInfoProviderHandler mNetworkInfoProvider;
     private SpeechRecognizerHandler mSpeechRecognizer;
@@ -175,29 +193,30 @@ public class AsvAlexaPlugin implements Observer {
         editor.apply();
     }
 
+    // Audio cues are delivered inline on the thread that publishes them, usually an Engine thread,
+    // so the earcon starts without waiting for the main thread. MediaPlayer.start() only posts the
+    // request, and the players are read and released under the earcon locks.
     @Override
-    public void update(Observable observable, Object object) {
-        if (observable instanceof SpeechRecognizerHandler.AudioCueObservable) {
-            if (object.equals(SpeechRecognizerHandler.AudioCueState.START_TOUCH)) {
-                synchronized (mDisableStartOfRequestEarconLock) {
-                    if (!mDisableStartOfRequestEarcon) {
-                        // Play touch-initiated listening audio cue
-                        mAudioCueStartTouch.start();
-                    }
+    public void onEvent(SpeechRecognizerHandler.AudioCueState state) {
+        if (state == SpeechRecognizerHandler.AudioCueState.START_TOUCH) {
+            synchronized (mDisableStartOfRequestEarconLock) {
+                if (!mDisableStartOfRequestEarcon && mAudioCueStartTouch != null) {
+                    // Play touch-initiated listening audio cue
+                    mAudioCueStartTouch.start();
                 }
-            } else if (object.equals(SpeechRecognizerHandler.AudioCueState.START_VOICE)) {
-                synchronized (mDisableStartOfRequestEarconLock) {
-                    if (!mDisableStartOfRequestEarcon) {
-                        // Play voice-initiated listening audio cue
-                        mAudioCueStartVoice.start();
-                    }
+            }
+        } else if (state == SpeechRecognizerHandler.AudioCueState.START_VOICE) {
+            synchronized (mDisableStartOfRequestEarconLock) {
+                if (!mDisableStartOfRequestEarcon && mAudioCueStartVoice != null) {
+                    // Play voice-initiated listening audio cue
+                    mAudioCueStartVoice.start();
                 }
-            } else if (object.equals(SpeechRecognizerHandler.AudioCueState.END)) {
-                synchronized (mDisableEndOfRequestEarconLock) {
-                    if (!mDisableEndOfRequestEarcon) {
-                        // Play stop listening audio cue
-                        mAudioCueEnd.start();
-                    }
+            }
+        } else if (state == SpeechRecognizerHandler.AudioCueState.END) {
+            synchronized (mDisableEndOfRequestEarconLock) {
+                if (!mDisableEndOfRequestEarcon && mAudioCueEnd != null) {
+                    // Play stop listening audio cue
+                    mAudioCueEnd.start();
                 }
             }
         }
@@ -206,17 +225,22 @@ public class AsvAlexaPlugin implements Observer {
     public void onDestroy() {
         Log.i("onDestroy", "Engine stopped");
 
-        if (mAudioCueStartVoice != null) {
-            mAudioCueStartVoice.release();
-            mAudioCueStartVoice = null;
-        }
-        if (mAudioCueStartTouch != null) {
-            mAudioCueStartTouch.release();
-            mAudioCueStartTouch = null;
+        // Under the earcon locks, so a cue arriving on an Engine thread never starts a released player
+        synchronized (mDisableStartOfRequestEarconLock) {
+            if (mAudioCueStartVoice != null) {
+                mAudioCueStartVoice.release();
+                mAudioCueStartVoice = null;
+            }
+            if (mAudioCueStartTouch != null) {
+                mAudioCueStartTouch.release();
+                mAudioCueStartTouch = null;
+            }
         }
-        if (mAudioCueEnd != null) {
-            mAudioCueEnd.release();
-            mAudioCueEnd = null;
+        synchronized (mDisableEndOfRequestEarconLock) {
+            if (mAudioCueEnd != null) {
+                mAudioCueEnd.release();
+                mAudioCueEnd = null;
+            }
         }
 
         if (mLVCConfigReceiver != null) {
@@ -230,6 +254,29 @@ public class AsvAlexaPlugin implements Observer {
         if (mEngine != null) {
             mEngine.dispose();
         }
+
+        if (mAudioInputProvider != null && mAudioInputProvider.getFileAudioInput() != null) {
+            mAudioInputProvider.getFileAudioInput().shutdown();
+        }
+
+        if (mMetricsExporter != null) {
+            mMetricsExporter.stop();
+            mMetricsExporter = null;
+        }
+
+        if (mLogger != null) {
+            // Let the log thread write its last records before the recorder is closed
+            mLogger.shutdown();
+            FlightRecorder recorder = mLogger.getFlightRecorder();
+            if (recorder != null) {
+                mLogger.setFlightRecorder(null);
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    Log.w("onDestroy", "Cannot close flight recorder: " + e.getMessage());
+                }
+            }
+        }
     }
 
     private void initLVC() {
@@ -264,7 +311,7 @@ public class AsvAlexaPlugin implements Observer {
             Log.e("onLVCConfigReceived", "Could not start engine. Reason: " + e.getMessage());
             return;
         }
-        mSpeechRecognizer.addObserver(this);
+        mSpeechRecognizer.addAudioCueObserver(this, EventBus.Delivery.INLINE);
     }
 
     /**
@@ -278,113 +325,268 @@ public class AsvAlexaPlugin implements Observer {
         File cacheDir = mActivity.getCacheDir();
         File appDataDir = new File(cacheDir, "appdata");
 
-        // Copy certs from assets to certs subdirectory of cache directory
+        // Copy certs and models from assets to subdirectories of the cache directory.
+        // Only files that are missing or differ from the APK are copied, so the models on device
+        // cache are always the latest from the APK without rewriting them on every start
         File certsDir = new File(appDataDir, "certs");
-        FileUtils.copyAllAssets(mActivity.getAssets(), "certs", certsDir, false);
-
-        // Copy models from assets to certs subdirectory of cache directory.
-        // Force copy the models on every start so that the models on device cache are always the latest
-        // from the APK
         File modelsDir = new File(appDataDir, "models");
-        FileUtils.copyAllAssets(mActivity.getAssets(), "models", modelsDir, true);
+        new AssetSync(mContext, new File(appDataDir, "assets-manifest.json"))
+                .addDirectory("certs", certsDir)
+                .addDirectory("models", modelsDir)
+                .sync();
+
+        // Optional diagnostics, off unless enabled in the "diagnostics" section of the config file
+        final JSONObject diagnostics = FileUtils.getConfigFromFile(mContext.getAssets(), sDeviceConfigFile, sDiagnosticsConfigKey);
 
         // Create AAC engine
         mEngine = Engine.create(mContext);
-        ArrayList<EngineConfiguration> configuration = getEngineConfigurations(json, appDataDir, certsDir, modelsDir);
+        final LogFilter logFilter = LoggerHandler.createLogFilter();
+        ArrayList<EngineConfiguration> configuration = getEngineConfigurations(json, appDataDir, certsDir, modelsDir, logFilter);
 
         EngineConfiguration[] configurationArray = configuration.toArray(new EngineConfiguration[configuration.size()]);
         boolean configureSucceeded = mEngine.configure(configurationArray);
         if (!configureSucceeded) throw new RuntimeException("Engine configuration failed");
 
-        // Create the platform implementation handlers and register them with the engine
-
-        // AudioInputProvider
-        if (!mEngine.registerPlatformInterface(
-                mAudioInputProvider = new AudioInputProviderHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register AudioInputProvider platform interface");
-
-        // AudioInputProvider
-        if (!mEngine.registerPlatformInterface(
-                mAudioOutputProvider = new AudioOutputProviderHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register AudioOutputProvider platform interface");
-
-        // AlexaClient
-        if (!mEngine.registerPlatformInterface(
-                mAlexaClient = new AlexaClientHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register AlexaClient platform interface");
-
-        // PlaybackController
-        if (!mEngine.registerPlatformInterface(
-                mPlaybackController = new PlaybackControllerHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register PlaybackController platform interface");
-
-        // SpeechRecognizer
-        boolean wakeWordSupported = false;
-        if (!mEngine.registerPlatformInterface(
-                mSpeechRecognizer = new SpeechRecognizerHandler(mActivity, wakeWordSupported, true)
-        )
-        ) throw new RuntimeException("Could not register SpeechRecognizer platform interface");
-
-        // AudioPlayer
-        if (!mEngine.registerPlatformInterface(
-                mAudioPlayer = new AudioPlayerHandler(mAudioOutputProvider, mPlaybackController)
-        )
-        ) throw new RuntimeException("Could not register AudioPlayer platform interface");
-
-        // SpeechSynthesizer
-        if (!mEngine.registerPlatformInterface(
-                mSpeechSynthesizer = new SpeechSynthesizerHandler()
-        )
-        ) throw new RuntimeException("Could not register SpeechSynthesizer platform interface");
-
-        // AlexaSpeaker
-        if (!mEngine.registerPlatformInterface(
-                mAlexaSpeaker = new AlexaSpeakerHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register AlexaSpeaker platform interface");
-
-        // Alerts
-        if (!mEngine.registerPlatformInterface(
-                mAlerts = new AlertsHandler(mActivity)
-        )
-        ) throw new RuntimeException("Could not register Alerts platform interface");
-
-        // NetworkInfoProvider
-        if (!mEngine.registerPlatformInterface(
-                mNetworkInfoProvider = new NetworkInfoProviderHandler(mActivity, mEngine)
-        )
-        ) throw new RuntimeException("Could not register NetworkInfoProvider platform interface");
-
+        // Create the platform implementation handlers in parallel, and register them with the
+        // engine in order as they become ready
+        StartupGraph graph = new StartupGraph(sStartupThreads);
+
+        // Keeps the recent log in a file that survives crashes, if enabled in the diagnostics config
+        final File flightRecorderFile = diagnostics != null && diagnostics.optBoolean("flightRecorder", false)
+                ? new File(appDataDir, sFlightRecorderFileName) : null;
+        StartupGraph.Node<LoggerHandler> logger = graph.add("Logger",
+                new Callable<LoggerHandler>() {
+                    @Override
+                    public LoggerHandler call() {
+                        LoggerHandler handler = new LoggerHandler(logFilter);
+                        if (flightRecorderFile != null) {
+                            handler.setFlightRecorder(openFlightRecorder(flightRecorderFile));
+                        }
+                        return handler;
+                    }
+                });
+        final StartupGraph.Node<AudioInputProviderHandler> audioInputProvider = graph.add("AudioInputProvider",
+                new Callable<AudioInputProviderHandler>() {
+                    @Override
+                    public AudioInputProviderHandler call() {
+                        AudioInputProviderHandler handler = new AudioInputProviderHandler(mActivity);
+                        // Set before registering, since the Engine opens the voice channel on start
+                        handler.setFileAudioInput(createFileAudioInput(diagnostics));
+                        return handler;
+                    }
+                });
+        final StartupGraph.Node<AudioOutputProviderHandler> audioOutputProvider = graph.add("AudioOutputProvider",
+                new Callable<AudioOutputProviderHandler>() {
+                    @Override
+                    public AudioOutputProviderHandler call() {
+                        return new AudioOutputProviderHandler(mActivity);
+                    }
+                });
+        StartupGraph.Node<AlexaClientHandler> alexaClient = graph.add("AlexaClient",
+                new Callable<AlexaClientHandler>() {
+                    @Override
+                    public AlexaClientHandler call() {
+                        return new AlexaClientHandler(mActivity);
+                    }
+                });
+        final StartupGraph.Node<PlaybackControllerHandler> playbackController = graph.add("PlaybackController",
+                new Callable<PlaybackControllerHandler>() {
+                    @Override
+                    public PlaybackControllerHandler call() {
+                        return new PlaybackControllerHandler(mActivity);
+                    }
+                });
+        StartupGraph.Node<SpeechRecognizerHandler> speechRecognizer = graph.add("SpeechRecognizer",
+                new Callable<SpeechRecognizerHandler>() {
+                    @Override
+                    public SpeechRecognizerHandler call() {
+                        boolean wakeWordSupported = false;
+                        return new SpeechRecognizerHandler(mActivity, audioInputProvider.get(), wakeWordSupported, true);
+                    }
+                }, audioInputProvider);
+        // Creates an android.os.Handler, which needs the Looper of the calling thread
+        StartupGraph.Node<AudioPlayerHandler> audioPlayer = graph.addOnCallerThread("AudioPlayer",
+                new Callable<AudioPlayerHandler>() {
+                    @Override
+                    public AudioPlayerHandler call() {
+                        return new AudioPlayerHandler(audioOutputProvider.get(), playbackController.get());
+                    }
+                }, audioOutputProvider, playbackController);
+        StartupGraph.Node<SpeechSynthesizerHandler> speechSynthesizer = graph.add("SpeechSynthesizer",
+                new Callable<SpeechSynthesizerHandler>() {
+                    @Override
+                    public SpeechSynthesizerHandler call() {
+                        return new SpeechSynthesizerHandler();
+                    }
+                });
+        StartupGraph.Node<AlexaSpeakerHandler> alexaSpeaker = graph.add("AlexaSpeaker",
+                new Callable<AlexaSpeakerHandler>() {
+                    @Override
+                    public AlexaSpeakerHandler call() {
+                        return new AlexaSpeakerHandler(mActivity);
+                    }
+                });
+        StartupGraph.Node<AlertsHandler> alerts = graph.add("Alerts",
+                new Callable<AlertsHandler>() {
+                    @Override
+                    public AlertsHandler call() {
+                        return new AlertsHandler(mActivity);
+                    }
+                });
+        StartupGraph.Node<NetworkInfoProviderHandler> networkInfoProvider = graph.add("NetworkInfoProvider",
+                new Callable<NetworkInfoProviderHandler>() {
+                    @Override
+                    public NetworkInfoProviderHandler call() {
+                        return new NetworkInfoProviderHandler(mActivity, mEngine);
+                    }
+                });
         // CBL Auth Handler
-        LoginWithAmazonCBL LoginHandler = new LoginWithAmazonCBL(mActivity);
+        final StartupGraph.Node<LoginWithAmazonCBL> loginHandler = graph.add("LoginWithAmazonCBL",
+                new Callable<LoginWithAmazonCBL>() {
+                    @Override
+                    public LoginWithAmazonCBL call() {
+                        return new LoginWithAmazonCBL(mActivity);
+                    }
+                });
+        StartupGraph.Node<AuthProviderHandler> authProvider = graph.add("AuthProvider",
+                new Callable<AuthProviderHandler>() {
+                    @Override
+                    public AuthProviderHandler call() {
+                        return new AuthProviderHandler(mActivity, loginHandler.get());
+                    }
+                }, loginHandler);
+        // Mock global preset
+        StartupGraph.Node<GlobalPresetHandler> globalPreset = graph.add("GlobalPreset",
+                new Callable<GlobalPresetHandler>() {
+                    @Override
+                    public GlobalPresetHandler call() {
+                        return new GlobalPresetHandler(mActivity);
+                    }
+                });
 
-        // AuthProvider
-        if (!mEngine.registerPlatformInterface(
-                mAuthProvider = new AuthProviderHandler(mActivity, LoginHandler)
-        )
-        ) throw new RuntimeException("Could not register AuthProvider platform interface");
+        try {
+            // Registered first, so it receives the log of registering the others
+            mLogger = register(graph, logger);
+            mAudioInputProvider = register(graph, audioInputProvider);
+            mAudioOutputProvider = register(graph, audioOutputProvider);
+            mAlexaClient = register(graph, alexaClient);
+            mPlaybackController = register(graph, playbackController);
+            mSpeechRecognizer = register(graph, speechRecognizer);
+            mAudioPlayer = register(graph, audioPlayer);
+            mSpeechSynthesizer = register(graph, speechSynthesizer);
+            mAlexaSpeaker = register(graph, alexaSpeaker);
+            mAlerts = register(graph, alerts);
+            mNetworkInfoProvider = register(graph, networkInfoProvider);
+            mAuthProvider = register(graph, authProvider);
+            mGlobalPresetHandler = register(graph, globalPreset);
+        } finally {
+            graph.finish();
+        }
 
         // Set auth handler as connection observer
-        mNetworkInfoProvider.registerNetworkConnectionObserver(LoginHandler);
-
-        // Mock global preset
-        if (!mEngine.registerPlatformInterface(
-                mGlobalPresetHandler = new GlobalPresetHandler(mActivity)
-        )) throw new RuntimeException("Could not register Mock Global Preset platform interface");
+        mNetworkInfoProvider.registerNetworkConnectionObserver(loginHandler.get());
 
         // Start the engine
         if (!mEngine.start()) throw new RuntimeException("Could not start engine");
         mEngineStarted = true;
 
+        // Started only once the Engine is up, so a failed start leaves no export thread behind.
+        // Startup metrics are already in the registry and go out with the first snapshot.
+        startMetricsExport(diagnostics, appDataDir);
+
         mAuthProvider.onInitialize();
 
         // initTapToTalk();
     }
 
+    /**
+     * Starts exporting snapshots of the default metrics registry every "metricsExportPeriodMs".
+     * Snapshots go to the local socket "metricsExportSocket" if set, else to metrics.json in the
+     * app data directory. Nothing is exported if the period is missing or 0.
+     */
+    private void startMetricsExport(JSONObject diagnostics, File appDataDir) {
+        long periodMs = diagnostics != null ? diagnostics.optLong("metricsExportPeriodMs", 0) : 0;
+        if (periodMs <= 0) return;
+
+        mMetricsExporter = new MetricsExporter(MetricsRegistry.getDefault());
+        String socketName = diagnostics.optString("metricsExportSocket", "");
+        if (!socketName.isEmpty()) {
+            mMetricsExporter.startLocalSocketExport(socketName, periodMs);
+            Log.i("startMetricsExport", "Exporting metrics to local socket " + socketName + " every " + periodMs + " ms");
+        } else {
+            File file = new File(appDataDir, sMetricsFileName);
+            mMetricsExporter.startFileExport(file, periodMs);
+            Log.i("startMetricsExport", "Exporting metrics to " + file + " every " + periodMs + " ms");
+        }
+    }
+
+    /**
+     * Streams recorded utterances to the Engine instead of the microphone, for CI runs. The
+     * "fileAudioInput" intent extra or diagnostics config names a fixture file or a directory of
+     * them; "fileAudioInputRealTime" and "fileAudioInputRepeat" set the pacing and pass count.
+     *
+     * @return The file input, or null to use the microphone
+     */
+    private FileAudioInput createFileAudioInput(JSONObject diagnostics) {
+        Intent intent = mActivity.getIntent() != null ? mActivity.getIntent() : new Intent();
+        String path = intent.getStringExtra(sFileAudioInputKey);
+        if (path == null) path = diagnostics != null ? diagnostics.optString(sFileAudioInputKey, "") : "";
+        if (path.isEmpty()) return null;
+
+        List<File> fixtures = FileAudioInput.listFixtures(new File(path));
+        if (fixtures.isEmpty()) {
+            Log.w("createFileAudioInput", "No fixtures in " + path + ", using the microphone");
+            return null;
+        }
+        boolean realTime = intent.getBooleanExtra(sFileAudioInputKey + "RealTime",
+                diagnostics == null || diagnostics.optBoolean(sFileAudioInputKey + "RealTime", true));
+        int repeatCount = intent.getIntExtra(sFileAudioInputKey + "Repeat",
+                diagnostics != null ? diagnostics.optInt(sFileAudioInputKey + "Repeat", 1) : 1);
+        FileAudioInput input = new FileAudioInput(fixtures, realTime);
+        input.setRepeatCount(repeatCount);
+        Log.i("createFileAudioInput", "Streaming " + fixtures.size() + " fixtures from " + path
+                + (realTime ? " in real time" : " unthrottled") + ", " + repeatCount + " passes");
+        return input;
+    }
+
+    /**
+     * @return The flight recorder writing to @c file, or null if it cannot be opened
+     */
+    private static FlightRecorder openFlightRecorder(File file) {
+        try {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Cannot create " + file.getParentFile());
+            }
+            FlightRecorder recorder = FlightRecorder.open(file);
+            Log.i("openFlightRecorder", "Recording log to " + file);
+            return recorder;
+        } catch (IOException e) {
+            Log.w("openFlightRecorder", "Cannot open flight recorder " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for a handler built by the startup graph and registers it with the engine
+     */
+    private <T extends PlatformInterface> T register(StartupGraph graph, StartupGraph.Node<T> node) {
+        T handler;
+        try {
+            handler = graph.await(node);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not create " + node.getName() + " platform interface", e.getCause());
+        } catch (CancellationException e) {
+            throw new RuntimeException("Could not create " + node.getName() + " platform interface: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating " + node.getName() + " platform interface");
+        }
+        if (!mEngine.registerPlatformInterface(handler)) {
+            throw new RuntimeException("Could not register " + node.getName() + " platform interface");
+        }
+        return handler;
+    }
+
     public String tapToTalk() {
         if (mAlexaClient != null && mSpeechRecognizer != null) {
             if (mAlexaClient.getConnectionStatus()
@@ -403,7 +605,8 @@ public class AsvAlexaPlugin implements Observer {
         }
     }
 
-    private ArrayList<EngineConfiguration> getEngineConfigurations(String json, File appDataDir, File certsDir, File modelsDir) {
+    private ArrayList<EngineConfiguration> getEngineConfigurations(String json, File appDataDir, File certsDir, File modelsDir,
+                                                                   LogFilter logFilter) {
         // Configure the engine
         String productDsn = mPreferences.getString(mContext.getString(R.string.preference_product_dsn), "");
         String clientId = mPreferences.getString(mContext.getString(R.string.preference_client_id), "");
@@ -440,6 +643,9 @@ public class AsvAlexaPlugin implements Observer {
                 })
         ));
 
+        // Let the Engine drop log events the logger would filter, before they cross into Java
+        configuration.addAll(Arrays.asList(logFilter.createEngineRuleConfigs(LoggerHandler.ENGINE_SINK)));
+
         String endpointConfigPath = Environment.getExternalStorageDirectory().getAbsolutePath() + "/aace.json";
         if (new File(endpointConfigPath).exists()) {
             EngineConfiguration alexaEndpointsConfig = ConfigurationFile.create(Environment.getExternalStorageDirectory().getAbsolutePath() + "/aace.json");
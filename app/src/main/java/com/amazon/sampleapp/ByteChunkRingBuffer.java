@@ -0,0 +1,141 @@
+package com.amazon.sampleapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed number of byte chunks, e.g. audio frames or encoded log lines, that overwrites its
+ * oldest chunk once full. All chunks share one preallocated array of @c capacity slots of
+ * @c maxChunkSize bytes, so adding is one copy without allocation.
+ *
+ * Index 0 is the oldest chunk. A buffer from the constructor is for one thread only. One from
+ * @c createConcurrent() locks every method, so one thread may add while others read.
+ */
+public class ByteChunkRingBuffer {
+
+    private final byte[] mData;
+    private final int[] mLengths;
+    private final int mMaxChunkSize;
+    private int mNextSlot;
+    private long mFirst; // Index of the oldest chunk since the buffer was created
+    private long mEnd; // Index of the next chunk to add
+
+    public ByteChunkRingBuffer( int capacity, int maxChunkSize ) {
+        if ( capacity <= 0 || maxChunkSize <= 0 ) {
+            throw new IllegalArgumentException( "capacity and maxChunkSize must be positive" );
+        }
+        mData = new byte[capacity * maxChunkSize];
+        mLengths = new int[capacity];
+        mMaxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * @return A buffer that one thread may add to while other threads read it
+     */
+    public static ByteChunkRingBuffer createConcurrent( int capacity, int maxChunkSize ) {
+        return new Concurrent( capacity, maxChunkSize );
+    }
+
+    public int capacity() { return mLengths.length; }
+
+    public int getMaxChunkSize() { return mMaxChunkSize; }
+
+    public int size() { return ( int ) ( mEnd - mFirst ); }
+
+    public boolean isEmpty() { return mEnd == mFirst; }
+
+    /**
+     * @return The number of chunks added since the buffer was created, including those
+     * overwritten or cleared since
+     */
+    public long getTotalAdded() { return mEnd; }
+
+    /**
+     * Copies @c length bytes of @c source from @c offset as the newest chunk.
+     *
+     * @throws IllegalArgumentException If @c length is over the maximum chunk size
+     */
+    public void add( byte[] source, int offset, int length ) {
+        if ( length < 0 || length > mMaxChunkSize ) {
+            throw new IllegalArgumentException( "chunk of " + length + " bytes, max " + mMaxChunkSize );
+        }
+        System.arraycopy( source, offset, mData, mNextSlot * mMaxChunkSize, length );
+        mLengths[mNextSlot] = length;
+        if ( ++mNextSlot == mLengths.length ) mNextSlot = 0;
+        if ( mEnd - mFirst == mLengths.length ) mFirst++;
+        mEnd++;
+    }
+
+    public int length( int index ) {
+        return mLengths[slot( checkIndex( index ) )];
+    }
+
+    /**
+     * Copies chunk @c index to @c target from @c offset.
+     *
+     * @return The length of the chunk
+     */
+    public int get( int index, byte[] target, int offset ) {
+        int slot = slot( checkIndex( index ) );
+        System.arraycopy( mData, slot * mMaxChunkSize, target, offset, mLengths[slot] );
+        return mLengths[slot];
+    }
+
+    public void clear() {
+        mFirst = mEnd;
+    }
+
+    private long checkIndex( int index ) {
+        if ( index < 0 || index >= size() ) throw new IndexOutOfBoundsException( "index " + index + ", size " + size() );
+        return mFirst + index;
+    }
+
+    private int slot( long index ) {
+        return ( int ) ( index % mLengths.length );
+    }
+
+    /**
+     * Copies the chunks, oldest first.
+     */
+    public List<byte[]> snapshot() {
+        List<byte[]> snapshot = new ArrayList<>( size() );
+        for ( long index = mFirst; index < mEnd; index++ ) {
+            int slot = slot( index );
+            snapshot.add( Arrays.copyOfRange( mData, slot * mMaxChunkSize, slot * mMaxChunkSize + mLengths[slot] ) );
+        }
+        return snapshot;
+    }
+
+    // The lock is uncontended except while a reader copies a snapshot
+    private static class Concurrent extends ByteChunkRingBuffer {
+
+        Concurrent( int capacity, int maxChunkSize ) {
+            super( capacity, maxChunkSize );
+        }
+
+        @Override
+        public synchronized int size() { return super.size(); }
+
+        @Override
+        public synchronized boolean isEmpty() { return super.isEmpty(); }
+
+        @Override
+        public synchronized long getTotalAdded() { return super.getTotalAdded(); }
+
+        @Override
+        public synchronized void add( byte[] source, int offset, int length ) { super.add( source, offset, length ); }
+
+        @Override
+        public synchronized int length( int index ) { return super.length( index ); }
+
+        @Override
+        public synchronized int get( int index, byte[] target, int offset ) { return super.get( index, target, offset ); }
+
+        @Override
+        public synchronized void clear() { super.clear(); }
+
+        @Override
+        public synchronized List<byte[]> snapshot() { return super.snapshot(); }
+    }
+}
@@ -73,7 +73,7 @@ public class FileUtils {
         if (!destFile.exists() || force) {
             if (destFile.getParentFile().exists() || destFile.getParentFile().mkdirs()) {
                 try (OutputStream os = new FileOutputStream(destFile)) {
-                    byte[] buf = new byte[1024];
+                    byte[] buf = new byte[64 * 1024];
                     int len;
                     while ((len = srcInputStream.read(buf)) > 0) {
                         os.write(buf, 0, len);
@@ -0,0 +1,98 @@
+package com.amazon.sampleapp;
+
+/**
+ * Fixed capacity sequence of @c int values that overwrites its oldest value once full, e.g.
+ * for a history of sizes or levels. Values are stored unboxed and adding is O(1) without allocation.
+ *
+ * Index 0 is the oldest value. A buffer from the constructor is for one thread only. One from
+ * @c createConcurrent() locks every method, so one thread may add while others read.
+ */
+public class IntRingBuffer {
+
+    private final int[] mValues;
+    private int mNextSlot;
+    private long mFirst; // Index of the oldest value since the buffer was created
+    private long mEnd; // Index of the next value to add
+
+    public IntRingBuffer( int capacity ) {
+        if ( capacity <= 0 ) throw new IllegalArgumentException( "capacity must be positive" );
+        mValues = new int[capacity];
+    }
+
+    /**
+     * @return A buffer that one thread may add to while other threads read it
+     */
+    public static IntRingBuffer createConcurrent( int capacity ) {
+        return new Concurrent( capacity );
+    }
+
+    public int capacity() { return mValues.length; }
+
+    public int size() { return ( int ) ( mEnd - mFirst ); }
+
+    public boolean isEmpty() { return mEnd == mFirst; }
+
+    /**
+     * @return The number of values added since the buffer was created, including those
+     * overwritten or cleared since
+     */
+    public long getTotalAdded() { return mEnd; }
+
+    public void add( int value ) {
+        mValues[mNextSlot] = value;
+        if ( ++mNextSlot == mValues.length ) mNextSlot = 0;
+        if ( mEnd - mFirst == mValues.length ) mFirst++;
+        mEnd++;
+    }
+
+    public int get( int index ) {
+        if ( index < 0 || index >= size() ) throw new IndexOutOfBoundsException( "index " + index + ", size " + size() );
+        return mValues[slot( mFirst + index )];
+    }
+
+    public void clear() {
+        mFirst = mEnd;
+    }
+
+    private int slot( long index ) {
+        return ( int ) ( index % mValues.length );
+    }
+
+    /**
+     * Copies the values, oldest first.
+     */
+    public int[] snapshot() {
+        int[] copy = new int[size()];
+        for ( int i = 0; i < copy.length; i++ ) copy[i] = mValues[slot( mFirst + i )];
+        return copy;
+    }
+
+    // The lock is uncontended except while a reader copies a snapshot
+    private static class Concurrent extends IntRingBuffer {
+
+        Concurrent( int capacity ) {
+            super( capacity );
+        }
+
+        @Override
+        public synchronized int size() { return super.size(); }
+
+        @Override
+        public synchronized boolean isEmpty() { return super.isEmpty(); }
+
+        @Override
+        public synchronized long getTotalAdded() { return super.getTotalAdded(); }
+
+        @Override
+        public synchronized void add( int value ) { super.add( value ); }
+
+        @Override
+        public synchronized int get( int index ) { return super.get( index ); }
+
+        @Override
+        public synchronized void clear() { super.clear(); }
+
+        @Override
+        public synchronized int[] snapshot() { return super.snapshot(); }
+    }
+}
@@ -0,0 +1,131 @@
+package com.amazon.sampleapp;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fixed capacity list that overwrites its oldest element once full. Adding is O(1) and
+ * allocates nothing, unlike shifting an ArrayList down on every add.
+ *
+ * Index 0 is the oldest element. A buffer from the constructor is for one thread only. One
+ * from @c createConcurrent() locks every method, so one thread may add while others read;
+ * iterating it is still only safe on the adding thread, other threads iterate a @c snapshot().
+ */
+public class RingBuffer<T> extends AbstractList<T> {
+
+    private final Object[] mElements;
+    private int mNextSlot;
+    private long mFirst; // Index of the oldest element since the buffer was created
+    private long mEnd; // Index of the next element to add
+
+    public RingBuffer( int capacity ) {
+        if ( capacity <= 0 ) throw new IllegalArgumentException( "capacity must be positive" );
+        mElements = new Object[capacity];
+    }
+
+    /**
+     * @return A buffer that one thread may add to while other threads read it
+     */
+    public static <T> RingBuffer<T> createConcurrent( int capacity ) {
+        return new Concurrent<>( capacity );
+    }
+
+    public int capacity() { return mElements.length; }
+
+    @Override
+    public int size() { return ( int ) ( mEnd - mFirst ); }
+
+    /**
+     * @return The number of elements added since the buffer was created, including those
+     * overwritten or cleared since
+     */
+    public long getTotalAdded() { return mEnd; }
+
+    @Override
+    public boolean add( T element ) {
+        mElements[mNextSlot] = element;
+        if ( ++mNextSlot == mElements.length ) mNextSlot = 0;
+        if ( mEnd - mFirst == mElements.length ) mFirst++;
+        mEnd++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll( Collection<? extends T> elements ) {
+        for ( T element : elements ) add( element );
+        return !elements.isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public T get( int index ) {
+        if ( index < 0 || index >= size() ) throw new IndexOutOfBoundsException( "index " + index + ", size " + size() );
+        return ( T ) mElements[slot( mFirst + index )];
+    }
+
+    /**
+     * @return The newest element, or @c null if empty
+     */
+    public T peekLast() {
+        return isEmpty() ? null : get( size() - 1 );
+    }
+
+    @Override
+    public void clear() {
+        for ( long index = mFirst; index < mEnd; index++ ) mElements[slot( index )] = null;
+        mFirst = mEnd;
+        modCount++;
+    }
+
+    private int slot( long index ) {
+        return ( int ) ( index % mElements.length );
+    }
+
+    /**
+     * Copies the elements, oldest first.
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<T> snapshot() {
+        List<T> snapshot = new ArrayList<>( size() );
+        for ( long index = mFirst; index < mEnd; index++ ) snapshot.add( ( T ) mElements[slot( index )] );
+        return snapshot;
+    }
+
+    // The lock is uncontended except while a reader copies a snapshot
+    private static class Concurrent<T> extends RingBuffer<T> {
+
+        Concurrent( int capacity ) {
+            super( capacity );
+        }
+
+        @Override
+        public synchronized int size() { return super.size(); }
+
+        @Override
+        public synchronized boolean isEmpty() { return super.isEmpty(); }
+
+        @Override
+        public synchronized long getTotalAdded() { return super.getTotalAdded(); }
+
+        @Override
+        public synchronized boolean add( T element ) { return super.add( element ); }
+
+        @Override
+        public synchronized boolean addAll( Collection<? extends T> elements ) { return super.addAll( elements ); }
+
+        @Override
+        public synchronized T get( int index ) { return super.get( index ); }
+
+        @Override
+        public synchronized T peekLast() { return super.peekLast(); }
+
+        @Override
+        public synchronized void clear() { super.clear(); }
+
+        @Override
+        public synchronized List<T> snapshot() { return super.snapshot(); }
+    }
+}
@@ -0,0 +1,282 @@
+package com.amazon.sampleapp;
+
+import android.util.Log;
+
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Runs startup steps as a dependency graph, e.g. the construction of platform interface handlers.
+ *
+ * Each step runs once all steps it depends on have succeeded, on a bounded pool of threads, so
+ * independent steps run in parallel. Steps that must run on the calling thread, e.g. because
+ * they create an android.os.Handler for its Looper, are added with @c addOnCallerThread() and
+ * run inside @c await(). The caller consumes the results in whatever order it needs with
+ * @c await(). When a step fails every step depending on it is cancelled without running.
+ *
+ * @c finish() cancels the steps not started yet, stops the pool and logs the time each step
+ * waited and ran. As each step completes its run time is also set once in the default
+ * @c MetricsRegistry as the gauge "startup.<step>Ms".
+ */
+public class StartupGraph {
+    private static final String TAG = StartupGraph.class.getSimpleName();
+
+    public enum State { WAITING, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    /**
+     * One step of the graph, and its result once it has run
+     */
+    public class Node<T> implements Runnable {
+        private final String mName;
+        private final Callable<T> mStep;
+        private final boolean mOnCallerThread;
+        private final List<Node<?>> mDependents = new ArrayList<>();
+        private int mPendingDependencies;
+        private volatile State mState = State.WAITING;
+        private volatile T mValue;
+        private volatile Throwable mError;
+        private long mReadyNanos;
+        private long mStartNanos;
+        private long mEndNanos;
+
+        Node(String name, Callable<T> step, boolean onCallerThread) {
+            mName = name;
+            mStep = step;
+            mOnCallerThread = onCallerThread;
+        }
+
+        public String getName() { return mName; }
+
+        public State getState() { return mState; }
+
+        /**
+         * @return The result of the step. For use in the steps depending on this one, which
+         * only run once it has succeeded, or after @c await().
+         * @throws IllegalStateException If the step has not succeeded
+         */
+        public T get() {
+            if (mState != State.SUCCEEDED) {
+                throw new IllegalStateException(mName + " is " + mState);
+            }
+            return mValue;
+        }
+
+        /**
+         * @return Why the step failed or was cancelled, or @c null
+         */
+        public Throwable getError() { return mError; }
+
+        @Override
+        public void run() {
+            synchronized (StartupGraph.this) {
+                if (mState != State.WAITING) return; // Cancelled while queued
+                mState = State.RUNNING;
+                mStartNanos = System.nanoTime();
+            }
+            try {
+                complete(this, mStep.call(), null);
+            } catch (Throwable e) {
+                complete(this, null, e);
+            }
+        }
+
+        private boolean isDone() {
+            return mState != State.WAITING && mState != State.RUNNING;
+        }
+    }
+
+    private static final Runnable WAKE_UP = new Runnable() {
+        @Override
+        public void run() {}
+    };
+
+    private final List<Node<?>> mNodes = new ArrayList<>();
+    private final ExecutorService mExecutor;
+    // Steps to run on the calling thread, and WAKE_UP whenever a step completes
+    private final LinkedBlockingQueue<Runnable> mCallerQueue = new LinkedBlockingQueue<>();
+    private boolean mStarted;
+    private long mStartNanos;
+
+    /**
+     * @param threads The number of steps that may run at once, besides the calling thread
+     */
+    public StartupGraph(int threads) {
+        mExecutor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG + "-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Adds a step to run on the pool once @c dependencies have succeeded
+     */
+    public <T> Node<T> add(String name, Callable<T> step, Node<?>... dependencies) {
+        return add(new Node<>(name, step, false), dependencies);
+    }
+
+    /**
+     * Adds a step to run on the thread calling @c await() once @c dependencies have succeeded
+     */
+    public <T> Node<T> addOnCallerThread(String name, Callable<T> step, Node<?>... dependencies) {
+        return add(new Node<>(name, step, true), dependencies);
+    }
+
+    private synchronized <T> Node<T> add(Node<T> node, Node<?>... dependencies) {
+        if (mStarted) throw new IllegalStateException("Cannot add " + node.mName + " once started");
+        for (Node<?> dependency : dependencies) {
+            dependency.mDependents.add(node);
+            node.mPendingDependencies++;
+        }
+        mNodes.add(node);
+        return node;
+    }
+
+    /**
+     * Starts the steps that depend on nothing
+     */
+    public void start() {
+        List<Node<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            if (mStarted) return;
+            mStarted = true;
+            mStartNanos = System.nanoTime();
+            for (Node<?> node : mNodes) {
+                if (node.mPendingDependencies == 0) ready.add(node);
+            }
+        }
+        schedule(ready);
+    }
+
+    private void schedule(List<Node<?>> nodes) {
+        for (Node<?> node : nodes) {
+            synchronized (this) {
+                node.mReadyNanos = System.nanoTime();
+            }
+            if (node.mOnCallerThread) {
+                mCallerQueue.offer(node);
+                continue;
+            }
+            try {
+                mExecutor.execute(node);
+            } catch (RejectedExecutionException e) {
+                complete(node, null, e);
+            }
+        }
+    }
+
+    private <T> void complete(Node<T> node, T value, Throwable error) {
+        List<Node<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            node.mEndNanos = System.nanoTime();
+            if (node.mStartNanos != 0) {
+                // Before the state changes, so the gauge is set by the time await() returns
+                MetricsRegistry.getDefault().gauge("startup." + node.mName + "Ms")
+                        .set(TimeUnit.NANOSECONDS.toMillis(node.mEndNanos - node.mStartNanos));
+            }
+            if (error == null) {
+                node.mValue = value;
+                node.mState = State.SUCCEEDED;
+                for (Node<?> dependent : node.mDependents) {
+                    if (dependent.mState == State.WAITING && --dependent.mPendingDependencies == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            } else {
+                node.mError = error;
+                node.mState = State.FAILED;
+                Log.e(TAG, node.mName + " failed", error);
+                cancelDependents(node, node.mName + " failed");
+            }
+        }
+        schedule(ready);
+        mCallerQueue.offer(WAKE_UP);
+    }
+
+    // Must hold the lock
+    private void cancelDependents(Node<?> node, String reason) {
+        for (Node<?> dependent : node.mDependents) {
+            if (dependent.mState == State.WAITING) {
+                dependent.mState = State.CANCELLED;
+                dependent.mError = new CancellationException(reason);
+                cancelDependents(dependent, reason);
+            }
+        }
+    }
+
+    /**
+     * Waits for a step, running the steps for the calling thread meanwhile. Starts the graph
+     * if needed.
+     *
+     * @return The result of the step
+     * @throws ExecutionException If the step failed, with its exception as the cause
+     * @throws CancellationException If the step was cancelled
+     */
+    public <T> T await(Node<T> node) throws ExecutionException, InterruptedException {
+        start();
+        while (!node.isDone()) {
+            mCallerQueue.take().run();
+        }
+        if (node.mState == State.FAILED) throw new ExecutionException(node.mName + " failed", node.mError);
+        if (node.mState == State.CANCELLED) throw (CancellationException) node.mError;
+        return node.mValue;
+    }
+
+    /**
+     * Cancels the steps not started yet, stops the pool and logs the timings. Steps already
+     * running are left to complete on their own.
+     */
+    public void finish() {
+        synchronized (this) {
+            for (Node<?> node : mNodes) {
+                if (node.mState == State.WAITING) {
+                    node.mState = State.CANCELLED;
+                    node.mError = new CancellationException("Startup finished");
+                }
+            }
+        }
+        mExecutor.shutdown();
+        Log.i(TAG, getReport());
+    }
+
+    /**
+     * @return One line per step with its state, and the time it waited to run once ready and
+     * the time it ran
+     */
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder("Startup took ")
+                .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStartNanos)).append(" ms");
+        for (Node<?> node : mNodes) {
+            report.append("\n  ").append(node.mName).append(' ').append(node.mState);
+            if (node.mStartNanos != 0) {
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(node.mStartNanos - node.mReadyNanos);
+                report.append(", waited ").append(waitMs).append(" ms");
+            }
+            if (node.mStartNanos != 0 && node.mEndNanos != 0) {
+                long runMs = TimeUnit.NANOSECONDS.toMillis(node.mEndNanos - node.mStartNanos);
+                report.append(", ran ").append(runMs).append(" ms");
+            }
+            if (node.mError != null) {
+                report.append(": ").append(node.mError);
+            }
+        }
+        return report.toString();
+    }
+}
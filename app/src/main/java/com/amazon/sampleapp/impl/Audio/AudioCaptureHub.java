@@ -0,0 +1,394 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.app.Activity;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Owns the microphone and shares it between the @c AudioInputHandler channels.
+ *
+ * One capture thread reads 10 ms frames from a single @c AudioRecord, converts them to PCM 16
+ * mono @ 16 KHZ and hands each frame to every started consumer. Each consumer applies its own
+ * preprocessing, since a voice request and a call want different processing of the same audio.
+ * Consumers are reference counted: recording starts with the first one and stops with the
+ * last. Each consumer copies the frame into its own bounded queue without blocking, so a slow
+ * consumer only drops its own frames.
+ */
+public class AudioCaptureHub {
+
+    /**
+     * Receives captured frames on the capture thread.
+     */
+    interface Consumer {
+        /**
+         * @param frame The frame, between its position and limit. Must not be kept.
+         * @param timeNanos The @c SystemClock.elapsedRealtimeNanos() time the frame was captured
+         */
+        void onFrame( ByteBuffer frame, long timeNanos );
+    }
+
+    // All audio input consumers expect PCM 16 data @ 16 Khz. We divide this consumption into 10 ms
+    // chunks. It comes out at 160 samples every 10 ms to reach 16000 samples (in a second).
+    private static final int sSamplesToCollectInOneCycle = 160;
+    private static final int sBytesInEachSample = 2; // PCM 16 = 2 bytes per sample
+    private static final int sSampleRateInHz = 16000; //16 khz
+    // Capture at a native rate where possible; 16 khz capture often goes through a vendor resampler.
+    // Rates needing the same input buffer time are tried in this order.
+    private static final int[] sCaptureRatesInHz = { 48000, 44100, sSampleRateInHz };
+    private static final int sAudioFramesInBuffer = 5; // Create large enough buffer for 5 audio frames.
+    private static final long sShutdownTimeoutMs = 500;
+    private static final long sFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+    private final Activity mActivity;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final ByteBuffer mFrame =
+        ByteBuffer.allocate( sSamplesToCollectInOneCycle * sBytesInEachSample )
+            .order( ByteOrder.nativeOrder() );
+
+    // Held by the capture thread while it delivers a frame, so a removed consumer gets no more
+    private final Object mConsumersLock = new Object();
+    private final List<Consumer> mConsumers = new ArrayList<>();
+
+    // Recorded by the capture thread
+    private final LatencyHistogram mReadLatency = new LatencyHistogram();
+    private final LatencyHistogram mJitter = new LatencyHistogram();
+
+    private AudioRecord mAudioInput;
+    private int mCaptureRateInHz = sSampleRateInHz;
+    private PolyphaseResampler mResampler; // null when capturing at 16 khz
+    private MultiChannelMixer mMixer; // null when capturing from the mono microphone
+    private AudioReaderRunnable mReaderRunnable;
+    private Future<?> mReaderFuture;
+
+    public AudioCaptureHub( Activity activity ) {
+        mActivity = activity;
+        mAudioInput = createAudioInput();
+    }
+
+    /**
+     * Captures from a microphone array and mixes it down to mono with @c mixer, or goes back to
+     * the mono microphone if @c mixer is @c null. Falls back to mono capture if the device
+     * cannot open that many channels.
+     *
+     * @return @c true if capture is configured as requested; @c false if it is running or the
+     * channels could not be opened
+     */
+    public synchronized boolean setMultiChannelMixer( MultiChannelMixer mixer ) {
+        if ( isCapturing() ) {
+            return false;
+        }
+        if ( mAudioInput != null ) mAudioInput.release();
+        mMixer = mixer;
+        mAudioInput = createAudioInput();
+        if ( mAudioInput == null && mixer != null ) {
+            mMixer = null;
+            mAudioInput = createAudioInput();
+            return false;
+        }
+        return mAudioInput != null;
+    }
+
+    private AudioRecord createAudioInput() {
+        for ( int rate : getCaptureRates() ) {
+            AudioRecord audioRecord = createAudioInput( rate, getChannelCount() );
+            if ( audioRecord == null ) continue;
+            if ( audioRecord.getState() == AudioRecord.STATE_INITIALIZED ) {
+                mCaptureRateInHz = rate;
+                mResampler = rate == sSampleRateInHz ? null
+                    : new PolyphaseResampler( rate, sSampleRateInHz, getCaptureFrameSamples() );
+                if ( mMixer != null ) mMixer.prepare( rate );
+                return audioRecord;
+            }
+            audioRecord.release();
+        }
+        return null;
+    }
+
+    private AudioRecord createAudioInput( int sampleRateInHz, int channelCount ) {
+        AudioRecord audioRecord = null;
+        try {
+            int samplesInOneCycle = sampleRateInHz / 100; // 10 ms
+            int channelConfig = getChannelConfig( channelCount );
+            int minBufferSize = getMinBufferSize( sampleRateInHz, channelCount );
+            if ( minBufferSize <= 0 ) return null; // Rate not supported
+            int bufferSize = ( minBufferSize + (
+                sAudioFramesInBuffer * samplesInOneCycle * sBytesInEachSample ) ) * channelCount;
+            if ( channelCount <= 2 ) {
+                audioRecord = new AudioRecord(
+                    MediaRecorder.AudioSource.MIC, sampleRateInHz,
+                    channelConfig, AudioFormat.ENCODING_PCM_16BIT,
+                    bufferSize);
+            } else if ( Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ) {
+                // More than two channels can only be requested by index
+                audioRecord = new AudioRecord.Builder()
+                    .setAudioSource( MediaRecorder.AudioSource.MIC )
+                    .setAudioFormat( new AudioFormat.Builder()
+                        .setEncoding( AudioFormat.ENCODING_PCM_16BIT )
+                        .setSampleRate( sampleRateInHz )
+                        .setChannelIndexMask( ( 1 << channelCount ) - 1 )
+                        .build() )
+                    .setBufferSizeInBytes( bufferSize )
+                    .build();
+            }
+        } catch ( IllegalArgumentException | UnsupportedOperationException e ) {}
+        return audioRecord;
+    }
+
+    private int getChannelCount() {
+        return mMixer != null ? mMixer.getChannelCount() : 1;
+    }
+
+    // More than two channels are requested by index mask; stereo stands in for them when probing
+    private static int getChannelConfig( int channelCount ) {
+        return channelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+    }
+
+    private static int getMinBufferSize( int sampleRateInHz, int channelCount ) {
+        return AudioRecord.getMinBufferSize( sampleRateInHz, getChannelConfig( channelCount ),
+            AudioFormat.ENCODING_PCM_16BIT );
+    }
+
+    // The supported capture rates, least input buffering first. The input path only needs its
+    // smallest buffer at a rate it captures natively; a rate it resamples to needs more, so the
+    // minimum buffer time finds the microphone's own rate, which the output rate may not be.
+    private List<Integer> getCaptureRates() {
+        int channelCount = getChannelCount();
+        List<Integer> rates = new ArrayList<>();
+        List<Long> bufferTimesUs = new ArrayList<>();
+        for ( int rate : sCaptureRatesInHz ) {
+            int minBufferSize = getMinBufferSize( rate, channelCount );
+            if ( minBufferSize <= 0 ) continue; // Rate not supported
+            long bufferTimeUs = minBufferSize * 1000000L / ( ( long ) rate * channelCount * sBytesInEachSample );
+            // Insert after rates with the same buffer time to keep the preferred order
+            int index = rates.size();
+            while ( index > 0 && bufferTimesUs.get( index - 1 ) > bufferTimeUs ) index--;
+            rates.add( index, rate );
+            bufferTimesUs.add( index, bufferTimeUs );
+        }
+        return rates;
+    }
+
+    private int getCaptureFrameSamples() {
+        return mCaptureRateInHz / 100; // 10 ms
+    }
+
+    /**
+     * @return The rate audio is captured at before it is resampled to 16 khz
+     */
+    public int getCaptureRateInHz() { return mCaptureRateInHz; }
+
+    /**
+     * @return Time spent in @c AudioRecord.read() per frame
+     */
+    LatencyHistogram getReadLatency() { return mReadLatency; }
+
+    /**
+     * @return Deviation of the time between captured frames from 10 ms
+     */
+    LatencyHistogram getJitter() { return mJitter; }
+
+    public synchronized int getConsumerCount() {
+        synchronized ( mConsumersLock ) {
+            return mConsumers.size();
+        }
+    }
+
+    /**
+     * Starts delivering frames to @c consumer, starting the microphone if it is the first.
+     */
+    synchronized boolean addConsumer( Consumer consumer ) {
+        synchronized ( mConsumersLock ) {
+            if ( mConsumers.contains( consumer ) ) return true;
+        }
+        if ( !isCapturing() && !startCapture() ) {
+            return false;
+        }
+        synchronized ( mConsumersLock ) {
+            mConsumers.add( consumer );
+        }
+        return true;
+    }
+
+    /**
+     * Stops delivering frames to @c consumer, stopping the microphone if it was the last.
+     * No frame is delivered to @c consumer once this returns.
+     */
+    synchronized void removeConsumer( Consumer consumer ) {
+        boolean last;
+        synchronized ( mConsumersLock ) {
+            if ( !mConsumers.remove( consumer ) ) return;
+            last = mConsumers.isEmpty();
+        }
+        if ( last ) stopCapture();
+    }
+
+    private boolean isCapturing() {
+        return mReaderRunnable != null && mReaderRunnable.isRunning();
+    }
+
+    private boolean startCapture() {
+        if (mAudioInput == null || mAudioInput.getState() != AudioRecord.STATE_INITIALIZED) {
+            // Retry AudioRecord initialization.
+            mAudioInput = createAudioInput();
+            if ( mAudioInput == null || mAudioInput.getState() != AudioRecord.STATE_INITIALIZED ) {
+                return false;
+            }
+        }
+
+        // The previous reader must be gone before the conversion state is reset
+        if ( !awaitPreviousSession() ) {
+            return false;
+        }
+        if ( mResampler != null ) mResampler.reset();
+        if ( mMixer != null ) mMixer.reset();
+
+        // Start audio recording
+        try {
+            mAudioInput.startRecording();
+        } catch ( IllegalStateException e ) {
+            return false;
+        }
+
+        // Read recorded audio samples and pass them to the consumers
+        try {
+            mReaderRunnable = new AudioReaderRunnable();
+            mReaderFuture = mExecutor.submit( mReaderRunnable ); // Submit the audio reader thread
+        } catch ( RejectedExecutionException e ) {
+            mReaderRunnable.cancel();
+            return false;
+        }
+        return true;
+    }
+
+    private void stopCapture() {
+        // Cancel the audio reader and stop recording
+        if ( mReaderRunnable != null ) mReaderRunnable.cancel();
+        try {
+            mAudioInput.stop();
+        } catch ( IllegalStateException e ) {}
+    }
+
+    private boolean awaitPreviousSession() {
+        try {
+            if ( mReaderFuture != null ) mReaderFuture.get( sShutdownTimeoutMs, TimeUnit.MILLISECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch ( TimeoutException e ) {
+            return false;
+        } catch ( ExecutionException | CancellationException e ) {
+            // The previous session ended abnormally, but it has ended
+        }
+        return true;
+    }
+
+    //
+    // AudioReader class: AudioRecord -> consumers
+    //
+
+    private class AudioReaderRunnable implements Runnable {
+
+        private volatile boolean mRunning = true;
+        private final PolyphaseResampler mResampler = AudioCaptureHub.this.mResampler;
+        private final MultiChannelMixer mMixer = AudioCaptureHub.this.mMixer;
+        private final int mCaptureFrameSamples = getCaptureFrameSamples();
+        private final short[] mInterleaved =
+            mMixer != null ? new short[mCaptureFrameSamples * mMixer.getChannelCount()] : null;
+        private final short[] mMonoFrame = new short[sSamplesToCollectInOneCycle];
+
+        void cancel() { mRunning = false; }
+
+        boolean isRunning() { return mRunning; }
+
+        @Override
+        public void run() {
+            int frameSize = mFrame.capacity();
+            int size;
+            long readStart;
+            long lastFrameNanos = 0;
+
+            while (mRunning) {
+                readStart = SystemClock.elapsedRealtimeNanos();
+                if ( mResampler == null && mMixer == null ) {
+                    size = mAudioInput.read( mFrame.array(), 0, frameSize );
+                } else {
+                    size = readConverted( mFrame );
+                }
+                if ( size > 0 && mRunning ) {
+                    long timeNanos = SystemClock.elapsedRealtimeNanos();
+                    mReadLatency.record( timeNanos - readStart );
+                    if ( lastFrameNanos != 0 ) {
+                        mJitter.record( Math.abs( timeNanos - lastFrameNanos - sFrameIntervalNanos ) );
+                    }
+                    lastFrameNanos = timeNanos;
+                    deliver( size, timeNanos );
+                }
+            }
+        }
+
+        private void deliver( int size, long timeNanos ) {
+            synchronized ( mConsumersLock ) {
+                for ( int i = 0; i < mConsumers.size(); i++ ) {
+                    mFrame.clear();
+                    mFrame.limit( size );
+                    mConsumers.get( i ).onFrame( mFrame, timeNanos );
+                }
+            }
+        }
+
+        // Captures one 10 ms frame, mixes it down to mono and resamples it into the frame
+        private int readConverted( ByteBuffer frame ) {
+            short[] target = mResampler != null ? mResampler.inputBuffer() : mMonoFrame;
+            int offset = mResampler != null ? mResampler.inputOffset() : 0;
+            int frames;
+            if ( mMixer == null ) {
+                frames = mAudioInput.read( target, offset, mCaptureFrameSamples );
+            } else {
+                int read = mAudioInput.read( mInterleaved, 0, mInterleaved.length );
+                frames = read > 0 ? read / mMixer.getChannelCount() : read;
+                if ( frames > 0 ) mMixer.mix( mInterleaved, frames, target, offset );
+            }
+            if ( frames <= 0 ) {
+                return frames;
+            }
+            if ( mResampler != null ) {
+                return mResampler.process( frames, frame ) * sBytesInEachSample;
+            }
+            for ( int i = 0; i < frames; i++ ) {
+                frame.putShort( i * sBytesInEachSample, mMonoFrame[i] );
+            }
+            return frames * sBytesInEachSample;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer/single-consumer ring of fixed-size audio frames.
+ *
+ * The producer fills the slot returned by @c writeSlot() in place and publishes it with
+ * @c commitWrite(). The consumer reads the slot returned by @c readSlot() in place and releases
+ * it with @c commitRead(). Neither side takes a lock or allocates.
+ *
+ * Frames live in one array, and each slot is a view that starts at its frame. The Engine takes
+ * audio as a byte[], so the consumer passes the backing array of a slot straight to @c write().
+ */
+class AudioFrameRing {
+
+    private final ByteBuffer mBuffer;
+    private final ByteBuffer[] mSlots;
+    private final int[] mFrameLengths;
+    private final long[] mFrameTimes;
+    private final int mFrameSize;
+    private final int mFrameCount;
+
+    // Monotonic frame counters. Only the consumer advances mHead, only the producer advances mTail.
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+
+    private volatile Thread mWaiter;
+
+    AudioFrameRing( int frameCount, int frameSize ) {
+        mFrameCount = frameCount;
+        mFrameSize = frameSize;
+        mBuffer = ByteBuffer.allocate( frameCount * frameSize ).order( ByteOrder.nativeOrder() );
+        mSlots = new ByteBuffer[frameCount];
+        for ( int i = 0; i < frameCount; i++ ) {
+            ByteBuffer view = mBuffer.duplicate();
+            view.position( i * frameSize );
+            view.limit( ( i + 1 ) * frameSize );
+            mSlots[i] = view.slice().order( ByteOrder.nativeOrder() );
+        }
+        mFrameLengths = new int[frameCount];
+        mFrameTimes = new long[frameCount];
+    }
+
+    int frameSize() { return mFrameSize; }
+
+    int capacity() { return mFrameCount; }
+
+    int size() { return ( int ) ( mTail.get() - mHead.get() ); }
+
+    boolean isEmpty() { return mTail.get() == mHead.get(); }
+
+    //
+    // Producer side
+    //
+
+    /**
+     * @return The next free slot, or @c null if the ring is full
+     */
+    ByteBuffer writeSlot() {
+        long tail = mTail.get();
+        if ( tail - mHead.get() >= mFrameCount ) return null;
+        return mSlots[( int ) ( tail % mFrameCount )];
+    }
+
+    /**
+     * Publishes the slot previously returned by @c writeSlot() holding @c length bytes.
+     *
+     * @param timeNanos The capture time of the last sample in the slot
+     */
+    void commitWrite( int length, long timeNanos ) {
+        long tail = mTail.get();
+        int slot = ( int ) ( tail % mFrameCount );
+        mFrameLengths[slot] = length;
+        mFrameTimes[slot] = timeNanos;
+        mTail.lazySet( tail + 1 );
+        Thread waiter = mWaiter;
+        if ( waiter != null ) LockSupport.unpark( waiter );
+    }
+
+    //
+    // Consumer side
+    //
+
+    /**
+     * Blocks the consumer until a frame is available or the timeout elapses.
+     *
+     * @return @c true if a frame is available to read
+     */
+    boolean awaitFrame( long timeoutNanos ) {
+        if ( !isEmpty() ) return true;
+        mWaiter = Thread.currentThread();
+        try {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while ( isEmpty() ) {
+                long remaining = deadline - System.nanoTime();
+                if ( remaining <= 0 || Thread.interrupted() ) return false;
+                LockSupport.parkNanos( this, remaining );
+            }
+            return true;
+        } finally {
+            mWaiter = null;
+        }
+    }
+
+    /**
+     * @return The oldest published slot, or @c null if the ring is empty
+     */
+    ByteBuffer readSlot() {
+        long head = mHead.get();
+        if ( head == mTail.get() ) return null;
+        return mSlots[( int ) ( head % mFrameCount )];
+    }
+
+    /**
+     * @return The number of valid bytes in the slot returned by @c readSlot()
+     */
+    int readLength() {
+        return mFrameLengths[( int ) ( mHead.get() % mFrameCount )];
+    }
+
+    /**
+     * @return The capture time recorded for the slot returned by @c readSlot()
+     */
+    long readTimestamp() {
+        return mFrameTimes[( int ) ( mHead.get() % mFrameCount )];
+    }
+
+    /**
+     * Releases the slot returned by @c readSlot() back to the producer.
+     */
+    void commitRead() {
+        mHead.lazySet( mHead.get() + 1 );
+    }
+
+    /**
+     * Discards all frames. Only safe while neither the producer nor the consumer is running.
+     */
+    void clear() {
+        mHead.set( mTail.get() );
+    }
+}
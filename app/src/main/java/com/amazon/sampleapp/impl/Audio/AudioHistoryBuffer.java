@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-size history of the most recently captured PCM 16 mono samples.
+ *
+ * Every sample gets a monotonic index, counted from the first sample appended. The buffer also
+ * records the capture time of its newest sample, so a timestamp from a keyword spotter can be
+ * mapped to a sample index and the audio from that point replayed.
+ *
+ * Only one thread may append. Other threads may call @c indexAt() and @c oldestIndex().
+ */
+class AudioHistoryBuffer {
+
+    private static final int sBytesPerSample = 2;
+
+    private final ByteBuffer mBuffer;
+    private final ByteBuffer mSource; // Position and limit select the bytes to copy in
+    private final int mCapacitySamples;
+    private final int mSampleRateInHz;
+
+    // Guarded by this, so readers see a consistent index and timestamp pair
+    private long mTotalSamples;
+    private long mNewestTimeNanos;
+
+    AudioHistoryBuffer( int sampleRateInHz, int historyMs ) {
+        mSampleRateInHz = sampleRateInHz;
+        mCapacitySamples = sampleRateInHz / 1000 * historyMs;
+        mBuffer = ByteBuffer.allocate( mCapacitySamples * sBytesPerSample )
+            .order( ByteOrder.nativeOrder() );
+        mSource = mBuffer.duplicate();
+    }
+
+    ByteBuffer buffer() { return mBuffer; }
+
+    int capacityBytes() { return mCapacitySamples * sBytesPerSample; }
+
+    /**
+     * @return The byte offset in @c buffer() of the sample at @c index
+     */
+    int byteOffset( long index ) {
+        return ( int ) ( index % mCapacitySamples ) * sBytesPerSample;
+    }
+
+    /**
+     * Appends @c length bytes from the start of @c frame. The position and limit of @c frame
+     * are used for the copy and reset afterwards.
+     *
+     * @param endTimeNanos The @c SystemClock.elapsedRealtimeNanos() time of the last sample in the frame
+     */
+    void append( ByteBuffer frame, int length, long endTimeNanos ) {
+        int samples = length / sBytesPerSample;
+        long total = totalSamples();
+        int tail = byteOffset( total );
+        int first = Math.min( samples * sBytesPerSample, capacityBytes() - tail );
+        copyIn( frame, 0, tail, first );
+        copyIn( frame, first, 0, samples * sBytesPerSample - first );
+        synchronized ( this ) {
+            mTotalSamples = total + samples;
+            mNewestTimeNanos = endTimeNanos;
+        }
+    }
+
+    private void copyIn( ByteBuffer frame, int offset, int target, int length ) {
+        if ( length <= 0 ) return;
+        mSource.clear();
+        mSource.position( target );
+        frame.limit( offset + length );
+        frame.position( offset );
+        mSource.put( frame );
+        frame.clear();
+    }
+
+    /**
+     * @return The index one past the newest sample
+     */
+    synchronized long totalSamples() { return mTotalSamples; }
+
+    /**
+     * @return The index of the oldest sample still held
+     */
+    synchronized long oldestIndex() { return Math.max( 0, mTotalSamples - mCapacitySamples ); }
+
+    /**
+     * Maps a @c SystemClock.elapsedRealtimeNanos() timestamp to a sample index, clamped to the
+     * samples currently held.
+     */
+    synchronized long indexAt( long timeNanos ) {
+        long samplesAgo = ( mNewestTimeNanos - timeNanos ) * mSampleRateInHz / 1000000000L;
+        long index = mTotalSamples - Math.max( 0, samplesAgo );
+        return Math.max( Math.max( 0, mTotalSamples - mCapacitySamples ), index );
+    }
+
+    /**
+     * Forgets all samples. Indexes continue from where they were.
+     */
+    synchronized void clear() {
+        mTotalSamples += mCapacitySamples;
+    }
+}
@@ -16,118 +16,304 @@
 package com.amazon.sampleapp.impl.Audio;
 
 import android.app.Activity;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
+import android.os.SystemClock;
+import android.util.Log;
 
+import com.amazon.sampleapp.LongRingBuffer;
+import com.amazon.sampleapp.RingBuffer;
 import com.amazon.sampleapp.aace.audio.AudioInput;
+import com.amazon.sampleapp.impl.Metrics.Counter;
+import com.amazon.sampleapp.impl.Metrics.Histogram;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class AudioInputHandler extends AudioInput
+/**
+ * One Engine audio input channel fed from the shared @c AudioCaptureHub.
+ *
+ * The capture thread copies each frame into this channel's ring, and this channel's own thread
+ * writes it to the Engine. If the Engine falls behind, only this channel drops frames.
+ */
+public class AudioInputHandler extends AudioInput implements AudioCaptureHub.Consumer
 {
     private static final String sTag = "AudioInputHandler";
 
-    // All audio input consumers expect PCM 16 data @ 16 Khz. We divide this consumption into 10 ms
-    // chunks. It comes out at 160 samples every 10 ms to reach 16000 samples (in a second).
+    // Frames from the hub are PCM 16 data @ 16 Khz in 10 ms chunks of 160 samples
     private static final int sSamplesToCollectInOneCycle = 160;
     private static final int sBytesInEachSample = 2; // PCM 16 = 2 bytes per sample
     private static final int sSampleRateInHz = 16000; //16 khz
-    private static final int sAudioFramesInBuffer = 5; // Create large enough buffer for 5 audio frames.
+    private static final int sFramesInRing = 50; // Absorb up to 500 ms of engine write stalls.
+    private static final long sFrameWaitNanos = TimeUnit.MILLISECONDS.toNanos( 20 ); // 2 frames
+    private static final long sShutdownTimeoutMs = 500;
+    private static final int sHistoryMs = 3000; // Covers the keyword plus a late detection
+    private static final int sKeywordPrerollSamples = sSampleRateInHz / 2; // 500 ms before the keyword
+    private static final int sOnsetPrerollSamples = sSampleRateInHz * 3 / 10; // 300 ms before speech
+    private static final int sUtteranceHistorySize = 32;
+    private static final int sRecentFrames = 100; // 1 s of frames
 
     private final Activity mActivity;
-    private final ExecutorService mExecutor = Executors.newFixedThreadPool( 1 );
+    private final AudioCaptureHub mCaptureHub;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(); // Feeds the engine
+    private final AudioFrameRing mRing =
+        new AudioFrameRing( sFramesInRing, sSamplesToCollectInOneCycle * sBytesInEachSample );
+    // Run on the capture thread on this channel's copy of each frame
+    private final AudioProcessingChain mProcessingChain =
+        new AudioProcessingChain( sSamplesToCollectInOneCycle );
+    // Appended to by the writer thread
+    private final AudioHistoryBuffer mHistory = new AudioHistoryBuffer( sSampleRateInHz, sHistoryMs );
+
+    private AudioWriterRunnable mWriterRunnable;
+    private Future<?> mWriterFuture;
+
+    private volatile boolean mStreaming; // The engine has started audio input
+    private boolean mListening; // Keep capturing into the history while the engine is not streaming
+    private final AtomicLong mReplayFrom = new AtomicLong( -1 ); // History index to replay on start
+    private volatile long mEngineSamples; // Samples written to the engine, i.e. its stream index
+    private volatile VoiceActivityDetector mVoiceActivityDetector;
+    private final RingBuffer<UtteranceStats> mUtteranceHistory = RingBuffer.createConcurrent( sUtteranceHistorySize );
+
+    // Written by a single thread each, read from any thread
+    private volatile long mOverrunCount; // Written by the capture thread
+    private volatile long mUnderrunCount;
+    private volatile long mDroppedWriteCount;
+    private final LatencyHistogram mWriteLatency = new LatencyHistogram(); // Recorded by the writer thread
+    private final LatencyHistogram mFrameLatency = new LatencyHistogram();
+    // Capture-to-write latency of the most recent frames, in order, unlike the histograms
+    private final LongRingBuffer mRecentFrameLatency = LongRingBuffer.createConcurrent( sRecentFrames );
 
-    private AudioRecord mAudioInput;
-    private AudioReaderRunnable mReaderRunnable;
+    // Totals of all channels, for the metrics snapshot
+    private static final Counter sFramesWrittenMetric =
+        MetricsRegistry.getDefault().counter( "audio.input.framesWritten" );
+    private static final Counter sOverrunMetric = MetricsRegistry.getDefault().counter( "audio.input.overruns" );
+    private static final Counter sUnderrunMetric = MetricsRegistry.getDefault().counter( "audio.input.underruns" );
+    private static final Counter sDroppedWriteMetric =
+        MetricsRegistry.getDefault().counter( "audio.input.droppedWrites" );
+    private static final Histogram sFrameLatencyMetric = MetricsRegistry.getDefault().histogram(
+        "audio.input.frameLatencyUs", MetricsRegistry.createBuckets( 100, 1000000 ) );
 
-    public AudioInputHandler(  Activity activity) {
+    public AudioInputHandler( Activity activity, AudioCaptureHub captureHub ) {
         mActivity = activity;
-        mAudioInput = createAudioInput();
+        mCaptureHub = captureHub;
     }
 
-    private AudioRecord createAudioInput() {
-        AudioRecord audioRecord = null;
-        try {
-            int minBufferSize = AudioRecord.getMinBufferSize(
-                sSampleRateInHz,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT);
-            int bufferSize = minBufferSize + (
-                sAudioFramesInBuffer * sSamplesToCollectInOneCycle * sBytesInEachSample);
-            audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.MIC, sSampleRateInHz,
-                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
-                bufferSize);
-        } catch ( IllegalArgumentException e ) {}
-        return audioRecord;
+    public AudioCaptureHub getCaptureHub() { return mCaptureHub; }
+
+    /**
+     * @return The preprocessing applied to this channel's audio before it is written to the
+     * engine. Empty unless stages are set.
+     */
+    public AudioProcessingChain getProcessingChain() { return mProcessingChain; }
+
+    @Override
+    public synchronized boolean startAudioInput() {
+        mStreaming = true;
+        if ( !startCapture() ) {
+            mStreaming = false;
+            return false;
+        }
+        return true;
     }
 
     @Override
-    public boolean startAudioInput() {
-        if (mAudioInput == null) {
+    public synchronized boolean stopAudioInput() {
+        mStreaming = false;
+        mReplayFrom.set( -1 );
+        return mListening || stopCapture();
+    }
+
+    /**
+     * Keeps the microphone open while the engine is not streaming, so the last few seconds of
+     * audio are always available to @c prepareKeywordReplay().
+     */
+    public synchronized boolean startListening() {
+        mListening = true;
+        if ( !startCapture() ) {
+            mListening = false;
             return false;
         }
+        return true;
+    }
 
-        if (mAudioInput.getState() != AudioRecord.STATE_INITIALIZED) {
-            // Retry AudioRecord initialization.
-            mAudioInput = createAudioInput();
-            if ( mAudioInput.getState() != AudioRecord.STATE_INITIALIZED ) {
-                return false;
-            }
+    public synchronized boolean stopListening() {
+        mListening = false;
+        return mStreaming || stopCapture();
+    }
+
+    /**
+     * Maps a keyword found by a keyword spotter to engine sample indices for
+     * @c SpeechRecognizer.startCapture(), and arranges for the audio from shortly before the
+     * keyword to be written to the engine ahead of live audio once it starts audio input.
+     *
+     * @param  beginTimeNanos The @c SystemClock.elapsedRealtimeNanos() time the keyword began
+     * @param  endTimeNanos The @c SystemClock.elapsedRealtimeNanos() time the keyword ended
+     * @return The keyword begin and end indices, or @c null if the keyword is not in the history
+     * or the engine is already streaming
+     */
+    public synchronized long[] prepareKeywordReplay( long beginTimeNanos, long endTimeNanos ) {
+        if ( mStreaming || !isCapturing() ) {
+            return null;
+        }
+        long begin = mHistory.indexAt( beginTimeNanos );
+        long end = mHistory.indexAt( endTimeNanos );
+        if ( end <= begin ) {
+            return null;
         }
+        long from = Math.max( mHistory.oldestIndex(), begin - sKeywordPrerollSamples );
+        mReplayFrom.set( from );
+        long start = mEngineSamples;
+        return new long[] { start + begin - from, start + end - from };
+    }
 
-        return startRecording();
+    /**
+     * Enables voice activity detection on the audio written to the engine, starting with the
+     * next @c startAudioInput(). Long silences before and after speech are not written, and
+     * @c detector reports the end of speech. Pass @c null to disable.
+     */
+    public void setVoiceActivityDetector( VoiceActivityDetector detector ) {
+        mVoiceActivityDetector = detector;
     }
 
-    @Override
-    public boolean stopAudioInput() {
-        if (mAudioInput == null) {
+    /**
+     * @return The statistics of the last capture session run with voice activity detection,
+     * or @c null if there has been none
+     */
+    public UtteranceStats getLastUtteranceStats() { return mUtteranceHistory.peekLast(); }
+
+    /**
+     * @return The statistics of the recent capture sessions run with voice activity detection,
+     * oldest first
+     */
+    public List<UtteranceStats> getUtteranceHistory() { return mUtteranceHistory.snapshot(); }
+
+    /**
+     * @return The time from capture to the end of the Engine write of each of the most recent
+     * frames written directly, oldest first, in nanoseconds
+     */
+    public long[] getRecentFrameLatencies() { return mRecentFrameLatency.snapshot(); }
+
+    public void cancelKeywordReplay() {
+        mReplayFrom.set( -1 );
+    }
+
+    private boolean isCapturing() {
+        return mWriterRunnable != null && mWriterRunnable.isRunning();
+    }
+
+    private boolean startCapture() {
+        if ( isCapturing() ) {
+            return true;
+        }
+
+        // The ring is single-producer/single-consumer, so the previous session must be gone
+        if ( !awaitPreviousSession() ) {
             return false;
         }
+        mRing.clear();
+        mHistory.clear(); // Audio from before the gap must not be replayed
+        mProcessingChain.reset(); // Not a consumer yet, so no frame is being processed
 
-        // Cancel the audio reader and stop recording
-        if (mReaderRunnable != null) mReaderRunnable.cancel();
+        // Pass frames from the ring to the engine, then start receiving frames from the hub
         try {
-            mAudioInput.stop();
-        } catch (IllegalStateException e) {
+            mWriterRunnable = new AudioWriterRunnable();
+            mWriterFuture = mExecutor.submit( mWriterRunnable );
+        } catch ( RejectedExecutionException e ) {
+            mWriterRunnable.cancel();
             return false;
         }
+        if ( !mCaptureHub.addConsumer( this ) ) {
+            mWriterRunnable.cancel();
+            return false;
+        }
+        return true;
+    }
 
+    private boolean stopCapture() {
+        mCaptureHub.removeConsumer( this );
+        if ( mWriterRunnable != null ) mWriterRunnable.cancel();
         return true;
     }
 
-    private boolean startRecording() {
-        if (mReaderRunnable != null && mReaderRunnable.isRunning()) {
-            return false;
-        } else {
-            // Start audio recording
-            try {
-                mAudioInput.startRecording();
-            } catch ( IllegalStateException e ) {
-                return false;
-            }
+    //
+    // AudioCaptureHub.Consumer: capture thread -> ring
+    //
 
-            // Read recorded audio samples and pass to engine
-            try {
-                mExecutor.submit( mReaderRunnable = new AudioReaderRunnable() ); // Submit the audio reader thread
-            } catch ( RejectedExecutionException e) {
-                return false;
-            }
-            return true;
+    @Override
+    public void onFrame( ByteBuffer frame, long timeNanos ) {
+        ByteBuffer slot = mRing.writeSlot();
+        if ( slot == null ) {
+            // Engine feed has fallen behind. Drop the frame for this channel only.
+            mOverrunCount++;
+            sOverrunMetric.increment();
+            return;
+        }
+        int length = frame.remaining();
+        slot.clear();
+        slot.put( frame );
+        slot.clear();
+        mProcessingChain.process( slot, length );
+        mRing.commitWrite( length, timeNanos );
+    }
+
+    /**
+     * @return The number of captured frames dropped because the engine feed fell behind
+     */
+    public long getOverrunCount() { return mOverrunCount; }
+
+    /**
+     * @return The number of times the engine feed waited longer than two frames for audio
+     */
+    public long getUnderrunCount() { return mUnderrunCount; }
+
+    /**
+     * @return The number of frames the engine did not fully accept from @c write()
+     */
+    public long getDroppedWriteCount() { return mDroppedWriteCount; }
+
+    /**
+     * @return Latency, jitter and drop statistics of this channel and the shared capture thread
+     */
+    public CaptureStatsSnapshot getCaptureStats() {
+        return new CaptureStatsSnapshot( SystemClock.elapsedRealtimeNanos(),
+            mCaptureHub.getReadLatency().snapshot(), mCaptureHub.getJitter().snapshot(),
+            mWriteLatency.snapshot(), mFrameLatency.snapshot(),
+            mOverrunCount, mUnderrunCount, mDroppedWriteCount );
+    }
+
+    private boolean awaitPreviousSession() {
+        try {
+            if ( mWriterFuture != null ) mWriterFuture.get( sShutdownTimeoutMs, TimeUnit.MILLISECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch ( TimeoutException e ) {
+            return false;
+        } catch ( ExecutionException | CancellationException e ) {
+            // The previous session ended abnormally, but it has ended
         }
+        return true;
     }
 
     //
-    // AudioReader class
+    // AudioWriter class: ring -> engine
     //
 
-    private class AudioReaderRunnable implements Runnable {
+    private class AudioWriterRunnable implements Runnable {
 
-        private boolean mRunning = true;
-        private byte[] mBuffer = new byte[sSamplesToCollectInOneCycle * sBytesInEachSample];
+        private volatile boolean mRunning = true;
+        private boolean mWasStreaming;
+        private long mNextToWrite; // History index of the next sample to write to the engine
+        private long mBytesSaved;
+        private VoiceActivityDetector mDetector;
 
         void cancel() { mRunning = false; }
 
@@ -135,13 +321,103 @@ public class AudioInputHandler extends AudioInput
 
         @Override
         public void run() {
-            int size ;
+            while ( mRunning ) {
+                if ( !mRing.awaitFrame( sFrameWaitNanos ) ) {
+                    if ( mRunning ) {
+                        mUnderrunCount++;
+                        sUnderrunMetric.increment();
+                    }
+                    continue;
+                }
+                ByteBuffer slot = mRing.readSlot();
+                int length = mRing.readLength();
+                mHistory.append( slot, length, mRing.readTimestamp() );
+
+                boolean streaming = mStreaming;
+                if ( streaming && !mWasStreaming ) {
+                    startUtterance( length / sBytesInEachSample );
+                } else if ( !streaming && mWasStreaming ) {
+                    finishUtterance();
+                }
+                mWasStreaming = streaming;
+                if ( streaming ) writeFrame( slot, length, mRing.readTimestamp() );
+                mRing.commitRead();
+            }
+            if ( mWasStreaming ) finishUtterance();
+        }
+
+        private void startUtterance( int frameSamples ) {
+            long from = mReplayFrom.getAndSet( -1 );
+            // A keyword replay starts in the history, otherwise start with the current frame
+            mNextToWrite = from >= 0 ? from : mHistory.totalSamples() - frameSamples;
+            mBytesSaved = 0;
+            mDetector = mVoiceActivityDetector;
+            if ( mDetector != null ) mDetector.reset();
+        }
+
+        private void finishUtterance() {
+            if ( mDetector == null ) return;
+            mBytesSaved += ( mHistory.totalSamples() - mNextToWrite ) * sBytesInEachSample;
+            mNextToWrite = mHistory.totalSamples();
+            UtteranceStats stats = new UtteranceStats( mDetector.getSpeechMs(),
+                mDetector.getSilenceMs(), mBytesSaved, mDetector.isEndpointed() );
+            mUtteranceHistory.add( stats );
+            Log.d( sTag, "Utterance " + stats );
+        }
+
+        private void writeFrame( ByteBuffer slot, int length, long timeNanos ) {
+            long end = mHistory.totalSamples();
+            if ( mDetector != null ) {
+                mDetector.process( slot, length );
+                if ( mDetector.isSuppressing() ) {
+                    // Hold back silence, keeping only enough to replay as onset pre-roll
+                    long keepFrom = end - sOnsetPrerollSamples;
+                    if ( mNextToWrite < keepFrom ) {
+                        mBytesSaved += ( keepFrom - mNextToWrite ) * sBytesInEachSample;
+                        mNextToWrite = keepFrom;
+                    }
+                    return;
+                }
+            }
+            if ( mNextToWrite == end - length / sBytesInEachSample ) {
+                long writeStart = SystemClock.elapsedRealtimeNanos();
+                writeFully( slot, 0, length );
+                long written = SystemClock.elapsedRealtimeNanos();
+                mWriteLatency.record( written - writeStart );
+                mFrameLatency.record( written - timeNanos );
+                mRecentFrameLatency.add( written - timeNanos );
+                sFramesWrittenMetric.increment();
+                sFrameLatencyMetric.record( ( written - timeNanos ) / 1000 );
+            } else {
+                writeHistory( mNextToWrite, end );
+            }
+            mNextToWrite = end;
+        }
+
+        private void writeHistory( long from, long end ) {
+            ByteBuffer buffer = mHistory.buffer();
+            from = Math.max( from, mHistory.oldestIndex() );
+            while ( from < end ) {
+                int offset = mHistory.byteOffset( from );
+                int length = ( int ) Math.min( ( end - from ) * sBytesInEachSample,
+                    mHistory.capacityBytes() - offset );
+                writeFully( buffer, offset, length );
+                from += length / sBytesInEachSample;
+            }
+        }
 
-            while (mRunning) {
-                size = mAudioInput.read(mBuffer, 0, mBuffer.length);
-                if ( size > 0 && mRunning ) {
-                    write( mBuffer, size );
+        // write() may accept fewer bytes than offered, so keep writing the remainder
+        private void writeFully( ByteBuffer buffer, int offset, int length ) {
+            while ( length > 0 && mRunning ) {
+                long written = write( buffer.array(), buffer.arrayOffset() + offset, length );
+                if ( written <= 0 ) {
+                    mDroppedWriteCount++;
+                    sDroppedWriteMetric.increment();
+                    return;
                 }
+                mEngineSamples += written / sBytesInEachSample;
+                offset += written;
+                length -= written;
             }
         }
     }
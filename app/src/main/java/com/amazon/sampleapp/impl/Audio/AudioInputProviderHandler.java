@@ -9,7 +9,10 @@ public class AudioInputProviderHandler extends AudioInputProvider
 {
     private static final String sTag = "AudioInputProviderHandler";
 
-    private AudioInput mDefaultAudioInput = null;
+    private AudioCaptureHub mCaptureHub = null;
+    private AudioInputHandler mDefaultAudioInput = null;
+    private AudioInputHandler mCommunicationAudioInput = null;
+    private FileAudioInput mFileAudioInput = null;
     private final Activity mActivity;
 
     public AudioInputProviderHandler(  Activity activity) {
@@ -19,18 +22,53 @@ public class AudioInputProviderHandler extends AudioInputProvider
     @Override
     public AudioInput openChannel( String name, AudioInputType type )
     {
-        if( type == AudioInputType.VOICE || type == AudioInputType.COMMUNICATION ) {
+        if( type == AudioInputType.VOICE ) {
+            synchronized( this ) {
+                if( mFileAudioInput != null ) return mFileAudioInput;
+            }
             return getDefaultAudioInput();
         }
+        else if( type == AudioInputType.COMMUNICATION ) {
+            return getCommunicationAudioInput();
+        }
         else {
             return null;
         }
     }
 
-    private AudioInput getDefaultAudioInput() {
+    public synchronized AudioInputHandler getDefaultAudioInput() {
         if( mDefaultAudioInput == null ) {
-            mDefaultAudioInput = new AudioInputHandler( mActivity );
+            mDefaultAudioInput = new AudioInputHandler( mActivity, getCaptureHub() );
+            mDefaultAudioInput.getProcessingChain().setStages( new DcRemovalStage(), new HighPassStage(),
+                GainStage.createAutomatic(), new SoftLimiterStage() );
         }
         return mDefaultAudioInput;
     }
+
+    // Started and stopped independently of the voice channel, sharing the same microphone.
+    // Left unprocessed, since the communication stack applies its own gain control.
+    public synchronized AudioInputHandler getCommunicationAudioInput() {
+        if( mCommunicationAudioInput == null ) {
+            mCommunicationAudioInput = new AudioInputHandler( mActivity, getCaptureHub() );
+        }
+        return mCommunicationAudioInput;
+    }
+
+    /**
+     * Streams @c input to the engine in place of the microphone on the voice channel, or goes
+     * back to the microphone if @c input is @c null. Must be set before the engine opens the
+     * channel, i.e. before the engine is started.
+     */
+    public synchronized void setFileAudioInput( FileAudioInput input ) {
+        mFileAudioInput = input;
+    }
+
+    public synchronized FileAudioInput getFileAudioInput() { return mFileAudioInput; }
+
+    public synchronized AudioCaptureHub getCaptureHub() {
+        if( mCaptureHub == null ) {
+            mCaptureHub = new AudioCaptureHub( mActivity );
+        }
+        return mCaptureHub;
+    }
 }
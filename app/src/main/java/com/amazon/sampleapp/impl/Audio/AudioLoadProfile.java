@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import com.amazon.sampleapp.aace.audio.AudioOutputProvider.AudioOutputType;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExoPlayer buffering profiles for the output channels.
+ *
+ * Short clips start playing as soon as a fraction of a second is buffered and hold little
+ * memory, while long-form music buffers further ahead within a fixed byte cap.
+ */
+enum AudioLoadProfile {
+    //    minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs, maxBufferBytes
+    SPEECH( 2000, 10000, 250, 500, 1024 * 1024 ),
+    ALERT( 1000, 5000, 250, 1000, 512 * 1024 ),
+    MUSIC( 15000, 30000, 2500, 5000, 2 * 1024 * 1024 );
+
+    private final int mMinBufferMs;
+    private final int mMaxBufferMs;
+    private final int mBufferForPlaybackMs;
+    private final int mBufferForPlaybackAfterRebufferMs;
+    private final int mMaxBufferBytes;
+
+    AudioLoadProfile( int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                      int bufferForPlaybackAfterRebufferMs, int maxBufferBytes ) {
+        mMinBufferMs = minBufferMs;
+        mMaxBufferMs = maxBufferMs;
+        mBufferForPlaybackMs = bufferForPlaybackMs;
+        mBufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        mMaxBufferBytes = maxBufferBytes;
+    }
+
+    int getMaxBufferBytes() { return mMaxBufferBytes; }
+
+    static AudioLoadProfile forType( AudioOutputType type ) {
+        switch ( type ) {
+            case TTS:
+                return SPEECH;
+            case NOTIFICATION:
+            case ALARM:
+            case EARCON:
+            case RINGTONE:
+                return ALERT;
+            default:
+                return MUSIC;
+        }
+    }
+
+    /**
+     * @param peakBufferBytes Raised to the largest number of bytes the player has buffered
+     */
+    LoadControl createLoadControl( AtomicLong peakBufferBytes ) {
+        return new ProfiledLoadControl( this, peakBufferBytes );
+    }
+
+    //
+    // DefaultLoadControl that enforces the byte cap and records peak buffer usage
+    //
+    private static class ProfiledLoadControl extends DefaultLoadControl {
+
+        private final DefaultAllocator mAllocator;
+        private final AtomicLong mPeakBufferBytes;
+
+        ProfiledLoadControl( AudioLoadProfile profile, AtomicLong peakBufferBytes ) {
+            this( new DefaultAllocator( true, C.DEFAULT_BUFFER_SEGMENT_SIZE ), profile,
+                    peakBufferBytes );
+        }
+
+        private ProfiledLoadControl( DefaultAllocator allocator, AudioLoadProfile profile,
+                                     AtomicLong peakBufferBytes ) {
+            // Size thresholds take priority so the byte cap holds even below minBufferMs
+            super( allocator, profile.mMinBufferMs, profile.mMaxBufferMs,
+                    profile.mBufferForPlaybackMs, profile.mBufferForPlaybackAfterRebufferMs,
+                    profile.mMaxBufferBytes, false );
+            mAllocator = allocator;
+            mPeakBufferBytes = peakBufferBytes;
+        }
+
+        @Override
+        public boolean shouldContinueLoading( long bufferedDurationUs ) {
+            long allocated = mAllocator.getTotalBytesAllocated();
+            long peak = mPeakBufferBytes.get();
+            while ( allocated > peak && !mPeakBufferBytes.compareAndSet( peak, allocated ) ) {
+                peak = mPeakBufferBytes.get();
+            }
+            return super.shouldContinueLoading( bufferedDurationUs );
+        }
+    }
+}
@@ -18,6 +18,8 @@ package com.amazon.sampleapp.impl.Audio;
 import android.app.Activity;
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
 
 import com.amazon.sampleapp.aace.alexa.AuthProvider.AuthState;
 import com.amazon.sampleapp.aace.alexa.AuthProvider.AuthError;
@@ -27,12 +29,10 @@ import com.amazon.sampleapp.aace.audio.AudioStream;
 import com.amazon.sampleapp.impl.AuthProvider.AuthStateObserver;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlaybackException;
-import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.source.MediaSource;
-import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -40,16 +40,30 @@ import java.io.IOException;
 public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
 {
     private static final String sTag = AudioOutputHandler.class.getSimpleName();
-    private static final String sFileName = "alexa_media"; // Note: not thread safe
+    private static final String sFileName = "alexa_media";
 
     private final Activity mActivity;
     private final Context mContext;
     private final String mName;
     private final MediaSourceFactory mMediaSourceFactory;
+    private final AudioPlayerPool mPlayerPool;
+    private final AudioLoadProfile mLoadProfile;
+    private final PlayerEventListener mPlayerListener = new PlayerEventListener();
+    private final Object mPlayerLock = new Object();
+    private final Runnable mIdleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            releasePlayer();
+        }
+    };
+    // Acquired from the pool on prepare() and returned after the channel has been idle. Read it
+    // once into a local while holding mPlayerLock, so releasePlayer() cannot hand the player to
+    // another channel while it is being used.
     private SimpleExoPlayer mPlayer;
     private boolean mRepeating;
 
     private float mVolume = 0.5f;
+    private float mPlayerVolume = 1.0f; // Volume to apply to a newly acquired player
     private MutedState mMutedState = MutedState.UNMUTED;
 
     private Timeline.Period mPeriod;
@@ -59,38 +73,110 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
     private long mLivePausedOffset;
     private long mLiveResumedOffset;
     private boolean mNewPlayReceieved;
+    private long mPrepareTimeMs; // Time of the last prepare(), cleared once playback starts
+    private long mTimeToFirstPlayingMs;
+    private long mItemEndTimeMs; // Time the last item finished or was stopped, cleared once playback starts
+    private long mItemGapMs;
 
     public AudioOutputHandler( Activity activity,
-                               String name ) {
+                               String name,
+                               AudioPlayerPool playerPool,
+                               AudioLoadProfile loadProfile ) {
         mActivity = activity;
         mContext = activity.getApplicationContext();
         mName = name;
         mMediaSourceFactory = new MediaSourceFactory( mContext, mName );
+        mPlayerPool = playerPool;
+        mLoadProfile = loadProfile;
         mRepeating = false;
         mPeriod = new Timeline.Period();
+    }
+
+    // Must hold mPlayerLock
+    private SimpleExoPlayer initializePlayer() {
+        mPlayerPool.cancelIdle( mIdleRunnable );
+        SimpleExoPlayer player = mPlayer;
+        if ( player != null ) return player;
+        player = mPlayerPool.acquire( mLoadProfile );
+        player.addListener( mPlayerListener );
+        player.setVolume( mPlayerVolume );
+        player.setRepeatMode( Player.REPEAT_MODE_OFF );
+        player.setPlayWhenReady( false );
+        mPlayer = player;
+        return player;
+    }
+
+    // Returns the player to the pool unless the channel became active again
+    private void releasePlayer() {
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null || isPlaying() ) return;
+            mPlayer = null;
+            player.removeListener( mPlayerListener );
+            mPlayerPool.release( mLoadProfile, player );
+        }
+    }
 
-        initializePlayer();
+    private void setPlayerVolume( float volume ) {
+        synchronized ( mPlayerLock ) {
+            mPlayerVolume = volume;
+            SimpleExoPlayer player = mPlayer;
+            if ( player != null ) player.setVolume( volume );
+        }
     }
 
-    private void initializePlayer() {
-        mPlayer = ExoPlayerFactory.newSimpleInstance( mContext, new DefaultTrackSelector() );
-        mPlayer.addListener( new PlayerEventListener() );
-        mPlayer.setPlayWhenReady( false );
+    // Stops the current item while the next one is spooled or resolved
+    private void stopPlayer() {
+        synchronized ( mPlayerLock ) {
+            resetPlayer( initializePlayer() );
+        }
     }
 
-    private void resetPlayer() {
-        mPlayer.setRepeatMode( Player.REPEAT_MODE_OFF );
-        mPlayer.setPlayWhenReady( false );
-        mPlayer.stop( true );
+    // Takes a player from the pool again if it was released since stopPlayer()
+    private void preparePlayer( MediaSource mediaSource ) {
+        synchronized ( mPlayerLock ) {
+            initializePlayer().prepare( mediaSource, true, false );
+        }
+    }
+
+    private void resetPlayer( SimpleExoPlayer player ) {
+        player.setRepeatMode( Player.REPEAT_MODE_OFF );
+        player.setPlayWhenReady( false );
+        player.stop( true );
         // reset live station offsets
         mLiveResumedOffset = 0;
         mLivePausedPosition = 0;
     }
 
+    /**
+     * @return The time from the last completed prepare() to the PLAYING state, in milliseconds
+     */
+    public long getTimeToFirstPlayingMs() {
+        return mTimeToFirstPlayingMs;
+    }
+
+    /**
+     * @return The most media bytes buffered by any player using this channel's load profile
+     */
+    public long getPeakBufferBytes() {
+        return mPlayerPool.getPeakBufferBytes( mLoadProfile );
+    }
+
+    /**
+     * @return The gap between the last item finishing or being stopped and the next prepared
+     * item playing, in milliseconds
+     */
+    public long getItemGapMs() {
+        return mItemGapMs;
+    }
+
     public boolean isPlaying() {
-        return mPlayer != null && mPlayer.getPlayWhenReady()
-            && ( mPlayer.getPlaybackState() == Player.STATE_BUFFERING
-            || mPlayer.getPlaybackState() == Player.STATE_READY );
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            return player != null && player.getPlayWhenReady()
+                && ( player.getPlaybackState() == Player.STATE_BUFFERING
+                || player.getPlaybackState() == Player.STATE_READY );
+        }
     }
 
     //
@@ -99,119 +185,172 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
 
     @Override
     public boolean prepare( AudioStream stream, boolean repeating ) {
-        resetPlayer();
+        stopPlayer();
         mRepeating = repeating;
-        try ( FileOutputStream os = mContext.openFileOutput( sFileName, Context.MODE_PRIVATE ) ) {
+        mPrepareTimeMs = SystemClock.elapsedRealtime();
+
+        // A repeating stream has to be replayed from the start, so spool it to a file first.
+        // Otherwise stream it straight into the player so playback starts with the first bytes.
+        if ( repeating ) return prepareFromFile( stream );
+        try {
+            preparePlayer( mMediaSourceFactory.createAudioStreamMediaSource( stream ) );
+            return true;
+        } catch ( Exception e ) {
+            String message = e.getMessage() != null ? e.getMessage() : "";
+            mediaError( MediaError.MEDIA_ERROR_UNKNOWN, message );
+            mPlayerPool.scheduleIdle( mIdleRunnable );
+            return false;
+        }
+    }
+
+    private boolean prepareFromFile( AudioStream stream ) {
+        String fileName = sFileName + "_" + mName; // One file per channel
+        try ( FileOutputStream os = mContext.openFileOutput( fileName, Context.MODE_PRIVATE ) ) {
             byte[] buffer = new byte[4096];
             int size;
             while ( !stream.isClosed() ) {
                 while ( ( size = stream.read( buffer ) ) > 0 ) os.write( buffer, 0, size );
             }
         } catch ( IOException e ) {
+            mPlayerPool.scheduleIdle( mIdleRunnable );
             return false;
         }
 
         try {
-            Uri uri = Uri.fromFile( mContext.getFileStreamPath( sFileName ) );
-            MediaSource mediaSource = mMediaSourceFactory.createFileMediaSource( uri );
-            mPlayer.prepare( mediaSource, true, false );
+            Uri uri = Uri.fromFile( mContext.getFileStreamPath( fileName ) );
+            preparePlayer( mMediaSourceFactory.createFileMediaSource( uri ) );
             return true;
         } catch ( Exception e ) {
             String message = e.getMessage() != null ? e.getMessage() : "";
             mediaError( MediaError.MEDIA_ERROR_UNKNOWN, message );
+            mPlayerPool.scheduleIdle( mIdleRunnable );
             return false;
         }
     }
 
     @Override
     public boolean prepare( String url, boolean repeating ) {
-        resetPlayer();
+        stopPlayer();
         mRepeating = repeating;
+        mPrepareTimeMs = SystemClock.elapsedRealtime();
         Uri uri = Uri.parse( url );
         try {
-            MediaSource mediaSource = mMediaSourceFactory.createHttpMediaSource( uri );
-            mPlayer.prepare( mediaSource, true, false );
+            // Resolving a playlist may block on the network, so it is done before taking the lock
+            preparePlayer( mMediaSourceFactory.createHttpMediaSource( uri ) );
             return true;
         } catch ( Exception e ) {
             String message = e.getMessage() != null ? e.getMessage() : "";
             mediaError( MediaError.MEDIA_ERROR_UNKNOWN, message );
+            mPlayerPool.scheduleIdle( mIdleRunnable );
             return false;
         }
     }
 
     @Override
     public boolean play() {
-        mNewPlayReceieved = true; // remember new play received
-        mSavedPeriodIndex = mPlayer.getCurrentPeriodIndex(); // remember period index
-        mPlayer.setPlayWhenReady( true );
-        return true;
+        mPlayerPool.cancelIdle( mIdleRunnable );
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return false;
+            mNewPlayReceieved = true; // remember new play received
+            mSavedPeriodIndex = player.getCurrentPeriodIndex(); // remember period index
+            player.setPlayWhenReady( true );
+            return true;
+        }
     }
 
     @Override
     public boolean stop() {
-        if ( !mPlayer.getPlayWhenReady() ) {
-            // Player is already not playing. Notify Engine of stop
-            onPlaybackStopped();
-        } else mPlayer.setPlayWhenReady( false );
+        boolean stopped;
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            stopped = player == null || !player.getPlayWhenReady();
+            if ( !stopped ) player.setPlayWhenReady( false );
+        }
+        mItemEndTimeMs = SystemClock.elapsedRealtime();
+        // Player is already not playing. Notify Engine of stop
+        if ( stopped ) onPlaybackStopped();
+        mPlayerPool.scheduleIdle( mIdleRunnable );
         return true;
     }
 
     @Override
     public boolean pause() {
-        Timeline currentTimeline = mPlayer.getCurrentTimeline();
-        if( !currentTimeline.isEmpty() && mPlayer.isCurrentWindowDynamic() ) { // If pausing live station.
-            mLivePausedOffset = 0;
-            mLivePausedPosition = mPosition; // save paused position
-        }
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return false;
+            Timeline currentTimeline = player.getCurrentTimeline();
+            if( !currentTimeline.isEmpty() && player.isCurrentWindowDynamic() ) { // If pausing live station.
+                mLivePausedOffset = 0;
+                mLivePausedPosition = mPosition; // save paused position
+            }
 
-        mPlayer.setPlayWhenReady( false );
-        return true;
+            player.setPlayWhenReady( false );
+            return true;
+        }
     }
 
     @Override
     public boolean resume() {
-        Timeline currentTimeline = mPlayer.getCurrentTimeline();
-        if ( !currentTimeline.isEmpty() && mPlayer.isCurrentWindowDynamic() ) {  // If resuming live station reset to 0.
-            mPlayer.seekToDefaultPosition(); // reset player position to its default
-            mLivePausedOffset = Math.abs( mPlayer.getCurrentPosition() ); // get the new position
-            mLivePausedOffset -= currentTimeline.getPeriod(mSavedPeriodIndex, mPeriod).getPositionInWindowMs(); // adjust for window
-            mLivePausedOffset -= mLiveResumedOffset; // adjust for stopped offset
-            mLivePausedOffset -= mLivePausedPosition; // adjust for paused offset
-
-            mLivePausedPosition = 0; // reset paused position
-        }
+        mPlayerPool.cancelIdle( mIdleRunnable );
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return false;
+            Timeline currentTimeline = player.getCurrentTimeline();
+            if ( !currentTimeline.isEmpty() && player.isCurrentWindowDynamic() ) {  // If resuming live station reset to 0.
+                player.seekToDefaultPosition(); // reset player position to its default
+                mLivePausedOffset = Math.abs( player.getCurrentPosition() ); // get the new position
+                mLivePausedOffset -= currentTimeline.getPeriod(mSavedPeriodIndex, mPeriod).getPositionInWindowMs(); // adjust for window
+                mLivePausedOffset -= mLiveResumedOffset; // adjust for stopped offset
+                mLivePausedOffset -= mLivePausedPosition; // adjust for paused offset
+
+                mLivePausedPosition = 0; // reset paused position
+            }
 
-        mPlayer.setPlayWhenReady( true );
-        return true;
+            player.setPlayWhenReady( true );
+            return true;
+        }
     }
 
     @Override
     public boolean setPosition( long position ) {
-        mPlayer.seekTo( position );
-        mLiveResumedOffset -= position;
-        return true;
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return false;
+            player.seekTo( position );
+            mLiveResumedOffset -= position;
+            return true;
+        }
     }
 
     @Override
     public long getPosition() {
-        Timeline currentTimeline = mPlayer.getCurrentTimeline();
-        mPosition = Math.abs( mPlayer.getCurrentPosition() );
-        if ( !currentTimeline.isEmpty() && mPlayer.isCurrentWindowDynamic() ) {
-            if ( mLivePausedPosition == 0 ) { // not during pause
-                mPosition -= currentTimeline.getPeriod(mSavedPeriodIndex, mPeriod).getPositionInWindowMs(); // Adjust position to be relative to start of period rather than window.
-                mPosition -= mLiveResumedOffset; // Offset saved for live station stopped / played
-                mPosition -= mLivePausedOffset; // Offset saved for live station paused / resumed
-            } else{
-                return mLivePausedPosition; // the saved position during a live station paused state
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return mPosition; // Last known position
+            Timeline currentTimeline = player.getCurrentTimeline();
+            mPosition = Math.abs( player.getCurrentPosition() );
+            if ( !currentTimeline.isEmpty() && player.isCurrentWindowDynamic() ) {
+                if ( mLivePausedPosition == 0 ) { // not during pause
+                    mPosition -= currentTimeline.getPeriod(mSavedPeriodIndex, mPeriod).getPositionInWindowMs(); // Adjust position to be relative to start of period rather than window.
+                    mPosition -= mLiveResumedOffset; // Offset saved for live station stopped / played
+                    mPosition -= mLivePausedOffset; // Offset saved for live station paused / resumed
+                } else{
+                    return mLivePausedPosition; // the saved position during a live station paused state
+                }
             }
+            return mPosition;
         }
-        return mPosition;
     }
 
     @Override
     public long getDuration() {
-        long duration = mPlayer.getDuration();
-        return duration != C.TIME_UNSET ? duration : TIME_UNKNOWN;
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return TIME_UNKNOWN;
+            long duration = player.getDuration();
+            return duration != C.TIME_UNSET ? duration : TIME_UNKNOWN;
+        }
     }
 
     @Override
@@ -219,9 +358,9 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
         if( mVolume != volume ) {
             mVolume = volume;
             if ( mMutedState == MutedState.MUTED ) {
-                mPlayer.setVolume( 0 );
+                setPlayerVolume( 0 );
             } else {
-                mPlayer.setVolume( volume );
+                setPlayerVolume( volume );
             }
         }
         return true;
@@ -230,7 +369,7 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
     @Override
     public boolean mutedStateChanged( MutedState state ) {
         if( state != mMutedState ) {
-            mPlayer.setVolume( state == MutedState.MUTED ? 0 : mVolume );
+            setPlayerVolume( state == MutedState.MUTED ? 0 : mVolume );
             mMutedState = state;
         }
         return true;
@@ -243,10 +382,27 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
     private void onPlaybackStarted () {
         mediaStateChanged( MediaState.PLAYING );
 
-        if ( mNewPlayReceieved && mPlayer.isCurrentWindowDynamic() ) { // remember offset if new play for live station
-            mPlayer.seekToDefaultPosition();
-            mLiveResumedOffset += Math.abs( mPlayer.getCurrentPosition() );
-            mNewPlayReceieved = false;
+        if ( mPrepareTimeMs != 0 ) {
+            long now = SystemClock.elapsedRealtime();
+            mTimeToFirstPlayingMs = now - mPrepareTimeMs;
+            mPrepareTimeMs = 0;
+            Log.d( sTag, mName + " (" + mLoadProfile + "): time to first PLAYING "
+                    + mTimeToFirstPlayingMs + " ms, peak buffer " + getPeakBufferBytes() + " bytes" );
+            // Only a newly prepared item counts; resuming the stopped one is not a transition
+            if ( mItemEndTimeMs != 0 ) {
+                mItemGapMs = now - mItemEndTimeMs;
+                Log.d( sTag, mName + ": gap between items " + mItemGapMs + " ms" );
+            }
+        }
+        mItemEndTimeMs = 0;
+
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player != null && mNewPlayReceieved && player.isCurrentWindowDynamic() ) { // remember offset if new play for live station
+                player.seekToDefaultPosition();
+                mLiveResumedOffset += Math.abs( player.getCurrentPosition() );
+                mNewPlayReceieved = false;
+            }
         }
     }
 
@@ -255,13 +411,19 @@ public class AudioOutputHandler extends AudioOutput implements AuthStateObserver
     }
 
     private void onPlaybackFinished() {
-        if ( mRepeating ) {
-            mPlayer.seekTo( 0 );
-            mPlayer.setRepeatMode( Player.REPEAT_MODE_ONE );
-        } else {
-            mPlayer.setRepeatMode( Player.REPEAT_MODE_OFF );
-            mediaStateChanged( MediaState.STOPPED );
+        synchronized ( mPlayerLock ) {
+            SimpleExoPlayer player = mPlayer;
+            if ( player == null ) return;
+            if ( mRepeating ) {
+                player.seekTo( 0 );
+                player.setRepeatMode( Player.REPEAT_MODE_ONE );
+                return;
+            }
+            player.setRepeatMode( Player.REPEAT_MODE_OFF );
         }
+        mItemEndTimeMs = SystemClock.elapsedRealtime();
+        mediaStateChanged( MediaState.STOPPED );
+        mPlayerPool.scheduleIdle( mIdleRunnable );
     }
 
     private void onPlaybackBuffering () {
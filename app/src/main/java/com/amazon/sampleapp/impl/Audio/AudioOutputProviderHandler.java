@@ -14,6 +14,7 @@ public class AudioOutputProviderHandler extends AudioOutputProvider
     private final Activity mActivity;
 
     private HashMap<String,AudioOutput> mAudioOutputMap;
+    private final AudioPlayerPool mPlayerPool = new AudioPlayerPool();
 
     public AudioOutputProviderHandler(  Activity activity ) {
         mActivity = activity;
@@ -24,6 +25,21 @@ public class AudioOutputProviderHandler extends AudioOutputProvider
         return mAudioOutputMap.containsKey( name ) ? mAudioOutputMap.get( name ) : null;
     }
 
+    /**
+     * @return The number of ExoPlayer instances currently held by channels. Every other
+     * channel is idle and holds no player thread or renderers.
+     */
+    public int getPlayersInUse() {
+        return mPlayerPool.getPlayersInUse();
+    }
+
+    /**
+     * @return The number of ExoPlayer instances created since the provider was created
+     */
+    public int getPlayersCreated() {
+        return mPlayerPool.getPlayersCreated();
+    }
+
     @Override
     public AudioOutput openChannel( String name, AudioOutputType type )
     {
@@ -36,7 +52,8 @@ public class AudioOutputProviderHandler extends AudioOutputProvider
                 break;
 
             default:
-                audioOutputChannel = new AudioOutputHandler( mActivity, name );
+                audioOutputChannel = new AudioOutputHandler( mActivity, name, mPlayerPool,
+                        AudioLoadProfile.forType( type ) );
                 break;
         }
 
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.audio.AudioRendererEventListener;
+import com.google.android.exoplayer2.audio.MediaCodecAudioRenderer;
+import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.metadata.MetadataOutput;
+import com.google.android.exoplayer2.text.TextOutput;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of audio-only ExoPlayer instances shared by the @c AudioOutputHandler channels.
+ *
+ * Channels acquire a player on their first @c prepare() and hand it back once they have been
+ * idle for @c IDLE_TIMEOUT_MS. Returned players are kept as spares for the next channel that
+ * needs one, and spares that stay unused for another timeout are released. An idle channel
+ * therefore holds no playback thread, renderers or buffers.
+ *
+ * Players are built with the @c LoadControl of an @c AudioLoadProfile, so spares are only
+ * handed to channels using the same profile.
+ */
+class AudioPlayerPool {
+
+    static final long IDLE_TIMEOUT_MS = 60 * 1000;
+
+    private final Handler mHandler = new Handler( Looper.getMainLooper() );
+    private final RenderersFactory mRenderersFactory = new AudioRenderersFactory();
+    private final Map<AudioLoadProfile, ArrayDeque<SimpleExoPlayer>> mSparePlayers =
+            new EnumMap<>( AudioLoadProfile.class );
+    private final Map<AudioLoadProfile, AtomicLong> mPeakBufferBytes =
+            new EnumMap<>( AudioLoadProfile.class );
+    private final Runnable mReleaseSparesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            releaseSparePlayers();
+        }
+    };
+
+    private int mPlayersInUse;
+    private int mPlayersCreated;
+    private int mPlayersReleased;
+
+    AudioPlayerPool() {
+        for ( AudioLoadProfile profile : AudioLoadProfile.values() ) {
+            mSparePlayers.put( profile, new ArrayDeque<SimpleExoPlayer>() );
+            mPeakBufferBytes.put( profile, new AtomicLong() );
+        }
+    }
+
+    /**
+     * @return A player with no media, listeners or repeat mode set
+     */
+    synchronized SimpleExoPlayer acquire( AudioLoadProfile profile ) {
+        SimpleExoPlayer player = mSparePlayers.get( profile ).poll();
+        if ( player == null ) {
+            player = ExoPlayerFactory.newSimpleInstance( mRenderersFactory,
+                    new DefaultTrackSelector(),
+                    profile.createLoadControl( mPeakBufferBytes.get( profile ) ) );
+            mPlayersCreated++;
+        }
+        mPlayersInUse++;
+        return player;
+    }
+
+    /**
+     * Returns a player to the pool. The caller must have removed its listeners.
+     */
+    synchronized void release( AudioLoadProfile profile, SimpleExoPlayer player ) {
+        player.setPlayWhenReady( false );
+        player.stop( true );
+        mSparePlayers.get( profile ).push( player );
+        mPlayersInUse--;
+        mHandler.removeCallbacks( mReleaseSparesRunnable );
+        mHandler.postDelayed( mReleaseSparesRunnable, IDLE_TIMEOUT_MS );
+    }
+
+    /**
+     * Runs @c runnable on the pool thread once @c IDLE_TIMEOUT_MS has elapsed.
+     */
+    void scheduleIdle( Runnable runnable ) {
+        mHandler.removeCallbacks( runnable );
+        mHandler.postDelayed( runnable, IDLE_TIMEOUT_MS );
+    }
+
+    void cancelIdle( Runnable runnable ) {
+        mHandler.removeCallbacks( runnable );
+    }
+
+    synchronized int getPlayersInUse() { return mPlayersInUse; }
+
+    synchronized int getSparePlayers() {
+        int count = 0;
+        for ( ArrayDeque<SimpleExoPlayer> spares : mSparePlayers.values() ) count += spares.size();
+        return count;
+    }
+
+    synchronized int getPlayersCreated() { return mPlayersCreated; }
+
+    synchronized int getPlayersReleased() { return mPlayersReleased; }
+
+    /**
+     * @return The most media bytes any player of @c profile has held in its buffer
+     */
+    long getPeakBufferBytes( AudioLoadProfile profile ) {
+        return mPeakBufferBytes.get( profile ).get();
+    }
+
+    private synchronized void releaseSparePlayers() {
+        for ( ArrayDeque<SimpleExoPlayer> spares : mSparePlayers.values() ) {
+            SimpleExoPlayer player;
+            while ( ( player = spares.poll() ) != null ) {
+                player.release();
+                mPlayersReleased++;
+            }
+        }
+    }
+
+    //
+    // Creates only an audio renderer. The default factory also builds video, text and
+    // metadata renderers that no output channel uses.
+    //
+    private static class AudioRenderersFactory implements RenderersFactory {
+
+        @Override
+        public Renderer[] createRenderers( Handler eventHandler,
+                                           VideoRendererEventListener videoRendererEventListener,
+                                           AudioRendererEventListener audioRendererEventListener,
+                                           TextOutput textRendererOutput,
+                                           MetadataOutput metadataRendererOutput ) {
+            return new Renderer[] {
+                    new MediaCodecAudioRenderer( MediaCodecSelector.DEFAULT, eventHandler,
+                            audioRendererEventListener )
+            };
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ordered chain of @c AudioProcessingStage run on each captured frame before it is written to
+ * the Engine.
+ *
+ * Frames are converted once into a preallocated @c short buffer, run through every stage and
+ * written back, so processing a frame allocates nothing. The time spent in each stage is
+ * recorded so a stage that threatens the 10 ms frame budget can be spotted.
+ *
+ * Stages may be replaced from any thread. The capture thread picks up the new chain on its
+ * next frame.
+ */
+public class AudioProcessingChain {
+
+    private static final int sBytesPerSample = 2;
+
+    private final short[] mSamples;
+    private volatile Entry[] mEntries = new Entry[0];
+
+    AudioProcessingChain( int frameSamples ) {
+        mSamples = new short[frameSamples];
+    }
+
+    public void setStages( AudioProcessingStage... stages ) {
+        Entry[] entries = new Entry[stages.length];
+        for ( int i = 0; i < stages.length; i++ ) {
+            entries[i] = new Entry( stages[i] );
+        }
+        mEntries = entries;
+    }
+
+    public AudioProcessingStage[] getStages() {
+        Entry[] entries = mEntries;
+        AudioProcessingStage[] stages = new AudioProcessingStage[entries.length];
+        for ( int i = 0; i < entries.length; i++ ) {
+            stages[i] = entries[i].mStage;
+        }
+        return stages;
+    }
+
+    /**
+     * @return The average time in nanoseconds the stage at @c index took per frame
+     */
+    public long getAverageNanos( int index ) {
+        Entry entry = mEntries[index];
+        long frames = entry.mFrames;
+        return frames == 0 ? 0 : entry.mTotalNanos / frames;
+    }
+
+    /**
+     * @return The longest time in nanoseconds the stage at @c index took for one frame
+     */
+    public long getMaxNanos( int index ) {
+        return mEntries[index].mMaxNanos;
+    }
+
+    /**
+     * Processes the PCM 16 samples in the first @c length bytes of @c frame in place.
+     * Must only be called from the capture thread.
+     */
+    void process( ByteBuffer frame, int length ) {
+        Entry[] entries = mEntries;
+        if ( entries.length == 0 ) return;
+
+        int samples = Math.min( length / sBytesPerSample, mSamples.length );
+        for ( int i = 0; i < samples; i++ ) {
+            mSamples[i] = frame.getShort( i * sBytesPerSample );
+        }
+        for ( Entry entry : entries ) {
+            long start = System.nanoTime();
+            entry.mStage.process( mSamples, samples );
+            entry.record( System.nanoTime() - start );
+        }
+        for ( int i = 0; i < samples; i++ ) {
+            frame.putShort( i * sBytesPerSample, mSamples[i] );
+        }
+    }
+
+    /**
+     * Clears the state of every stage. Must not run concurrently with @c process().
+     */
+    void reset() {
+        for ( Entry entry : mEntries ) {
+            entry.mStage.reset();
+        }
+    }
+
+    private static class Entry {
+
+        final AudioProcessingStage mStage;
+
+        // Written by the capture thread only
+        volatile long mFrames;
+        volatile long mTotalNanos;
+        volatile long mMaxNanos;
+
+        Entry( AudioProcessingStage stage ) {
+            mStage = stage;
+        }
+
+        void record( long nanos ) {
+            mFrames++;
+            mTotalNanos += nanos;
+            if ( nanos > mMaxNanos ) mMaxNanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * One step of the capture preprocessing chain run by @c AudioInputHandler.
+ *
+ * Stages run on the capture thread once per 10 ms frame, so @c process() must not block or
+ * allocate. A stage keeps whatever filter state it needs between frames.
+ */
+public interface AudioProcessingStage {
+
+    /**
+     * Processes PCM 16 mono samples @ 16 KHZ in place.
+     *
+     * @param samples The frame to process
+     * @param length The number of valid samples in @c samples
+     */
+    void process( short[] samples, int length );
+
+    /**
+     * Clears the filter state, e.g. when a new capture session starts.
+     */
+    void reset();
+}
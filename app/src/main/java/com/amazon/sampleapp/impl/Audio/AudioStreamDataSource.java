@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.amazon.sampleapp.aace.audio.AudioStream;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * ExoPlayer @c DataSource that reads an Engine @c AudioStream incrementally on the loader thread,
+ * so playback can start as soon as the extractor has enough data.
+ *
+ * The most recent bytes read from the stream are kept in a bounded in-memory window so the
+ * loader can reopen the source at a recent position (e.g. after a load error retry). Positions
+ * that have fallen out of the window cannot be read again.
+ */
+class AudioStreamDataSource implements DataSource {
+
+    private static final String sTag = "AudioStreamDataSource";
+    private static final int sReplayWindowSize = 64 * 1024;
+    private static final long sPollIntervalMs = 5; // Wait for the Engine when no data is available
+
+    private final AudioStream mStream;
+    private final byte[] mWindow = new byte[sReplayWindowSize];
+    private long mStreamPosition; // Total bytes read from mStream
+    private long mReadPosition; // Stream position of the next byte returned by read()
+    private long mBytesRemaining;
+    private Uri mUri;
+
+    private AudioStreamDataSource( AudioStream stream ) {
+        mStream = stream;
+    }
+
+    @Override
+    public long open( DataSpec dataSpec ) throws IOException {
+        mUri = dataSpec.uri;
+        long position = dataSpec.position;
+        if ( position < mStreamPosition - Math.min( mStreamPosition, sReplayWindowSize ) ) {
+            throw new IOException( sTag + ": Position " + position + " is no longer buffered" );
+        }
+        // Skip forward by reading through the stream straight into the window
+        while ( mStreamPosition < position ) {
+            int start = ( int ) ( mStreamPosition % sReplayWindowSize );
+            int length = ( int ) Math.min( sReplayWindowSize - start, position - mStreamPosition );
+            mReadPosition = mStreamPosition;
+            if ( readFromStream( mWindow, start, length, false ) == C.RESULT_END_OF_INPUT ) {
+                throw new IOException( sTag + ": Position " + position + " is past end of stream" );
+            }
+        }
+        mReadPosition = position;
+        mBytesRemaining = dataSpec.length;
+        return dataSpec.length;
+    }
+
+    @Override
+    public int read( byte[] buffer, int offset, int readLength ) throws IOException {
+        if ( readLength == 0 ) {
+            return 0;
+        } else if ( mBytesRemaining == 0 ) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if ( mBytesRemaining != C.LENGTH_UNSET ) {
+            readLength = ( int ) Math.min( readLength, mBytesRemaining );
+        }
+
+        int size;
+        if ( mReadPosition < mStreamPosition ) {
+            size = readFromWindow( buffer, offset, readLength );
+        } else {
+            size = readFromStream( buffer, offset, readLength, true );
+        }
+
+        if ( size != C.RESULT_END_OF_INPUT && mBytesRemaining != C.LENGTH_UNSET ) {
+            mBytesRemaining -= size;
+        }
+        return size;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return mUri;
+    }
+
+    @Override
+    public void close() {
+        mUri = null;
+    }
+
+    private int readFromWindow( byte[] buffer, int offset, int readLength ) {
+        int size = ( int ) Math.min( readLength, mStreamPosition - mReadPosition );
+        int start = ( int ) ( mReadPosition % sReplayWindowSize );
+        int first = Math.min( size, sReplayWindowSize - start );
+        System.arraycopy( mWindow, start, buffer, offset, first );
+        System.arraycopy( mWindow, 0, buffer, offset + first, size - first );
+        mReadPosition += size;
+        return size;
+    }
+
+    // Blocks until data is available or the stream is closed
+    private int readFromStream( byte[] buffer, int offset, int readLength, boolean retain )
+            throws IOException {
+        while ( true ) {
+            int size = mStream.read( buffer, offset, readLength );
+            if ( size > 0 ) {
+                if ( retain ) appendToWindow( buffer, offset, size );
+                mStreamPosition += size;
+                mReadPosition += size;
+                return size;
+            } else if ( size < 0 ) {
+                throw new IOException( sTag + ": Error reading audio stream" );
+            } else if ( mStream.isClosed() ) {
+                return C.RESULT_END_OF_INPUT;
+            }
+
+            try {
+                Thread.sleep( sPollIntervalMs );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private void appendToWindow( byte[] buffer, int offset, int size ) {
+        long position = mStreamPosition;
+        if ( size > sReplayWindowSize ) {
+            // Only the tail of a large read fits in the window
+            int skipped = size - sReplayWindowSize;
+            offset += skipped;
+            position += skipped;
+            size = sReplayWindowSize;
+        }
+        int start = ( int ) ( position % sReplayWindowSize );
+        int first = Math.min( size, sReplayWindowSize - start );
+        System.arraycopy( buffer, offset, mWindow, start, first );
+        System.arraycopy( buffer, offset + first, mWindow, 0, size - first );
+    }
+
+    /**
+     * Provides the single @c DataSource for an @c AudioStream. The stream can only be consumed
+     * once, so every loader shares the same source and its replay window.
+     */
+    static class Factory implements DataSource.Factory {
+
+        private final AudioStreamDataSource mDataSource;
+
+        Factory( AudioStream stream ) {
+            mDataSource = new AudioStreamDataSource( stream );
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return mDataSource;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Capture path statistics of one @c AudioInputHandler channel, taken at one point in time.
+ * All histograms and counters are cumulative since the channel was created.
+ */
+public class CaptureStatsSnapshot {
+
+    private final long mTimeNanos;
+    private final LatencyHistogram.Snapshot mReadLatency;
+    private final LatencyHistogram.Snapshot mJitter;
+    private final LatencyHistogram.Snapshot mWriteLatency;
+    private final LatencyHistogram.Snapshot mFrameLatency;
+    private final long mOverrunCount;
+    private final long mUnderrunCount;
+    private final long mDroppedWriteCount;
+
+    CaptureStatsSnapshot( long timeNanos,
+                          LatencyHistogram.Snapshot readLatency,
+                          LatencyHistogram.Snapshot jitter,
+                          LatencyHistogram.Snapshot writeLatency,
+                          LatencyHistogram.Snapshot frameLatency,
+                          long overrunCount,
+                          long underrunCount,
+                          long droppedWriteCount ) {
+        mTimeNanos = timeNanos;
+        mReadLatency = readLatency;
+        mJitter = jitter;
+        mWriteLatency = writeLatency;
+        mFrameLatency = frameLatency;
+        mOverrunCount = overrunCount;
+        mUnderrunCount = underrunCount;
+        mDroppedWriteCount = droppedWriteCount;
+    }
+
+    /**
+     * @return The @c SystemClock.elapsedRealtimeNanos() time the snapshot was taken
+     */
+    public long getTimeNanos() { return mTimeNanos; }
+
+    /**
+     * @return Time spent in @c AudioRecord.read() per frame, shared by all channels
+     */
+    public LatencyHistogram.Snapshot getReadLatency() { return mReadLatency; }
+
+    /**
+     * @return Deviation of the time between captured frames from 10 ms, shared by all channels
+     */
+    public LatencyHistogram.Snapshot getJitter() { return mJitter; }
+
+    /**
+     * @return Time spent in @c AudioInput.write() per frame
+     */
+    public LatencyHistogram.Snapshot getWriteLatency() { return mWriteLatency; }
+
+    /**
+     * @return Time from @c AudioRecord.read() returning a frame to @c AudioInput.write() completing
+     */
+    public LatencyHistogram.Snapshot getFrameLatency() { return mFrameLatency; }
+
+    public long getOverrunCount() { return mOverrunCount; }
+
+    public long getUnderrunCount() { return mUnderrunCount; }
+
+    public long getDroppedWriteCount() { return mDroppedWriteCount; }
+
+    @Override
+    public String toString() {
+        return "read[" + mReadLatency + "] jitter[" + mJitter + "] write[" + mWriteLatency
+            + "] frame[" + mFrameLatency + "] overruns=" + mOverrunCount + " underruns="
+            + mUnderrunCount + " droppedWrites=" + mDroppedWriteCount;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Removes the DC offset of the microphone with a one-pole DC blocker:
+ * y[n] = x[n] - x[n-1] + R * y[n-1]
+ */
+public class DcRemovalStage implements AudioProcessingStage {
+
+    private static final float sDefaultPole = 0.995f; // Corner around 13 Hz at 16 KHZ
+
+    private final float mPole;
+    private float mPreviousInput;
+    private float mPreviousOutput;
+
+    public DcRemovalStage() {
+        this( sDefaultPole );
+    }
+
+    public DcRemovalStage( float pole ) {
+        mPole = pole;
+    }
+
+    @Override
+    public void process( short[] samples, int length ) {
+        float previousInput = mPreviousInput;
+        float previousOutput = mPreviousOutput;
+        for ( int i = 0; i < length; i++ ) {
+            float input = samples[i];
+            previousOutput = input - previousInput + mPole * previousOutput;
+            previousInput = input;
+            samples[i] = clamp( previousOutput );
+        }
+        mPreviousInput = previousInput;
+        mPreviousOutput = previousOutput;
+    }
+
+    @Override
+    public void reset() {
+        mPreviousInput = 0;
+        mPreviousOutput = 0;
+    }
+
+    static short clamp( float sample ) {
+        if ( sample > Short.MAX_VALUE ) return Short.MAX_VALUE;
+        if ( sample < Short.MIN_VALUE ) return Short.MIN_VALUE;
+        return ( short ) sample;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.amazon.sampleapp.aace.audio.AudioInput;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An Engine audio input channel that streams recorded fixtures instead of the microphone.
+ *
+ * Each @c startAudioInput() streams the next fixture in 10 ms frames followed by a second of
+ * silence, so the cloud can endpoint the utterance. Fixtures are WAV files or raw PCM 16 mono
+ * @ 16 KHZ, and are used in turn until @c setRepeatCount() passes are done.
+ *
+ * Frames are paced at real time, or written as fast as the Engine accepts them for load tests.
+ * Real-time pacing waits for absolute frame deadlines, so scheduling delays do not add up.
+ */
+public class FileAudioInput extends AudioInput
+{
+    private static final String sTag = "FileAudioInput";
+
+    private static final int sSamplesToCollectInOneCycle = 160; // 10 ms @ 16 khz
+    private static final int sBytesInEachSample = 2; // PCM 16 = 2 bytes per sample
+    private static final int sSampleRateInHz = 16000;
+    private static final int sFrameSize = sSamplesToCollectInOneCycle * sBytesInEachSample;
+    private static final int sFramesPerRead = 100; // Read fixtures in 1 s chunks
+    private static final int sTrailingSilenceFrames = 100;
+    private static final long sFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos( 10 );
+    private static final long sShutdownTimeoutMs = 500;
+
+    /**
+     * Notified on the feed thread.
+     */
+    public interface Listener {
+        /**
+         * Called once all the samples of a fixture have been written, and the trailing silence
+         * has been written or cut short by @c stopAudioInput().
+         */
+        void onFixtureFinished( File fixture );
+
+        /**
+         * Called when a @c startAudioInput() finds no fixture left to stream.
+         */
+        void onFixturesExhausted();
+    }
+
+    private final List<File> mFixtures;
+    private final boolean mRealTime;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(); // Feeds the engine
+    private final byte[] mBuffer = new byte[sFramesPerRead * sFrameSize];
+    private final byte[] mSilence = new byte[sFrameSize];
+    private final LatencyHistogram mWriteLatency = new LatencyHistogram(); // Recorded by the feed thread
+
+    private int mRepeatCount = 1;
+    private int mNextFixture; // Counts across passes
+    private volatile Listener mListener;
+    private FileWriterRunnable mWriterRunnable;
+    private Future<?> mWriterFuture;
+
+    // Written by the feed thread, read from any thread
+    private volatile long mFixturesCompleted;
+    private volatile long mFramesWritten;
+    private volatile long mDroppedWriteCount;
+    private volatile long mStreamingNanos; // Time spent streaming, excluding time between utterances
+
+    /**
+     * @param fixtures WAV or raw PCM 16 mono @ 16 KHZ files
+     * @param realTime @c true to write one frame every 10 ms, @c false to write unthrottled
+     */
+    public FileAudioInput( List<File> fixtures, boolean realTime ) {
+        mFixtures = new ArrayList<>( fixtures );
+        mRealTime = realTime;
+    }
+
+    /**
+     * @return @c path if it is a file, else the files in the directory @c path sorted by name
+     */
+    public static List<File> listFixtures( File path ) {
+        File[] files = path.isDirectory() ? path.listFiles() : new File[] { path };
+        List<File> fixtures = new ArrayList<>();
+        if ( files == null ) return fixtures;
+        Arrays.sort( files );
+        for ( File file : files ) {
+            if ( file.isFile() ) fixtures.add( file );
+        }
+        return fixtures;
+    }
+
+    /**
+     * Sets how many times the fixture list is streamed. Takes effect from the next fixture.
+     */
+    public synchronized void setRepeatCount( int repeatCount ) {
+        mRepeatCount = repeatCount;
+    }
+
+    public void setListener( Listener listener ) {
+        mListener = listener;
+    }
+
+    public boolean isRealTime() { return mRealTime; }
+
+    @Override
+    public synchronized boolean startAudioInput() {
+        if ( mWriterRunnable != null && mWriterRunnable.isRunning() ) {
+            return true;
+        }
+        if ( !awaitPreviousSession() ) {
+            return false;
+        }
+        File fixture = mNextFixture < mFixtures.size() * mRepeatCount
+            ? mFixtures.get( mNextFixture++ % mFixtures.size() ) : null;
+        try {
+            mWriterRunnable = new FileWriterRunnable( fixture );
+            mWriterFuture = mExecutor.submit( mWriterRunnable );
+        } catch ( RejectedExecutionException e ) {
+            mWriterRunnable.cancel();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean stopAudioInput() {
+        if ( mWriterRunnable != null ) mWriterRunnable.cancel();
+        return true;
+    }
+
+    /**
+     * Stops streaming and ends the feed thread. The input cannot be started again afterwards.
+     */
+    public synchronized void shutdown() {
+        stopAudioInput();
+        mExecutor.shutdown();
+        try {
+            if ( !mExecutor.awaitTermination( sShutdownTimeoutMs, TimeUnit.MILLISECONDS ) ) {
+                mExecutor.shutdownNow();
+            }
+        } catch ( InterruptedException e ) {
+            mExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts again from the first fixture and clears the statistics. Must not be called while
+     * streaming.
+     */
+    public synchronized void reset() {
+        mNextFixture = 0;
+        mFixturesCompleted = 0;
+        mFramesWritten = 0;
+        mDroppedWriteCount = 0;
+        mStreamingNanos = 0;
+    }
+
+    public long getFixturesCompleted() { return mFixturesCompleted; }
+
+    public long getFramesWritten() { return mFramesWritten; }
+
+    /**
+     * @return The number of frames the engine did not fully accept from @c write()
+     */
+    public long getDroppedWriteCount() { return mDroppedWriteCount; }
+
+    /**
+     * @return Audio time written per unit of time spent streaming; about 1 when paced at real time
+     */
+    public double getRealTimeFactor() {
+        long streamingNanos = mStreamingNanos;
+        return streamingNanos > 0 ? mFramesWritten * ( double ) sFrameIntervalNanos / streamingNanos : 0;
+    }
+
+    /**
+     * @return Time spent in @c AudioInput.write() per frame
+     */
+    public LatencyHistogram.Snapshot getWriteLatency() { return mWriteLatency.snapshot(); }
+
+    private boolean awaitPreviousSession() {
+        try {
+            if ( mWriterFuture != null ) mWriterFuture.get( sShutdownTimeoutMs, TimeUnit.MILLISECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch ( TimeoutException e ) {
+            return false;
+        } catch ( ExecutionException | CancellationException e ) {
+            // The previous session ended abnormally, but it has ended
+        }
+        return true;
+    }
+
+    //
+    // Reads the location of the samples in a fixture. Only PCM 16 mono @ 16 KHZ WAV files are
+    // accepted; any other file is taken to be raw samples.
+    //
+
+    // Returns the offset and length of the samples
+    static long[] findSamples( FileChannel channel ) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate( 12 ).order( ByteOrder.LITTLE_ENDIAN );
+        if ( channel.read( header, 0 ) < 12 || header.getInt( 0 ) != 0x46464952 // "RIFF"
+                || header.getInt( 8 ) != 0x45564157 ) { // "WAVE"
+            return new long[] { 0, channel.size() };
+        }
+        ByteBuffer chunk = ByteBuffer.allocate( 24 ).order( ByteOrder.LITTLE_ENDIAN );
+        long position = 12;
+        boolean formatChecked = false;
+        while ( position + 8 <= channel.size() ) {
+            chunk.clear();
+            channel.read( chunk, position );
+            int id = chunk.getInt( 0 );
+            long size = chunk.getInt( 4 ) & 0xffffffffL;
+            if ( id == 0x20746d66 ) { // "fmt "
+                if ( chunk.getShort( 8 ) != 1 || chunk.getShort( 10 ) != 1
+                        || chunk.getInt( 12 ) != sSampleRateInHz || chunk.getShort( 22 ) != 16 ) {
+                    throw new IOException( "Fixture is not PCM mono @ 16 KHZ" );
+                }
+                formatChecked = true;
+            } else if ( id == 0x61746164 ) { // "data"
+                if ( !formatChecked ) throw new IOException( "WAV data before format" );
+                return new long[] { position + 8, Math.min( size, channel.size() - position - 8 ) };
+            }
+            position += 8 + size + ( size & 1 );
+        }
+        throw new IOException( "WAV has no data" );
+    }
+
+    //
+    // FileWriter class: fixture -> engine
+    //
+
+    private class FileWriterRunnable implements Runnable {
+
+        private volatile boolean mRunning = true;
+        private final File mFixture;
+        private final FramePacer mPacer = new FramePacer( sFrameIntervalNanos );
+
+        FileWriterRunnable( File fixture ) {
+            mFixture = fixture;
+        }
+
+        void cancel() { mRunning = false; }
+
+        boolean isRunning() { return mRunning; }
+
+        @Override
+        public void run() {
+            Listener listener = mListener;
+            if ( mFixture == null ) {
+                if ( listener != null ) listener.onFixturesExhausted();
+                mRunning = false;
+                return;
+            }
+            long start = SystemClock.elapsedRealtimeNanos();
+            mPacer.start( start );
+            boolean completed = false;
+            try {
+                completed = streamFixture();
+                // The Engine usually stops the input while this plays, once it has endpointed
+                for ( int i = 0; i < sTrailingSilenceFrames && mRunning; i++ ) {
+                    writeFrame( mSilence, 0, sFrameSize );
+                }
+            } catch ( IOException e ) {
+                Log.e( sTag, "Failed to stream " + mFixture + ": " + e.getMessage() );
+            }
+            mStreamingNanos += SystemClock.elapsedRealtimeNanos() - start;
+            if ( completed ) {
+                mFixturesCompleted++;
+                if ( listener != null ) listener.onFixtureFinished( mFixture );
+            }
+            mRunning = false;
+        }
+
+        // Returns false if cancelled before all the samples of the fixture were written
+        private boolean streamFixture() throws IOException {
+            try ( FileInputStream stream = new FileInputStream( mFixture ) ) {
+                FileChannel channel = stream.getChannel();
+                long[] samples = findSamples( channel );
+                long position = samples[0];
+                long end = position + samples[1] - samples[1] % sBytesInEachSample;
+                channel.position( position );
+                while ( position < end ) {
+                    if ( !mRunning ) return false;
+                    int read = stream.read( mBuffer, 0, ( int ) Math.min( mBuffer.length, end - position ) );
+                    if ( read <= 0 ) break;
+                    position += read;
+                    int length = read - read % sBytesInEachSample;
+                    for ( int offset = 0; offset < length; offset += sFrameSize ) {
+                        if ( !writeFrame( mBuffer, offset, Math.min( sFrameSize, length - offset ) ) ) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+
+        // Returns false if cancelled before the whole frame was written. A frame the Engine
+        // refused is counted as dropped but not as cancelled.
+        private boolean writeFrame( byte[] buffer, int offset, int length ) {
+            if ( mRealTime ) {
+                long delay;
+                while ( ( delay = mPacer.delayNanos( SystemClock.elapsedRealtimeNanos() ) ) > 0 && mRunning ) {
+                    LockSupport.parkNanos( delay );
+                }
+                mPacer.advance();
+            }
+            long writeStart = SystemClock.elapsedRealtimeNanos();
+            while ( length > 0 && mRunning ) {
+                long written = write( buffer, offset, length );
+                if ( written <= 0 ) {
+                    mDroppedWriteCount++;
+                    break;
+                }
+                offset += written;
+                length -= written;
+            }
+            mWriteLatency.record( SystemClock.elapsedRealtimeNanos() - writeStart );
+            mFramesWritten++;
+            return length == 0 || mRunning;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Spaces frames at a fixed interval. Each frame has an absolute deadline counted from
+ * @c start(), so a frame sent late does not push back the ones after it.
+ *
+ * Times are passed in by the caller, in nanoseconds on any monotonic clock.
+ */
+class FramePacer {
+
+    private final long mIntervalNanos;
+    private long mNextFrameNanos;
+
+    FramePacer( long intervalNanos ) {
+        mIntervalNanos = intervalNanos;
+    }
+
+    /**
+     * Makes the next frame due at @c nowNanos.
+     */
+    void start( long nowNanos ) {
+        mNextFrameNanos = nowNanos;
+    }
+
+    /**
+     * @return How long to wait at @c nowNanos before the next frame is due, or 0 if it is due
+     */
+    long delayNanos( long nowNanos ) {
+        return Math.max( 0, mNextFrameNanos - nowNanos );
+    }
+
+    /**
+     * Moves on to the deadline of the frame after the one just sent.
+     */
+    void advance() {
+        mNextFrameNanos += mIntervalNanos;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Applies a fixed gain, or an automatic gain that moves the speech level toward a target.
+ *
+ * The automatic gain is measured per frame and changes smoothly across each frame. It drops
+ * quickly when the level rises and recovers slowly, and it is held while the frame is below
+ * the noise floor so background noise is not amplified during pauses.
+ */
+public class GainStage implements AudioProcessingStage {
+
+    private static final float sDefaultTargetDbfs = -20;
+    private static final float sDefaultMaxGainDb = 12;
+    private static final float sNoiseFloorDbfs = -55;
+    private static final float sAttack = 0.5f; // Fraction of the gain change applied per frame
+    private static final float sRelease = 0.05f;
+
+    private final boolean mAutomatic;
+    private final float mFixedGain;
+    private final float mTargetLevel;
+    private final float mMaxGain;
+    private final float mNoiseFloor;
+    private float mGain;
+
+    /**
+     * Creates a fixed gain stage.
+     */
+    public GainStage( float gainDb ) {
+        mAutomatic = false;
+        mFixedGain = dbToLinear( gainDb );
+        mTargetLevel = 0;
+        mMaxGain = mFixedGain;
+        mNoiseFloor = 0;
+        mGain = mFixedGain;
+    }
+
+    /**
+     * Creates an automatic gain stage.
+     *
+     * @param targetDbfs The RMS level speech is brought to
+     * @param maxGainDb The largest gain applied
+     */
+    public GainStage( float targetDbfs, float maxGainDb ) {
+        mAutomatic = true;
+        mFixedGain = 1;
+        mTargetLevel = dbToLinear( targetDbfs ) * Short.MAX_VALUE;
+        mMaxGain = dbToLinear( maxGainDb );
+        mNoiseFloor = dbToLinear( sNoiseFloorDbfs ) * Short.MAX_VALUE;
+        mGain = 1;
+    }
+
+    public static GainStage createAutomatic() {
+        return new GainStage( sDefaultTargetDbfs, sDefaultMaxGainDb );
+    }
+
+    /**
+     * @return The linear gain applied to the last frame
+     */
+    public float getGain() { return mGain; }
+
+    @Override
+    public void process( short[] samples, int length ) {
+        if ( length == 0 ) return;
+        float start = mGain;
+        float end = mAutomatic ? nextGain( samples, length ) : mFixedGain;
+        float step = ( end - start ) / length;
+        float gain = start;
+        for ( int i = 0; i < length; i++ ) {
+            gain += step;
+            samples[i] = DcRemovalStage.clamp( samples[i] * gain );
+        }
+        mGain = end;
+    }
+
+    private float nextGain( short[] samples, int length ) {
+        double energy = 0;
+        for ( int i = 0; i < length; i++ ) {
+            energy += samples[i] * samples[i];
+        }
+        float rms = ( float ) Math.sqrt( energy / length );
+        if ( rms < mNoiseFloor ) return mGain;
+
+        float desired = Math.max( 1 / mMaxGain, Math.min( mMaxGain, mTargetLevel / rms ) );
+        float rate = desired < mGain ? sAttack : sRelease;
+        return mGain + ( desired - mGain ) * rate;
+    }
+
+    @Override
+    public void reset() {
+        mGain = mAutomatic ? 1 : mFixedGain;
+    }
+
+    private static float dbToLinear( float db ) {
+        return ( float ) Math.pow( 10, db / 20 );
+    }
+}
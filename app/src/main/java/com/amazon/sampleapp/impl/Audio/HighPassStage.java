@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Second order Butterworth high-pass filter that removes rumble below the cutoff frequency.
+ */
+public class HighPassStage implements AudioProcessingStage {
+
+    private static final int sSampleRateInHz = 16000;
+    private static final float sDefaultCutoffHz = 100;
+
+    // Normalized biquad coefficients (a0 == 1)
+    private final float mB0;
+    private final float mB1;
+    private final float mB2;
+    private final float mA1;
+    private final float mA2;
+
+    // Transposed direct form II state
+    private float mZ1;
+    private float mZ2;
+
+    public HighPassStage() {
+        this( sDefaultCutoffHz );
+    }
+
+    public HighPassStage( float cutoffHz ) {
+        double w0 = 2 * Math.PI * cutoffHz / sSampleRateInHz;
+        double alpha = Math.sin( w0 ) / Math.sqrt( 2 ); // Q = 1/sqrt(2)
+        double cos = Math.cos( w0 );
+        double a0 = 1 + alpha;
+        mB0 = ( float ) ( ( 1 + cos ) / 2 / a0 );
+        mB1 = ( float ) ( -( 1 + cos ) / a0 );
+        mB2 = mB0;
+        mA1 = ( float ) ( -2 * cos / a0 );
+        mA2 = ( float ) ( ( 1 - alpha ) / a0 );
+    }
+
+    @Override
+    public void process( short[] samples, int length ) {
+        float z1 = mZ1;
+        float z2 = mZ2;
+        for ( int i = 0; i < length; i++ ) {
+            float input = samples[i];
+            float output = mB0 * input + z1;
+            z1 = mB1 * input - mA1 * output + z2;
+            z2 = mB2 * input - mA2 * output;
+            samples[i] = DcRemovalStage.clamp( output );
+        }
+        mZ1 = z1;
+        mZ2 = z2;
+    }
+
+    @Override
+    public void reset() {
+        mZ1 = 0;
+        mZ2 = 0;
+    }
+}
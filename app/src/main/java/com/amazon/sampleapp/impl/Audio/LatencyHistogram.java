@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of durations, recorded by one thread and read from any thread.
+ *
+ * Buckets follow a 1-2-5 series from 100 us to 1 s, plus an overflow bucket. Recording is a
+ * short bucket search and ordered stores, so it is cheap enough for every captured frame.
+ */
+public class LatencyHistogram {
+
+    private static final long[] sBucketBoundsMicros = {
+        100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 200000, 500000, 1000000
+    };
+
+    // One count per bucket, then the largest value in microseconds
+    private final AtomicLongArray mValues = new AtomicLongArray( sBucketBoundsMicros.length + 2 );
+    private final int mMaxIndex = sBucketBoundsMicros.length + 1;
+
+    /**
+     * Records one duration. Must only be called from the recording thread.
+     */
+    void record( long nanos ) {
+        long micros = Math.max( 0, nanos / 1000 );
+        int bucket = 0;
+        while ( bucket < sBucketBoundsMicros.length && micros > sBucketBoundsMicros[bucket] ) {
+            bucket++;
+        }
+        mValues.lazySet( bucket, mValues.get( bucket ) + 1 );
+        if ( micros > mValues.get( mMaxIndex ) ) mValues.lazySet( mMaxIndex, micros );
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[sBucketBoundsMicros.length + 1];
+        for ( int i = 0; i < counts.length; i++ ) {
+            counts[i] = mValues.get( i );
+        }
+        return new Snapshot( counts, mValues.get( mMaxIndex ) );
+    }
+
+    /**
+     * Immutable copy of a histogram. Counts may be off by the frame being recorded at the time
+     * the snapshot was taken.
+     */
+    public static class Snapshot {
+
+        private final long[] mCounts;
+        private final long mCount;
+        private final long mMaxMicros;
+
+        Snapshot( long[] counts, long maxMicros ) {
+            mCounts = counts;
+            long count = 0;
+            for ( long bucketCount : counts ) count += bucketCount;
+            mCount = count;
+            mMaxMicros = maxMicros;
+        }
+
+        public long getCount() { return mCount; }
+
+        public long getMaxMicros() { return mMaxMicros; }
+
+        /**
+         * @return The upper bounds of the buckets. The last bucket has no bound.
+         */
+        public static long[] getBucketBoundsMicros() { return sBucketBoundsMicros.clone(); }
+
+        public long[] getBucketCounts() { return mCounts.clone(); }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The upper bound of the bucket holding the percentile, or the largest value
+         * recorded if it falls in the overflow bucket
+         */
+        public long getPercentileMicros( double percentile ) {
+            if ( mCount == 0 ) return 0;
+            long rank = ( long ) Math.ceil( mCount * percentile / 100 );
+            long seen = 0;
+            for ( int i = 0; i < sBucketBoundsMicros.length; i++ ) {
+                seen += mCounts[i];
+                if ( seen >= rank ) return Math.min( sBucketBoundsMicros[i], mMaxMicros );
+            }
+            return mMaxMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + " p50=" + getPercentileMicros( 50 ) + "us p99="
+                + getPercentileMicros( 99 ) + "us max=" + mMaxMicros + "us";
+        }
+    }
+}
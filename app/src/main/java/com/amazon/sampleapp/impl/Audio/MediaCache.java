@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.upstream.DataSink;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSinkFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded, LRU-evicting disk cache of downloaded media for one output channel.
+ *
+ * Each channel gets its own cache directory and byte budget so a long music session cannot
+ * evict the clips of other channels. Only one instance exists per channel because
+ * @c SimpleCache requires exclusive use of its directory.
+ */
+class MediaCache implements CacheDataSource.EventListener, TransferListener<DataSource> {
+
+    private static final String sCacheDirName = "media";
+    private static final long sDefaultBudgetBytes = 10 * 1024 * 1024;
+    private static final Map<String, Long> sChannelBudgets = new HashMap<>();
+    private static final Map<String, MediaCache> sCaches = new HashMap<>();
+
+    static {
+        sChannelBudgets.put( "AudioPlayer", 100L * 1024 * 1024 );
+    }
+
+    private final String mName;
+    private final SimpleCache mCache;
+    private final long mBudgetBytes;
+
+    private final AtomicLong mHitBytes = new AtomicLong();
+    private final AtomicLong mMissBytes = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    static synchronized MediaCache getInstance( Context context, String name ) {
+        MediaCache cache = sCaches.get( name );
+        if ( cache == null ) {
+            Long budget = sChannelBudgets.get( name );
+            cache = new MediaCache( context, name, budget != null ? budget : sDefaultBudgetBytes );
+            sCaches.put( name, cache );
+        }
+        return cache;
+    }
+
+    private MediaCache( Context context, String name, long budgetBytes ) {
+        this( new File( new File( context.getCacheDir(), sCacheDirName ), name ), name, budgetBytes );
+    }
+
+    MediaCache( File dir, String name, long budgetBytes ) {
+        mName = name;
+        mBudgetBytes = budgetBytes;
+        mCache = new SimpleCache( dir, new CountingEvictor( budgetBytes ) );
+    }
+
+    /**
+     * Wraps @c upstreamFactory so reads are served from the cache when possible and
+     * written through to the cache otherwise. For the miss counters to be right this cache must
+     * be the @c TransferListener of @c upstreamFactory, and of no factory used without the cache.
+     */
+    DataSource.Factory createDataSourceFactory( DataSource.Factory upstreamFactory ) {
+        DataSink.Factory sinkFactory = new CacheDataSinkFactory( mCache,
+                CacheDataSource.DEFAULT_MAX_CACHE_FILE_SIZE );
+        return new CacheDataSourceFactory( mCache, upstreamFactory, new FileDataSourceFactory( null ),
+                sinkFactory, CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, this );
+    }
+
+    String getName() { return mName; }
+
+    long getBudgetBytes() { return mBudgetBytes; }
+
+    long getCachedBytes() { return mCache.getCacheSpace(); }
+
+    /**
+     * @return The number of bytes served from the cache
+     */
+    long getHitBytes() { return mHitBytes.get(); }
+
+    /**
+     * @return The number of bytes downloaded from the network by this channel
+     */
+    long getMissBytes() { return mMissBytes.get(); }
+
+    /**
+     * @return The number of network requests made by this channel
+     */
+    long getMissCount() { return mMissCount.get(); }
+
+    /**
+     * @return The number of cache spans evicted to stay within the budget
+     */
+    long getEvictionCount() { return mEvictionCount.get(); }
+
+    //
+    // CacheDataSource.EventListener
+    //
+
+    @Override
+    public void onCachedBytesRead( long cacheSizeBytes, long cachedBytesRead ) {
+        mHitBytes.addAndGet( cachedBytesRead );
+    }
+
+    //
+    // TransferListener for the upstream (network) data source
+    //
+
+    @Override
+    public void onTransferStart( DataSource source, DataSpec dataSpec ) {
+        mMissCount.incrementAndGet();
+    }
+
+    @Override
+    public void onBytesTransferred( DataSource source, int bytesTransferred ) {
+        mMissBytes.addAndGet( bytesTransferred );
+    }
+
+    @Override
+    public void onTransferEnd( DataSource source ) {}
+
+    // Counts the spans the LRU policy evicts. LeastRecentlyUsedCacheEvictor reports a cache hit
+    // to itself as the span being removed and added again, so removals are only counted while
+    // the policy is making room. SimpleCache calls the evictor with its lock held.
+    private class CountingEvictor implements CacheEvictor {
+
+        private final LeastRecentlyUsedCacheEvictor mPolicy;
+        private boolean mEvicting;
+
+        CountingEvictor( long maxBytes ) {
+            mPolicy = new LeastRecentlyUsedCacheEvictor( maxBytes );
+        }
+
+        @Override
+        public void onCacheInitialized() {
+            mPolicy.onCacheInitialized();
+        }
+
+        @Override
+        public void onStartFile( Cache cache, String key, long position, long length ) {
+            mEvicting = true;
+            try {
+                mPolicy.onStartFile( cache, key, position, length );
+            } finally {
+                mEvicting = false;
+            }
+        }
+
+        @Override
+        public void onSpanAdded( Cache cache, CacheSpan span ) {
+            mEvicting = true;
+            try {
+                mPolicy.onSpanAdded( cache, span );
+            } finally {
+                mEvicting = false;
+            }
+        }
+
+        @Override
+        public void onSpanRemoved( Cache cache, CacheSpan span ) {
+            mPolicy.onSpanRemoved( cache, span );
+            if ( mEvicting ) mEvictionCount.incrementAndGet();
+        }
+
+        @Override
+        public void onSpanTouched( Cache cache, CacheSpan oldSpan, CacheSpan newSpan ) {
+            mPolicy.onSpanTouched( cache, oldSpan, newSpan );
+        }
+    }
+}
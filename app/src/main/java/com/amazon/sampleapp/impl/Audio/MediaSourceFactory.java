@@ -20,8 +20,18 @@ import android.net.Uri;
 import android.os.Handler;
 import android.support.annotation.Nullable;
 
+import com.amazon.sampleapp.aace.audio.AudioStream;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.Extractor;
+import com.google.android.exoplayer2.extractor.ExtractorsFactory;
+import com.google.android.exoplayer2.extractor.mkv.MatroskaExtractor;
+import com.google.android.exoplayer2.extractor.mp3.Mp3Extractor;
+import com.google.android.exoplayer2.extractor.mp4.FragmentedMp4Extractor;
+import com.google.android.exoplayer2.extractor.mp4.Mp4Extractor;
+import com.google.android.exoplayer2.extractor.ogg.OggExtractor;
+import com.google.android.exoplayer2.extractor.ts.AdtsExtractor;
+import com.google.android.exoplayer2.extractor.wav.WavExtractor;
 import com.google.android.exoplayer2.source.ExtractorMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.MediaSourceEventListener;
@@ -35,6 +45,7 @@ import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.util.Util;
 
 import java.io.IOException;
@@ -43,6 +54,23 @@ class MediaSourceFactory {
 
     private static final String sTag = "MediaSourceFactory";
     private static final String sUserAgentName = "com.amazon.sampleapp";
+    private static final String sAudioStreamScheme = "audiostream";
+
+    // Audio container formats only. The default factory also sniffs video and subtitle formats.
+    private static final ExtractorsFactory sAudioExtractorsFactory = new ExtractorsFactory() {
+        @Override
+        public Extractor[] createExtractors() {
+            return new Extractor[] {
+                    new Mp3Extractor(),
+                    new AdtsExtractor(),
+                    new Mp4Extractor(),
+                    new FragmentedMp4Extractor(),
+                    new OggExtractor(),
+                    new MatroskaExtractor(),
+                    new WavExtractor()
+            };
+        }
+    };
 
     private final Context mContext;
     private final String mName;
@@ -51,35 +79,58 @@ class MediaSourceFactory {
     private final MediaSourceListener mMediaSourceListener = new MediaSourceListener();
     private final DataSource.Factory mFileDataSourceFactory = new FileDataSourceFactory( null );
     private final DataSource.Factory mHttpDataSourceFactory;
+    private final DataSource.Factory mCachedHttpDataSourceFactory;
+    private final MediaCache mMediaCache;
 
     MediaSourceFactory( Context context, String name ) {
         mContext = context;
         mName = name;
-        mHttpDataSourceFactory = buildHttpDataSourceFactory( mContext );
+        mMediaCache = MediaCache.getInstance( mContext, mName );
+        mHttpDataSourceFactory = buildHttpDataSourceFactory( mContext, null );
+        // Only the cache's own upstream reports to it, so its misses are downloads it could cache
+        mCachedHttpDataSourceFactory = mMediaCache.createDataSourceFactory(
+                buildHttpDataSourceFactory( mContext, mMediaCache ) );
     }
 
-    private HttpDataSource.Factory buildHttpDataSourceFactory( Context context ) {
+    MediaCache getMediaCache() {
+        return mMediaCache;
+    }
+
+    private HttpDataSource.Factory buildHttpDataSourceFactory( Context context,
+                                                               TransferListener<? super DataSource> listener ) {
         String userAgent = Util.getUserAgent( context, sUserAgentName );
         // Some streams may see a long response time to begin data transfer from server after
         // connection. Use default 8 second connection timeout and increased 20 second read timeout
         // to catch this case and avoid reattempts to connect that will continue to time out.
         // May perceive long "dead time" in cases where data read takes a long time
-        return new DefaultHttpDataSourceFactory( userAgent, null, 8000,
+        return new DefaultHttpDataSourceFactory( userAgent, listener, 8000,
                 20000, true );
     }
 
     MediaSource createFileMediaSource( final Uri uri ) throws Exception {
-        return createMediaSource( uri, mFileDataSourceFactory, mMediaSourceListener, mMainHandler,
-                mPlaylistParser );
+        return createMediaSource( uri, mFileDataSourceFactory, mFileDataSourceFactory,
+                mMediaSourceListener, mMainHandler, mPlaylistParser );
+    }
+
+    MediaSource createAudioStreamMediaSource( final AudioStream stream ) throws Exception {
+        // The Uri only identifies the channel; it has no path so the content type is not inferred
+        Uri uri = new Uri.Builder().scheme( sAudioStreamScheme ).authority( mName ).build();
+        DataSource.Factory dataSourceFactory = new AudioStreamDataSource.Factory( stream );
+        return createMediaSource( uri, dataSourceFactory, dataSourceFactory,
+                mMediaSourceListener, mMainHandler, mPlaylistParser );
     }
 
+    // Progressive media is read through the disk cache. Adaptive streams are not, since their
+    // manifests may be live and must always be fetched fresh, and neither are the streams
+    // playlists point at, which are usually live radio that would only push real content out.
     MediaSource createHttpMediaSource( final Uri uri ) throws Exception {
-        return createMediaSource( uri, mHttpDataSourceFactory, mMediaSourceListener, mMainHandler,
-                mPlaylistParser );
+        return createMediaSource( uri, mHttpDataSourceFactory, mCachedHttpDataSourceFactory,
+                mMediaSourceListener, mMainHandler, mPlaylistParser );
     }
 
     private static MediaSource createMediaSource( final Uri uri,
                                            final DataSource.Factory dataSourceFactory,
+                                           final DataSource.Factory progressiveDataSourceFactory,
                                            final MediaSourceEventListener mediaSourceListener,
                                            final Handler handler,
                                            final PlaylistParser playlistParser ) throws Exception {
@@ -100,11 +151,13 @@ class MediaSourceFactory {
                         .createMediaSource( uri, handler, mediaSourceListener );
             case M3U:
             case PLS:
+                // The stream a playlist points at is played without the cache
                 Uri parsedUri = playlistParser.parseUri( uri );
-                return createMediaSource( parsedUri, dataSourceFactory, mediaSourceListener,
-                        handler, playlistParser );
+                return createMediaSource( parsedUri, dataSourceFactory,
+                        dataSourceFactory, mediaSourceListener, handler, playlistParser );
             case OTHER:
-                return new ExtractorMediaSource.Factory( dataSourceFactory )
+                return new ExtractorMediaSource.Factory( progressiveDataSourceFactory )
+                        .setExtractorsFactory( sAudioExtractorsFactory )
                         .createMediaSource( uri, handler, mediaSourceListener );
             default:
                 throw new IllegalStateException( "Unsupported type" );
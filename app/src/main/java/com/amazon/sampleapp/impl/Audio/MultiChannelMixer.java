@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Mixes interleaved PCM 16 frames from a microphone array down to mono.
+ *
+ * In @c SELECT_BEST mode the channel with the best signal to noise ratio is passed through. Each
+ * channel's noise floor follows its quietest frames, and the selection only moves to another
+ * channel once it has been clearly better for a while, so it does not flap between words.
+ *
+ * In @c DELAY_AND_SUM mode each channel is delayed by a fixed time and weighted before the
+ * channels are summed, steering the array toward a seat such as the driver's.
+ *
+ * Mixing runs at the capture rate, before resampling. Delay lines are sized by @c prepare()
+ * once the rate is known, so mixing itself allocates nothing.
+ */
+public class MultiChannelMixer {
+
+    public enum Mode { SELECT_BEST, DELAY_AND_SUM }
+
+    private static final int sDefaultSampleRateInHz = 16000;
+    private static final float sSwitchMarginDb = 3;
+    private static final int sSwitchFrames = 20; // 200 ms of 10 ms frames
+    private static final float sNoiseRise = 1.01f; // Per frame, about 0.4 dB/s up
+    private static final float sMinEnergy = 1;
+
+    private final int mChannelCount;
+    private final Mode mMode;
+    private final int[] mDelaysUs;
+    private final float[] mWeights;
+
+    // Delay lines: the last mMaxDelay samples of each channel
+    private int[] mDelays;
+    private int mMaxDelay;
+    private short[] mDelayLines;
+
+    // Best channel selection state
+    private final float[] mNoiseFloors;
+    private final float[] mSnrs;
+    private int mSelected;
+    private int mCandidate = -1;
+    private int mCandidateFrames;
+
+    private MultiChannelMixer( int channelCount, Mode mode, int[] delaysUs, float[] weights ) {
+        mChannelCount = channelCount;
+        mMode = mode;
+        mDelaysUs = delaysUs;
+        mWeights = weights;
+        mNoiseFloors = new float[channelCount];
+        mSnrs = new float[channelCount];
+        prepare( sDefaultSampleRateInHz );
+    }
+
+    /**
+     * Passes through whichever channel has the best signal to noise ratio.
+     */
+    public static MultiChannelMixer createBestChannel( int channelCount ) {
+        return new MultiChannelMixer( channelCount, Mode.SELECT_BEST, new int[channelCount],
+            new float[channelCount] );
+    }
+
+    /**
+     * Sums the channels after delaying each one.
+     *
+     * @param delaysUs The delay in microseconds applied to each channel
+     * @param weights The gain applied to each channel, or @c null for an equal average
+     */
+    public static MultiChannelMixer createDelayAndSum( int[] delaysUs, float[] weights ) {
+        float[] channelWeights = new float[delaysUs.length];
+        for ( int i = 0; i < delaysUs.length; i++ ) {
+            channelWeights[i] = weights != null ? weights[i] : 1.0f / delaysUs.length;
+        }
+        return new MultiChannelMixer( delaysUs.length, Mode.DELAY_AND_SUM, delaysUs.clone(),
+            channelWeights );
+    }
+
+    /**
+     * Sizes the delay lines for audio captured at @c sampleRateInHz and clears all state.
+     */
+    void prepare( int sampleRateInHz ) {
+        mDelays = new int[mChannelCount];
+        int maxDelay = 0;
+        for ( int c = 0; c < mChannelCount; c++ ) {
+            mDelays[c] = ( int ) Math.round( mDelaysUs[c] * ( double ) sampleRateInHz / 1000000 );
+            maxDelay = Math.max( maxDelay, mDelays[c] );
+        }
+        mMaxDelay = maxDelay;
+        mDelayLines = new short[mChannelCount * maxDelay];
+        reset();
+    }
+
+    public int getChannelCount() { return mChannelCount; }
+
+    public Mode getMode() { return mMode; }
+
+    /**
+     * @return The channel currently passed through in @c SELECT_BEST mode
+     */
+    public int getSelectedChannel() { return mSelected; }
+
+    /**
+     * Mixes @c frames interleaved frames from @c input into @c frames mono samples in @c output.
+     */
+    void mix( short[] input, int frames, short[] output, int outputOffset ) {
+        if ( mMode == Mode.SELECT_BEST ) {
+            select( input, frames );
+            for ( int i = 0; i < frames; i++ ) {
+                output[outputOffset + i] = input[i * mChannelCount + mSelected];
+            }
+        } else {
+            delayAndSum( input, frames, output, outputOffset );
+        }
+    }
+
+    void reset() {
+        for ( int c = 0; c < mChannelCount; c++ ) mNoiseFloors[c] = -1;
+        mSelected = 0;
+        mCandidate = -1;
+        mCandidateFrames = 0;
+        for ( int i = 0; i < mDelayLines.length; i++ ) mDelayLines[i] = 0;
+    }
+
+    private void select( short[] input, int frames ) {
+        int best = mSelected;
+        for ( int c = 0; c < mChannelCount; c++ ) {
+            float energy = sMinEnergy;
+            for ( int i = 0; i < frames; i++ ) {
+                int sample = input[i * mChannelCount + c];
+                energy += sample * sample;
+            }
+            energy /= frames;
+            float floor = mNoiseFloors[c];
+            floor = floor < 0 || energy < floor ? energy : floor * sNoiseRise;
+            mNoiseFloors[c] = floor;
+            mSnrs[c] = energy / floor;
+            if ( mSnrs[c] > mSnrs[best] ) best = c;
+        }
+
+        float margin = ( float ) Math.pow( 10, sSwitchMarginDb / 10 );
+        if ( best != mSelected && mSnrs[best] > mSnrs[mSelected] * margin ) {
+            if ( best != mCandidate ) {
+                mCandidate = best;
+                mCandidateFrames = 0;
+            }
+            if ( ++mCandidateFrames >= sSwitchFrames ) {
+                mSelected = best;
+                mCandidate = -1;
+            }
+        } else {
+            mCandidate = -1;
+        }
+    }
+
+    private void delayAndSum( short[] input, int frames, short[] output, int outputOffset ) {
+        for ( int i = 0; i < frames; i++ ) {
+            float sum = 0;
+            for ( int c = 0; c < mChannelCount; c++ ) {
+                int source = i - mDelays[c];
+                int sample = source >= 0
+                    ? input[source * mChannelCount + c]
+                    : mDelayLines[c * mMaxDelay + mMaxDelay + source];
+                sum += mWeights[c] * sample;
+            }
+            output[outputOffset + i] = DcRemovalStage.clamp( sum );
+        }
+        // Keep the newest mMaxDelay samples of each channel for the next frame
+        for ( int c = 0; c < mChannelCount && mMaxDelay > 0; c++ ) {
+            int line = c * mMaxDelay;
+            int keep = Math.min( mMaxDelay, frames );
+            System.arraycopy( mDelayLines, line + keep, mDelayLines, line, mMaxDelay - keep );
+            for ( int i = 0; i < keep; i++ ) {
+                mDelayLines[line + mMaxDelay - keep + i] = input[( frames - keep + i ) * mChannelCount + c];
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-point polyphase resampler for PCM 16 mono audio, used to bring native-rate capture
+ * (e.g. 44.1 or 48 KHZ) down to the 16 KHZ the Engine expects.
+ *
+ * The rate ratio is reduced to L/M, and a Kaiser-windowed sinc low-pass prototype of
+ * L * @c sTapsPerPhase taps is split into L phases of Q15 coefficients. Each output sample
+ * costs @c sTapsPerPhase integer multiply-adds, and nothing is allocated after construction.
+ *
+ * Input is written straight into @c inputBuffer() at @c inputOffset(), after the samples kept
+ * from the previous call, so the filter history never needs a separate copy of the input.
+ */
+class PolyphaseResampler {
+
+    private static final int sTapsPerPhase = 128;
+    private static final int sCoefficientBits = 15;
+    private static final double sCutoffRatio = 0.4375; // 7 KHZ for a 16 KHZ output
+    private static final double sKaiserBeta = 8.6; // About 90 dB stop band attenuation
+
+    private final int mUpFactor; // L
+    private final int mDownFactor; // M
+    private final short[] mCoefficients; // Phase p tap i at [p * sTapsPerPhase + i]
+    private final short[] mInput; // sTapsPerPhase - 1 samples of history, then new input
+    private long mPosition; // Upsampled index of the next output, relative to the new input
+
+    /**
+     * @param maxInputSamples The largest number of samples passed to one @c process() call
+     */
+    PolyphaseResampler( int inputRateInHz, int outputRateInHz, int maxInputSamples ) {
+        int divisor = gcd( inputRateInHz, outputRateInHz );
+        mUpFactor = outputRateInHz / divisor;
+        mDownFactor = inputRateInHz / divisor;
+        mCoefficients = designFilter( mUpFactor,
+            sCutoffRatio * Math.min( inputRateInHz, outputRateInHz ) / ( ( double ) inputRateInHz * mUpFactor ) );
+        mInput = new short[sTapsPerPhase - 1 + maxInputSamples];
+    }
+
+    short[] inputBuffer() { return mInput; }
+
+    int inputOffset() { return sTapsPerPhase - 1; }
+
+    /**
+     * Resamples @c length new samples from @c inputBuffer() into @c output, starting at its
+     * first byte.
+     *
+     * @return The number of samples written to @c output
+     */
+    int process( int length, ByteBuffer output ) {
+        int produced = 0;
+        long end = ( long ) length * mUpFactor;
+        while ( mPosition < end ) {
+            int newest = ( int ) ( mPosition / mUpFactor ) + sTapsPerPhase - 1;
+            int coefficient = ( int ) ( mPosition % mUpFactor ) * sTapsPerPhase;
+            long accumulator = 0;
+            for ( int i = 0; i < sTapsPerPhase; i++ ) {
+                accumulator += mCoefficients[coefficient + i] * mInput[newest - i];
+            }
+            long sample = ( accumulator + ( 1 << ( sCoefficientBits - 1 ) ) ) >> sCoefficientBits;
+            if ( sample > Short.MAX_VALUE ) sample = Short.MAX_VALUE;
+            else if ( sample < Short.MIN_VALUE ) sample = Short.MIN_VALUE;
+            output.putShort( produced * 2, ( short ) sample );
+            produced++;
+            mPosition += mDownFactor;
+        }
+        mPosition -= end;
+        // Keep the newest samples as history for the next call
+        System.arraycopy( mInput, length, mInput, 0, sTapsPerPhase - 1 );
+        return produced;
+    }
+
+    void reset() {
+        mPosition = 0;
+        Arrays.fill( mInput, ( short ) 0 );
+    }
+
+    // cutoff is in cycles per sample of the upsampled rate
+    private static short[] designFilter( int phases, double cutoff ) {
+        int length = phases * sTapsPerPhase;
+        double center = ( length - 1 ) / 2.0;
+        double[] prototype = new double[length];
+        for ( int n = 0; n < length; n++ ) {
+            double t = n - center;
+            double sinc = t == 0 ? 2 * cutoff : Math.sin( 2 * Math.PI * cutoff * t ) / ( Math.PI * t );
+            double window = t / center;
+            prototype[n] = phases * sinc
+                * besselI0( sKaiserBeta * Math.sqrt( Math.max( 0, 1 - window * window ) ) )
+                / besselI0( sKaiserBeta );
+        }
+        short[] coefficients = new short[length];
+        for ( int p = 0; p < phases; p++ ) {
+            for ( int i = 0; i < sTapsPerPhase; i++ ) {
+                coefficients[p * sTapsPerPhase + i] =
+                    ( short ) Math.round( prototype[p + i * phases] * ( 1 << sCoefficientBits ) );
+            }
+        }
+        return coefficients;
+    }
+
+    private static double besselI0( double x ) {
+        double sum = 1;
+        double term = 1;
+        for ( int k = 1; k < 30; k++ ) {
+            term *= ( x / ( 2 * k ) ) * ( x / ( 2 * k ) );
+            sum += term;
+        }
+        return sum;
+    }
+
+    private static int gcd( int a, int b ) {
+        return b == 0 ? a : gcd( b, a % b );
+    }
+}
@@ -24,38 +24,85 @@ import android.support.annotation.Nullable;
 import com.amazon.sampleapp.aace.audio.AudioOutput;
 import com.amazon.sampleapp.aace.audio.AudioStream;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A @c AudioOutput capable to play raw PCM 16 bit data @ 16 KHZ.
+ *
+ * Playback runs on one long-lived thread per channel. Audio read from the @c AudioStream goes
+ * through a jitter buffer that is prefilled to a target delay before playback starts. If the
+ * buffer runs dry, silence is played in place of the missing audio and the underrun is
+ * counted. Audio that arrives after silence was played in its place is counted as late.
+ *
+ * The Engine reads into the jitter buffer array and @c AudioTrack plays straight from it, so
+ * audio is not copied again between the two.
  */
 public class RawAudioOutputHandler extends AudioOutput {
 
     private static final String sTag = "RawAudioAudioOutputHandler";
 
+    private static final int sSampleRateInHz = 16000;
+    private static final int sBytesPerMs = sSampleRateInHz * 2 / 1000; // PCM 16 mono
+    private static final int sFrameSize = 20 * sBytesPerMs; // 20 ms frames written to AudioTrack
+    private static final int sDefaultJitterDelayMs = 60;
+    private static final long sPollIntervalMs = 5; // Wait for the Engine when no data is available
+
+    private enum Command { PREPARE, PLAY, STOP, PAUSE, RESUME }
+
     private final Activity mActivity;
     private final String mName;
+    private final int mTargetDelayBytes; // Prefill before playback starts
+    private final int mJitterBufferSize; // Holds up to 3x the target delay
+    private final byte[] mJitterBuffer;
+    private final byte[] mSilence = new byte[sFrameSize];
+    private final BlockingQueue<Command> mCommands = new ArrayBlockingQueue<>( 16 );
     private AudioTrack mAudioTrack;
     private Thread mAudioPlaybackThread;
     private float mVolume = 0.5f;
     private MutedState mMutedState = MutedState.UNMUTED;
-    private AudioStream mAudioStream;
+    private volatile AudioStream mAudioStream;
+
+    // Owned by the playback thread
+    private int mBufferHead;
+    private int mBufferSize;
+    private boolean mPlaying;
+    private boolean mPrefilled;
+    private long mSilenceDebtBytes; // Silence played for audio that has not arrived yet
+
+    // Written by the playback thread, read from any thread
+    private volatile long mUnderrunCount;
+    private volatile long mLateBytes;
+    private volatile long mDroppedBytes;
 
     public RawAudioOutputHandler(
         Activity activity,
         String name ) {
+        this( activity, name, sDefaultJitterDelayMs );
+    }
+
+    public RawAudioOutputHandler(
+        Activity activity,
+        String name,
+        int jitterDelayMs ) {
         mActivity = activity;
         mName = name;
+        mTargetDelayBytes = Math.max( jitterDelayMs * sBytesPerMs, sFrameSize );
+        mJitterBufferSize = 3 * mTargetDelayBytes;
+        mJitterBuffer = new byte[mJitterBufferSize];
 
         initializePlayer();
     }
 
     private void initializePlayer() {
         int audioBufferSize = AudioTrack.getMinBufferSize(
-            16000,
+            sSampleRateInHz,
             AudioFormat.CHANNEL_OUT_MONO,
             AudioFormat.ENCODING_PCM_16BIT);
         mAudioTrack = new AudioTrack(
             AudioManager.STREAM_VOICE_CALL,
-            16000,
+            sSampleRateInHz,
             AudioFormat.CHANNEL_OUT_MONO,
             AudioFormat.ENCODING_PCM_16BIT,
             audioBufferSize,
@@ -63,16 +110,31 @@ public class RawAudioOutputHandler extends AudioOutput {
         if (mAudioTrack.getState() == AudioTrack.STATE_UNINITIALIZED) {
             throw new RuntimeException("Failed to create AudioTrack");
         }
-    }
 
-    private void resetPlayer() {
-        mAudioTrack.flush();
+        mAudioPlaybackThread = new Thread( new AudioPlaybackRunnable(), sTag + "-" + mName );
+        mAudioPlaybackThread.setDaemon( true );
+        mAudioPlaybackThread.start();
     }
 
     public boolean isPlaying() {
         return mAudioTrack.getPlayState() == AudioTrack.PLAYSTATE_PLAYING;
     }
 
+    /**
+     * @return The number of frames of silence played because the jitter buffer ran dry
+     */
+    public long getUnderrunCount() { return mUnderrunCount; }
+
+    /**
+     * @return The number of frames that arrived after silence had been played in their place
+     */
+    public long getLateFrameCount() { return mLateBytes / sFrameSize; }
+
+    /**
+     * @return The number of bytes discarded because the jitter buffer was full
+     */
+    public long getDroppedBytes() { return mDroppedBytes; }
+
     //
     // Handle playback directives from Engine
     //
@@ -80,8 +142,7 @@ public class RawAudioOutputHandler extends AudioOutput {
     @Override
     public boolean prepare( AudioStream stream, boolean repeating ) {
         mAudioStream = stream;
-        resetPlayer();
-        return true;
+        return sendCommand( Command.PREPARE );
     }
 
     @Override
@@ -91,28 +152,22 @@ public class RawAudioOutputHandler extends AudioOutput {
 
     @Override
     public boolean play() {
-        mAudioTrack.play();
-        mAudioPlaybackThread = new Thread(new AudioSampleReadWriteRunnable());
-        mAudioPlaybackThread.start();
-        return true;
+        return sendCommand( Command.PLAY );
     }
 
     @Override
     public boolean stop() {
-        mAudioTrack.stop();
-        return true;
+        return sendCommand( Command.STOP );
     }
 
     @Override
     public boolean pause() {
-        mAudioTrack.pause();
-        return true;
+        return sendCommand( Command.PAUSE );
     }
 
     @Override
     public boolean resume() {
-        mAudioTrack.play();
-        return true;
+        return sendCommand( Command.RESUME );
     }
 
     @Override
@@ -123,6 +178,10 @@ public class RawAudioOutputHandler extends AudioOutput {
     @Override
     public long getPosition() { return Math.abs( mAudioTrack.getPlaybackHeadPosition() ); }
 
+    private boolean sendCommand( Command command ) {
+        return mCommands.offer( command );
+    }
+
     //
     // Handle state changes and notify Engine
     //
@@ -135,26 +194,136 @@ public class RawAudioOutputHandler extends AudioOutput {
         mediaStateChanged( MediaState.STOPPED );
     }
 
-    private class AudioSampleReadWriteRunnable implements Runnable {
+    //
+    // Playback thread. Executes all commands and owns the jitter buffer.
+    //
+
+    private class AudioPlaybackRunnable implements Runnable {
         @Override
         public void run() {
-            onPlaybackStarted();
-
-            try {
-                byte[] audioBuffer = new byte[640];
-                while (isPlaying() && !mAudioStream.isClosed()) {
-                    int dataRead = mAudioStream.read(audioBuffer);
-                    if (dataRead > 0) {
-                        mAudioTrack.write(audioBuffer, 0, dataRead);
+            while ( true ) {
+                try {
+                    Command command = mPlaying
+                        ? mCommands.poll( mPrefilled ? 0 : sPollIntervalMs, TimeUnit.MILLISECONDS )
+                        : mCommands.take();
+                    if ( command != null ) {
+                        handleCommand( command );
+                    } else if ( mPlaying ) {
+                        playFrame();
                     }
+                } catch ( InterruptedException e ) {
+                    return;
+                } catch ( Exception exp ) {
+                    String message = exp.getMessage() != null ? exp.getMessage() : "";
+                    mediaError( MediaError.MEDIA_ERROR_UNKNOWN, message );
+                    if ( mPlaying ) stopPlayback();
                 }
-            } catch (Exception exp) {
-                String message = exp.getMessage() != null ? exp.getMessage() : "";
-                mediaError(MediaError.MEDIA_ERROR_UNKNOWN, message);
-            } finally {
-                onPlaybackStopped();
             }
         }
+
+        private void handleCommand( Command command ) {
+            switch ( command ) {
+                case PREPARE:
+                    mAudioTrack.flush();
+                    clearBuffer();
+                    break;
+                case PLAY:
+                case RESUME:
+                    if ( !mPlaying ) {
+                        mAudioTrack.play();
+                        mPlaying = true;
+                        onPlaybackStarted();
+                    }
+                    break;
+                case PAUSE:
+                    if ( mPlaying ) {
+                        mAudioTrack.pause();
+                        mPlaying = false;
+                        onPlaybackStopped();
+                    }
+                    break;
+                case STOP:
+                    if ( mPlaying ) {
+                        stopPlayback();
+                    } else {
+                        // Already not playing. Notify Engine of stop
+                        mAudioTrack.stop();
+                        onPlaybackStopped();
+                    }
+                    break;
+            }
+        }
+
+        private void stopPlayback() {
+            mAudioTrack.stop();
+            mPlaying = false;
+            clearBuffer();
+            onPlaybackStopped();
+        }
+
+        private void clearBuffer() {
+            mBufferHead = 0;
+            mBufferSize = 0;
+            mPrefilled = false;
+            mSilenceDebtBytes = 0;
+        }
+
+        private void playFrame() {
+            AudioStream stream = mAudioStream;
+            boolean closed = stream == null || stream.isClosed();
+            if ( !closed ) fillBuffer( stream );
+
+            if ( !mPrefilled ) {
+                // Hold playback until the target delay is buffered, or the stream has ended
+                if ( mBufferSize < mTargetDelayBytes && !closed ) return;
+                mPrefilled = true;
+            }
+
+            if ( mBufferSize > 0 ) {
+                int size = Math.min( sFrameSize, mBufferSize );
+                int first = Math.min( size, mJitterBufferSize - mBufferHead );
+                writeFromBuffer( mBufferHead, first );
+                if ( first < size ) writeFromBuffer( 0, size - first );
+                mBufferHead = ( mBufferHead + size ) % mJitterBufferSize;
+                mBufferSize -= size;
+            } else if ( !closed ) {
+                // Conceal the gap; the blocking write keeps the thread paced in real time
+                mUnderrunCount++;
+                mSilenceDebtBytes += sFrameSize;
+                mAudioTrack.write( mSilence, 0, sFrameSize );
+            } else {
+                // Stream ended and everything has been written. Let AudioTrack drain and stop.
+                stopPlayback();
+            }
+        }
+
+        private void writeFromBuffer( int offset, int size ) {
+            mAudioTrack.write( mJitterBuffer, offset, size );
+        }
+
+        // Reads whatever the Engine has available without blocking
+        private void fillBuffer( AudioStream stream ) {
+            int size;
+            do {
+                if ( mBufferSize == mJitterBufferSize ) {
+                    // Too far behind real time; drop the oldest frame
+                    mBufferHead = ( mBufferHead + sFrameSize ) % mJitterBufferSize;
+                    mBufferSize -= sFrameSize;
+                    mDroppedBytes += sFrameSize;
+                }
+                int tail = ( mBufferHead + mBufferSize ) % mJitterBufferSize;
+                int space = Math.min( mJitterBufferSize - mBufferSize, mJitterBufferSize - tail );
+                size = stream.read( mJitterBuffer, tail, space );
+                if ( size > 0 ) {
+                    mBufferSize += size;
+                    if ( mSilenceDebtBytes > 0 ) {
+                        long late = Math.min( mSilenceDebtBytes, size );
+                        mSilenceDebtBytes -= late;
+                        mLateBytes += late;
+                    }
+                }
+            } while ( size > 0 );
+        }
     }
 
     @Override
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Limits peaks with a soft knee. Samples below the threshold pass unchanged, and samples above
+ * it are compressed smoothly toward full scale instead of being clipped.
+ */
+public class SoftLimiterStage implements AudioProcessingStage {
+
+    private static final float sDefaultThresholdDbfs = -3;
+
+    private final float mThreshold;
+    private final float mHeadroom;
+
+    public SoftLimiterStage() {
+        this( sDefaultThresholdDbfs );
+    }
+
+    public SoftLimiterStage( float thresholdDbfs ) {
+        mThreshold = ( float ) Math.pow( 10, thresholdDbfs / 20 ) * Short.MAX_VALUE;
+        mHeadroom = Short.MAX_VALUE - mThreshold;
+    }
+
+    @Override
+    public void process( short[] samples, int length ) {
+        for ( int i = 0; i < length; i++ ) {
+            int sample = samples[i];
+            int magnitude = Math.abs( sample );
+            if ( magnitude <= mThreshold ) continue;
+            float limited = mThreshold
+                + mHeadroom * ( float ) Math.tanh( ( magnitude - mThreshold ) / mHeadroom );
+            samples[i] = ( short ) ( sample < 0 ? -limited : limited );
+        }
+    }
+
+    @Override
+    public void reset() {}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+/**
+ * Voice activity statistics for one capture session, from @c startAudioInput() to
+ * @c stopAudioInput().
+ */
+public class UtteranceStats {
+
+    private final int mSpeechMs;
+    private final int mSilenceMs;
+    private final long mBytesSaved;
+    private final boolean mEndpointed;
+
+    UtteranceStats( int speechMs, int silenceMs, long bytesSaved, boolean endpointed ) {
+        mSpeechMs = speechMs;
+        mSilenceMs = silenceMs;
+        mBytesSaved = bytesSaved;
+        mEndpointed = endpointed;
+    }
+
+    public int getSpeechMs() { return mSpeechMs; }
+
+    public int getSilenceMs() { return mSilenceMs; }
+
+    /**
+     * @return The number of silent bytes not written to the Engine
+     */
+    public long getBytesSaved() { return mBytesSaved; }
+
+    /**
+     * @return @c true if the end of speech was detected on the device
+     */
+    public boolean isEndpointed() { return mEndpointed; }
+
+    @Override
+    public String toString() {
+        return "speechMs=" + mSpeechMs + " silenceMs=" + mSilenceMs
+            + " bytesSaved=" + mBytesSaved + " endpointed=" + mEndpointed;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.sampleapp.impl.Audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Energy-based voice activity detector run on the captured 10 ms frames of an utterance.
+ *
+ * A frame is speech when its level is well above an adaptive noise floor. Speech starts after a
+ * few consecutive speech frames and is held for a hangover period, so short pauses between
+ * words do not end it. The floor follows quieter frames outside speech, and during a loud run
+ * longer than any word it slowly rises towards the quietest frame of the run, so a step up in
+ * background noise, e.g. a fan or an open window, ends up as the new floor instead of endless
+ * speech. Once enough speech has been heard, a long enough pause is reported once
+ * as the end of speech.
+ *
+ * The detector also tells the capture path when silence has lasted long enough that further
+ * silent frames need not be sent.
+ */
+public class VoiceActivityDetector {
+
+    /**
+     * Notified on the capture thread when the end of speech is detected. Implementations must
+     * return quickly.
+     */
+    public interface Listener {
+        void onEndOfSpeech();
+    }
+
+    private static final int sFrameMs = 10;
+    private static final int sBytesPerSample = 2;
+    private static final float sSpeechMarginDb = 9; // Above the noise floor
+    private static final float sMinSpeechDbfs = -60;
+    private static final float sInitialNoiseFloorDbfs = -50;
+    private static final int sOnsetFrames = 3;
+    private static final int sHangoverFrames = 20;
+    private static final int sMinSpeechMs = 300;
+    private static final int sDefaultEndpointMs = 800;
+    private static final int sSilenceKeepMs = 300; // Silence sent before suppression starts
+    private static final int sLoudHoldFrames = 100; // Loud run after which the floor rises
+    private static final float sLoudFloorRate = 0.01f;
+
+    private final Listener mListener;
+    private final int mEndpointFrames;
+
+    private float mNoiseFloorDb;
+    private boolean mInSpeech;
+    private int mSpeechRun;
+    private float mSpeechRunMinDb; // Quietest frame of the current loud run
+    private int mSilenceRun;
+    private boolean mHeardSpeech;
+    private boolean mEndpointed;
+
+    // Per-utterance counters
+    private int mSpeechFrames;
+    private int mSilenceFrames;
+
+    public VoiceActivityDetector( Listener listener ) {
+        this( listener, sDefaultEndpointMs );
+    }
+
+    /**
+     * @param endpointMs The pause after speech that ends the utterance
+     */
+    public VoiceActivityDetector( Listener listener, int endpointMs ) {
+        mListener = listener;
+        mEndpointFrames = endpointMs / sFrameMs;
+        reset();
+    }
+
+    /**
+     * Starts a new utterance.
+     */
+    void reset() {
+        mNoiseFloorDb = sInitialNoiseFloorDbfs;
+        mInSpeech = false;
+        mSpeechRun = 0;
+        mSilenceRun = 0;
+        mHeardSpeech = false;
+        mEndpointed = false;
+        mSpeechFrames = 0;
+        mSilenceFrames = 0;
+    }
+
+    /**
+     * Classifies the PCM 16 frame in the first @c length bytes of @c frame.
+     *
+     * @return @c true if the frame is part of speech
+     */
+    boolean process( ByteBuffer frame, int length ) {
+        float levelDb = levelDbfs( frame, length / sBytesPerSample );
+        boolean loud = levelDb > mNoiseFloorDb + sSpeechMarginDb && levelDb > sMinSpeechDbfs;
+
+        if ( loud ) {
+            mSpeechRunMinDb = mSpeechRun == 0 ? levelDb : Math.min( mSpeechRunMinDb, levelDb );
+            mSpeechRun++;
+            mSilenceRun = 0;
+            if ( mSpeechRun >= sOnsetFrames ) mInSpeech = true;
+            // Nobody speaks without a pause for this long, so the level is likely new noise
+            if ( mSpeechRun > sLoudHoldFrames ) {
+                mNoiseFloorDb += ( mSpeechRunMinDb - mNoiseFloorDb ) * sLoudFloorRate;
+            }
+        } else {
+            mSpeechRun = 0;
+            mSilenceRun++;
+            if ( mSilenceRun > sHangoverFrames ) mInSpeech = false;
+            // Track the floor down quickly and up slowly, and only outside speech
+            if ( !mInSpeech ) {
+                float rate = levelDb < mNoiseFloorDb ? 0.2f : 0.02f;
+                mNoiseFloorDb += ( levelDb - mNoiseFloorDb ) * rate;
+            }
+        }
+
+        if ( mInSpeech ) {
+            mSpeechFrames++;
+            if ( mSpeechFrames * sFrameMs >= sMinSpeechMs ) mHeardSpeech = true;
+        } else {
+            mSilenceFrames++;
+        }
+
+        if ( mHeardSpeech && !mEndpointed && mSilenceRun >= mEndpointFrames ) {
+            mEndpointed = true;
+            if ( mListener != null ) mListener.onEndOfSpeech();
+        }
+        return mInSpeech;
+    }
+
+    /**
+     * @return @c true if silence has lasted long enough that the current frame need not be sent
+     */
+    boolean isSuppressing() {
+        return !mInSpeech && mSpeechRun == 0 && mSilenceRun * sFrameMs > sSilenceKeepMs;
+    }
+
+    int getSpeechMs() { return mSpeechFrames * sFrameMs; }
+
+    int getSilenceMs() { return mSilenceFrames * sFrameMs; }
+
+    boolean isEndpointed() { return mEndpointed; }
+
+    private static float levelDbfs( ByteBuffer frame, int samples ) {
+        if ( samples == 0 ) return -100;
+        double energy = 0;
+        for ( int i = 0; i < samples; i++ ) {
+            int sample = frame.getShort( i * sBytesPerSample );
+            energy += sample * sample;
+        }
+        double rms = Math.sqrt( energy / samples ) / Short.MAX_VALUE;
+        return ( float ) ( 20 * Math.log10( Math.max( rms, 1e-5 ) ) );
+    }
+}
@@ -20,10 +20,15 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.SharedPreferences;
+import android.os.SystemClock;
 
 import com.amazon.sampleapp.aace.alexa.AuthProvider;
 import com.amazon.sampleapp.aace.network.NetworkInfoProvider;
 import com.amazon.sampleapp.R;
+import com.amazon.sampleapp.impl.Events.EventBus;
+import com.amazon.sampleapp.impl.Metrics.Counter;
+import com.amazon.sampleapp.impl.Metrics.Histogram;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
 import com.amazon.sampleapp.impl.NetworkInfoProvider.NetworkConnectionObserver;
 
 import org.json.JSONException;
@@ -37,8 +42,6 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
@@ -57,6 +60,13 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
 
     private static final int sResponseOk = 200;
 
+    private static final Counter sRefreshSuccessMetric =
+        MetricsRegistry.getDefault().counter( "auth.tokenRefresh.success" );
+    private static final Counter sRefreshFailureMetric =
+        MetricsRegistry.getDefault().counter( "auth.tokenRefresh.failure" );
+    private static final Histogram sRefreshLatencyMetric =
+        MetricsRegistry.getDefault().histogram( "auth.tokenRefresh.latencyMs" );
+
     // Refresh access token 2 minutes before it expires
     private static final int sRefreshAccessTokenTime = 120000;
 
@@ -82,8 +92,10 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
     private final SharedPreferences mPreferences;
     private final Activity mActivity;
 
-    // List of Authentication observers
-    private Set<AuthStateObserver> mObservers;
+    // Authentication observers
+    private final EventBus<AuthStateChange> mAuthStateBus = new EventBus<>( "authState" );
+    // Orders a new observer's current state with the changes published around it
+    private final Object mAuthStateLock = new Object();
 
     private AuthProvider.AuthState mCurrentAuthState;
     private AuthProvider.AuthError mCurrentAuthError;
@@ -109,7 +121,6 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
         mClientId = mPreferences.getString( mActivity.getString( R.string.preference_client_id ), "" );
         mProductID = mPreferences.getString( mActivity.getString( R.string.preference_product_id ), "" );
         mProductDSN = mPreferences.getString( mActivity.getString( R.string.preference_product_dsn ), "" );
-        mObservers = new HashSet<>(1);
 
         mCurrentAuthState = AuthProvider.AuthState.UNINITIALIZED;
         mCurrentAuthError = AuthProvider.AuthError.NO_ERROR;
@@ -349,6 +360,7 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
                     DataOutputStream os = null;
                     InputStream response = null;
 
+                long requestStart = SystemClock.elapsedRealtime();
                 try {
                     URL obj = new URL( sTokenRequestUrl );
                     con = ( HttpsURLConnection ) obj.openConnection();
@@ -359,6 +371,7 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
                     os.writeBytes( urlParameters );
 
                     int responseCode = con.getResponseCode();
+                    sRefreshLatencyMetric.record( SystemClock.elapsedRealtime() - requestStart );
                     if ( responseCode == sResponseOk ) response = con.getInputStream();
 
                 } catch ( IOException e ) {
@@ -389,12 +402,15 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
 
                         mCurrentAuthState = AuthProvider.AuthState.REFRESHED;
                         mCurrentAuthError = AuthProvider.AuthError.NO_ERROR;
+                        sRefreshSuccessMetric.increment();
                         notifyAuthObservers();
 
                     } catch ( JSONException e ) {
+                        sRefreshFailureMetric.increment();
                     }
 
                 } else {
+                    sRefreshFailureMetric.increment();
                     mCurrentAuthState = AuthProvider.AuthState.UNINITIALIZED;
                     mCurrentAuthError = AuthProvider.AuthError.AUTHORIZATION_FAILED;
                     mCurrentAuthToken = "";
@@ -472,16 +488,42 @@ public class LoginWithAmazonCBL implements AuthHandler, NetworkConnectionObserve
     }
 
     // Auth State Observable methods
-    public void registerAuthStateObserver( AuthStateObserver observer ) {
+
+    /**
+     * Notifies @c observer of the current state before returning, then of each change on a
+     * background thread.
+     */
+    public void registerAuthStateObserver( final AuthStateObserver observer ) {
         if (observer == null) return;
-        mObservers.add(observer);
-        observer.onAuthStateChanged( mCurrentAuthState, mCurrentAuthError, mCurrentAuthToken);
+        EventBus.Subscriber<AuthStateChange> subscriber = new EventBus.Subscriber<AuthStateChange>() {
+            @Override
+            public void onEvent( AuthStateChange change ) {
+                observer.onAuthStateChanged( change.mState, change.mError, change.mToken );
+            }
+        };
+        // A change published after the current state is delivered behind it, never ahead of it
+        synchronized ( mAuthStateLock ) {
+            observer.onAuthStateChanged( mCurrentAuthState, mCurrentAuthError, mCurrentAuthToken );
+            mAuthStateBus.subscribe( subscriber, EventBus.Delivery.BACKGROUND );
+        }
     }
 
     private void notifyAuthObservers(){
-        if (mObservers == null) return;
-        for (AuthStateObserver observer : mObservers) {
-            observer.onAuthStateChanged( mCurrentAuthState, mCurrentAuthError, mCurrentAuthToken );
+        synchronized ( mAuthStateLock ) {
+            mAuthStateBus.publish( new AuthStateChange( mCurrentAuthState, mCurrentAuthError, mCurrentAuthToken ) );
+        }
+    }
+
+    // The auth state at the time of a change, as delivered to the observers
+    private static class AuthStateChange {
+        final AuthProvider.AuthState mState;
+        final AuthProvider.AuthError mError;
+        final String mToken;
+
+        AuthStateChange( AuthProvider.AuthState state, AuthProvider.AuthError error, String token ) {
+            mState = state;
+            mError = error;
+            mToken = token;
         }
     }
 
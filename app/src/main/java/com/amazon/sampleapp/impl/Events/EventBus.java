@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Events;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.amazon.sampleapp.impl.Metrics.Counter;
+import com.amazon.sampleapp.impl.Metrics.Histogram;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers events of one type to subscribers, each on the thread it chose.
+ *
+ * @c publish() never runs subscriber code on the publishing thread, except for subscribers
+ * that asked for @c Delivery.INLINE. Other subscribers each have a bounded queue of events,
+ * drained in order on the main thread or a shared background pool; when a subscriber falls
+ * @c QUEUE_CAPACITY events behind, its oldest event is dropped. The subscriber list is copy on
+ * write, so publishing takes no lock and may race freely with subscribing.
+ *
+ * Each bus records in the default @c MetricsRegistry, under "events.<name>.":
+ * "dispatchLatencyUs" from publish to delivery, "dropped" and "errors" thrown by subscribers.
+ */
+public class EventBus<T> {
+
+    /**
+     * Receives the events of a bus.
+     */
+    public interface Subscriber<T> {
+        void onEvent( T event );
+    }
+
+    /**
+     * Where a subscriber receives its events.
+     */
+    public enum Delivery {
+        /** On the publishing thread, before @c publish() returns. For short, thread safe code. */
+        INLINE,
+        /** On the main thread, e.g. for updating views. */
+        MAIN_THREAD,
+        /** On a shared background thread. */
+        BACKGROUND
+    }
+
+    public static final int QUEUE_CAPACITY = 256;
+
+    private static final String sTag = "EventBus";
+    private static final int sBackgroundThreads = 2;
+    private static final int sMaxEventsPerDrain = 64; // Then yield the thread to others
+    private static final long[] sLatencyBucketsUs = MetricsRegistry.createBuckets( 10, 10000000 );
+
+    private static ExecutorService sBackgroundExecutor;
+    private static Executor sMainThreadExecutor;
+
+    private final String mName;
+    private final CopyOnWriteArrayList<Subscription> mSubscriptions = new CopyOnWriteArrayList<>();
+    private final Histogram mDispatchLatency;
+    private final Counter mDroppedCount;
+    private final Counter mErrorCount;
+
+    /**
+     * @param name Names the metrics of this bus
+     */
+    public EventBus( String name ) {
+        mName = name;
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        mDispatchLatency = registry.histogram( "events." + name + ".dispatchLatencyUs", sLatencyBucketsUs );
+        mDroppedCount = registry.counter( "events." + name + ".dropped" );
+        mErrorCount = registry.counter( "events." + name + ".errors" );
+    }
+
+    public String getName() { return mName; }
+
+    public Subscription subscribe( Subscriber<T> subscriber, Delivery delivery ) {
+        Subscription subscription = new Subscription( subscriber, delivery );
+        mSubscriptions.add( subscription );
+        return subscription;
+    }
+
+    public boolean hasSubscribers() { return !mSubscriptions.isEmpty(); }
+
+    /**
+     * Passes @c event to every subscriber. May be called from any thread.
+     */
+    public void publish( T event ) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        for ( Subscription subscription : mSubscriptions ) {
+            subscription.enqueue( event, now );
+        }
+    }
+
+    /**
+     * @return The number of events dropped because a subscriber fell behind
+     */
+    public long getDroppedCount() { return mDroppedCount.get(); }
+
+    private static synchronized Executor getExecutor( Delivery delivery ) {
+        if ( delivery == Delivery.MAIN_THREAD ) {
+            if ( sMainThreadExecutor == null ) {
+                final Handler handler = new Handler( Looper.getMainLooper() );
+                sMainThreadExecutor = new Executor() {
+                    @Override
+                    public void execute( Runnable runnable ) {
+                        handler.post( runnable );
+                    }
+                };
+            }
+            return sMainThreadExecutor;
+        }
+        if ( sBackgroundExecutor == null ) {
+            sBackgroundExecutor = Executors.newFixedThreadPool( sBackgroundThreads, new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable runnable ) {
+                    Thread thread = new Thread( runnable, sTag + "-" + mCount.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+        return sBackgroundExecutor;
+    }
+
+    // An event waiting for delivery, and when it was published
+    private static class Envelope<T> {
+        final T mEvent;
+        final long mPublishNanos;
+
+        Envelope( T event, long publishNanos ) {
+            mEvent = event;
+            mPublishNanos = publishNanos;
+        }
+    }
+
+    /**
+     * A subscriber's registration and event queue. Events are delivered one at a time, in the
+     * order they were published.
+     */
+    public class Subscription implements Runnable {
+
+        private final Subscriber<T> mSubscriber;
+        private final Executor mExecutor; // null for inline delivery
+        private final ConcurrentLinkedQueue<Envelope<T>> mQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger mQueueSize = new AtomicInteger();
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        private volatile boolean mCancelled;
+
+        Subscription( Subscriber<T> subscriber, Delivery delivery ) {
+            mSubscriber = subscriber;
+            mExecutor = delivery == Delivery.INLINE ? null : getExecutor( delivery );
+        }
+
+        /**
+         * Passes @c event to this subscriber only, in order with the events of the bus, e.g.
+         * the current state right after subscribing. For such a snapshot not to arrive after a
+         * newer event, take it, subscribe and deliver it under the lock held around @c publish().
+         */
+        public void deliver( T event ) {
+            enqueue( event, SystemClock.elapsedRealtimeNanos() );
+        }
+
+        /**
+         * Stops delivery. Events already queued are dropped.
+         */
+        public void cancel() {
+            mCancelled = true;
+            mSubscriptions.remove( this );
+            mQueue.clear();
+        }
+
+        void enqueue( T event, long publishNanos ) {
+            if ( mCancelled ) return;
+            if ( mExecutor == null ) {
+                dispatch( event, publishNanos );
+                return;
+            }
+            mQueue.offer( new Envelope<>( event, publishNanos ) );
+            if ( mQueueSize.incrementAndGet() > QUEUE_CAPACITY && mQueue.poll() != null ) {
+                mQueueSize.decrementAndGet();
+                mDroppedCount.increment();
+            }
+            if ( mScheduled.compareAndSet( false, true ) ) {
+                mExecutor.execute( this );
+            }
+        }
+
+        // Drains the queue on the subscriber's executor
+        @Override
+        public void run() {
+            for ( int i = 0; i < sMaxEventsPerDrain && !mCancelled; i++ ) {
+                Envelope<T> envelope = mQueue.poll();
+                if ( envelope == null ) break;
+                mQueueSize.decrementAndGet();
+                dispatch( envelope.mEvent, envelope.mPublishNanos );
+            }
+            mScheduled.set( false );
+            // Catch events enqueued after the last poll, or left by the drain limit
+            if ( !mQueue.isEmpty() && !mCancelled && mScheduled.compareAndSet( false, true ) ) {
+                mExecutor.execute( this );
+            }
+        }
+
+        private void dispatch( T event, long publishNanos ) {
+            mDispatchLatency.record( ( SystemClock.elapsedRealtimeNanos() - publishNanos ) / 1000 );
+            try {
+                mSubscriber.onEvent( event );
+            } catch ( RuntimeException e ) {
+                mErrorCount.increment();
+                Log.e( sTag, "Subscriber of " + mName + " failed", e );
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recent log records in a fixed-size memory-mapped file.
+ *
+ * Records are written to the mapping, so they reach the file through the page cache even if
+ * the process dies. The file is reopened and appended to on the next start, and
+ * @c FlightRecorderReader decodes it offline.
+ *
+ * File layout, little endian:
+ * <pre>
+ *   header   magic, version, block size, block count, source capacity, source count
+ *   sources  source capacity entries of 64 bytes: length byte, UTF-8 name
+ *   blocks   block count blocks: 8 byte sequence number, then records
+ *   record   u16 length, u8 level, u8 flags, u16 source id, i64 time in ms, UTF-8 message
+ * </pre>
+ * A record length of 0 ends a block. Once every block is used the block with the lowest
+ * sequence number is overwritten. Messages are cut to @c MAX_MESSAGE_BYTES, so each record
+ * costs the same bounded work however long the message or busy the log.
+ *
+ * Not thread safe; records are written by the logging thread only.
+ */
+public class FlightRecorder implements Closeable {
+
+    static final int MAGIC = 0x31524641; // "AFR1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SOURCE_ENTRY_SIZE = 64;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 14;
+    static final int MAX_MESSAGE_BYTES = 1024;
+    static final int FLAG_TRUNCATED = 1;
+    static final int UNKNOWN_SOURCE = 0xffff;
+
+    // Header fields
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_BLOCK_SIZE = 8;
+    static final int OFFSET_BLOCK_COUNT = 12;
+    static final int OFFSET_SOURCE_CAPACITY = 16;
+    static final int OFFSET_SOURCE_COUNT = 20;
+
+    private static final int sDefaultBlockSize = 4096;
+    private static final int sDefaultBlockCount = 256; // 1 MB of records
+    private static final int sDefaultSourceCapacity = 256;
+
+    private final File mFile;
+    private final RandomAccessFile mRandomAccessFile;
+    private final MappedByteBuffer mBuffer;
+    private final ByteBuffer mView; // Position selects where bulk puts go
+    private final int mBlockSize;
+    private final int mBlockCount;
+    private final int mSourceCapacity;
+    private final int mBlocksOffset;
+
+    private final Map<String, Integer> mSourceIds = new HashMap<>();
+    private final CharsetEncoder mEncoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput( CodingErrorAction.REPLACE )
+        .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    private final ByteBuffer mMessage = ByteBuffer.allocate( MAX_MESSAGE_BYTES );
+
+    private int mBlock; // Block being written
+    private int mBlockOffset; // Offset of the next record in the block
+    private long mSequence; // Sequence number of the block being written
+    private long mRecordCount;
+
+    private FlightRecorder( File file, int blockSize, int blockCount, int sourceCapacity )
+            throws IOException {
+        mFile = file;
+        mBlockSize = blockSize;
+        mBlockCount = blockCount;
+        mSourceCapacity = sourceCapacity;
+        mBlocksOffset = HEADER_SIZE + sourceCapacity * SOURCE_ENTRY_SIZE;
+        long size = mBlocksOffset + ( long ) blockSize * blockCount;
+
+        mRandomAccessFile = new RandomAccessFile( file, "rw" );
+        try {
+            boolean reuse = mRandomAccessFile.length() == size;
+            mRandomAccessFile.setLength( size );
+            mBuffer = mRandomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+            mBuffer.order( ByteOrder.LITTLE_ENDIAN );
+            mView = mBuffer.duplicate().order( ByteOrder.LITTLE_ENDIAN );
+            if ( !reuse || !resume() ) initialize();
+        } catch ( IOException | RuntimeException e ) {
+            mRandomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens or creates a recorder file of about 1 MB. Records already in the file are kept if it
+     * has the same layout.
+     */
+    public static FlightRecorder open( File file ) throws IOException {
+        return open( file, sDefaultBlockCount );
+    }
+
+    /**
+     * @param blockCount The number of 4 KB blocks of records to keep
+     */
+    public static FlightRecorder open( File file, int blockCount ) throws IOException {
+        return new FlightRecorder( file, sDefaultBlockSize, Math.max( 2, blockCount ),
+            sDefaultSourceCapacity );
+    }
+
+    public File getFile() { return mFile; }
+
+    /**
+     * @return The number of records written since the recorder was opened
+     */
+    public long getRecordCount() { return mRecordCount; }
+
+    private void initialize() {
+        for ( int i = 0; i < mBlocksOffset; i++ ) mBuffer.put( i, ( byte ) 0 );
+        for ( int block = 0; block < mBlockCount; block++ ) {
+            mBuffer.putLong( blockStart( block ), 0 );
+        }
+        mBuffer.putInt( OFFSET_VERSION, VERSION );
+        mBuffer.putInt( OFFSET_BLOCK_SIZE, mBlockSize );
+        mBuffer.putInt( OFFSET_BLOCK_COUNT, mBlockCount );
+        mBuffer.putInt( OFFSET_SOURCE_CAPACITY, mSourceCapacity );
+        mBuffer.putInt( OFFSET_SOURCE_COUNT, 0 );
+        mBuffer.putInt( OFFSET_MAGIC, MAGIC ); // Last, so a half-initialized file is not reused
+        mSourceIds.clear();
+        mSequence = 0;
+        startBlock( 0 );
+    }
+
+    // Continues after the newest block of a file with the same layout
+    private boolean resume() {
+        if ( mBuffer.getInt( OFFSET_MAGIC ) != MAGIC
+                || mBuffer.getInt( OFFSET_VERSION ) != VERSION
+                || mBuffer.getInt( OFFSET_BLOCK_SIZE ) != mBlockSize
+                || mBuffer.getInt( OFFSET_BLOCK_COUNT ) != mBlockCount
+                || mBuffer.getInt( OFFSET_SOURCE_CAPACITY ) != mSourceCapacity ) {
+            return false;
+        }
+        int sourceCount = Math.min( mBuffer.getInt( OFFSET_SOURCE_COUNT ), mSourceCapacity );
+        for ( int id = 0; id < sourceCount; id++ ) {
+            mSourceIds.put( readSource( mBuffer, HEADER_SIZE, id ), id );
+        }
+        int newest = 0;
+        for ( int block = 1; block < mBlockCount; block++ ) {
+            if ( mBuffer.getLong( blockStart( block ) ) > mBuffer.getLong( blockStart( newest ) ) ) {
+                newest = block;
+            }
+        }
+        // Start a fresh block, so a record torn by the previous process stays at an end
+        mSequence = mBuffer.getLong( blockStart( newest ) );
+        startBlock( ( newest + 1 ) % mBlockCount );
+        return true;
+    }
+
+    static String readSource( ByteBuffer buffer, int tableOffset, int id ) {
+        int entry = tableOffset + id * SOURCE_ENTRY_SIZE;
+        int length = Math.min( buffer.get( entry ) & 0xff, SOURCE_ENTRY_SIZE - 1 );
+        byte[] name = new byte[length];
+        for ( int i = 0; i < length; i++ ) name[i] = buffer.get( entry + 1 + i );
+        return new String( name, StandardCharsets.UTF_8 );
+    }
+
+    private int blockStart( int block ) {
+        return mBlocksOffset + block * mBlockSize;
+    }
+
+    private void startBlock( int block ) {
+        int start = blockStart( block );
+        mBlock = block;
+        mBlockOffset = BLOCK_HEADER_SIZE;
+        mBuffer.putShort( start + BLOCK_HEADER_SIZE, ( short ) 0 ); // No records yet
+        mBuffer.putLong( start, ++mSequence );
+    }
+
+    /**
+     * Appends one record. Must only be called from the logging thread.
+     */
+    void record( Level level, long time, String source, String message ) {
+        mEncoder.reset();
+        mMessage.clear();
+        boolean truncated = message != null
+            && mEncoder.encode( CharBuffer.wrap( message ), mMessage, true ).isOverflow();
+        mMessage.flip();
+
+        int length = RECORD_HEADER_SIZE + mMessage.remaining();
+        if ( mBlockOffset + length > mBlockSize ) {
+            startBlock( ( mBlock + 1 ) % mBlockCount );
+        }
+        int position = blockStart( mBlock ) + mBlockOffset;
+        mBuffer.put( position + 2, ( byte ) level.ordinal() );
+        mBuffer.put( position + 3, ( byte ) ( truncated ? FLAG_TRUNCATED : 0 ) );
+        mBuffer.putShort( position + 4, ( short ) sourceId( source ) );
+        mBuffer.putLong( position + 6, time );
+        mView.clear();
+        mView.position( position + RECORD_HEADER_SIZE );
+        mView.put( mMessage );
+        if ( mBlockOffset + length + 2 <= mBlockSize ) {
+            mBuffer.putShort( position + length, ( short ) 0 ); // End of block until the next record
+        }
+        mBuffer.putShort( position, ( short ) length ); // Written last, so a torn record reads as the end
+        mBlockOffset += length;
+        mRecordCount++;
+    }
+
+    private int sourceId( String source ) {
+        if ( source == null ) return UNKNOWN_SOURCE;
+        Integer id = mSourceIds.get( source );
+        if ( id != null ) return id;
+        int count = mSourceIds.size();
+        if ( count >= mSourceCapacity ) return UNKNOWN_SOURCE;
+
+        byte[] name = source.getBytes( StandardCharsets.UTF_8 );
+        int length = Math.min( name.length, SOURCE_ENTRY_SIZE - 1 );
+        int entry = HEADER_SIZE + count * SOURCE_ENTRY_SIZE;
+        mBuffer.put( entry, ( byte ) length );
+        for ( int i = 0; i < length; i++ ) mBuffer.put( entry + 1 + i, name[i] );
+        mBuffer.putInt( OFFSET_SOURCE_COUNT, count + 1 );
+        mSourceIds.put( source, count );
+        return count;
+    }
+
+    /**
+     * Writes the mapped records to storage. Only needed to survive a system crash or power
+     * loss; records already survive the death of the process.
+     */
+    public void flush() {
+        mBuffer.force();
+    }
+
+    /**
+     * Writes the records as gzip compressed text to @c target, e.g. for attaching to a report.
+     */
+    public void exportGzip( File target ) throws IOException {
+        flush();
+        new FlightRecorderReader( mFile ).exportGzip( target );
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        mRandomAccessFile.close();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decodes a @c FlightRecorder file, oldest record first.
+ *
+ * Runs without the Engine, so a file pulled off a device can be decoded on a desktop:
+ * <pre>
+ *   java com.amazon.sampleapp.impl.Logger.FlightRecorderReader recorder.bin [out.txt.gz]
+ * </pre>
+ * Records cut short by the death of the writing process are skipped.
+ */
+public class FlightRecorderReader {
+
+    /**
+     * One decoded log record.
+     */
+    public static class Record {
+
+        private final Level mLevel;
+        private final long mTime;
+        private final String mSource;
+        private final String mMessage;
+        private final boolean mTruncated;
+
+        Record( Level level, long time, String source, String message, boolean truncated ) {
+            mLevel = level;
+            mTime = time;
+            mSource = source;
+            mMessage = message;
+            mTruncated = truncated;
+        }
+
+        public Level getLevel() { return mLevel; }
+
+        public long getTime() { return mTime; }
+
+        public String getSource() { return mSource; }
+
+        public String getMessage() { return mMessage; }
+
+        /**
+         * @return @c true if the message was cut to @c FlightRecorder.MAX_MESSAGE_BYTES
+         */
+        public boolean isTruncated() { return mTruncated; }
+    }
+
+    private final File mFile;
+
+    public FlightRecorderReader( File file ) {
+        mFile = file;
+    }
+
+    /**
+     * @throws IOException If the file cannot be read or is not a recorder file
+     */
+    public List<Record> read() throws IOException {
+        ByteBuffer buffer;
+        try ( FileInputStream stream = new FileInputStream( mFile ) ) {
+            FileChannel channel = stream.getChannel();
+            buffer = ByteBuffer.allocate( ( int ) channel.size() ).order( ByteOrder.LITTLE_ENDIAN );
+            while ( buffer.hasRemaining() && channel.read( buffer ) > 0 ) {}
+        }
+        if ( buffer.capacity() < FlightRecorder.HEADER_SIZE
+                || buffer.getInt( FlightRecorder.OFFSET_MAGIC ) != FlightRecorder.MAGIC
+                || buffer.getInt( FlightRecorder.OFFSET_VERSION ) != FlightRecorder.VERSION ) {
+            throw new IOException( "Not a flight recorder file: " + mFile );
+        }
+        int blockSize = buffer.getInt( FlightRecorder.OFFSET_BLOCK_SIZE );
+        int blockCount = buffer.getInt( FlightRecorder.OFFSET_BLOCK_COUNT );
+        int sourceCapacity = buffer.getInt( FlightRecorder.OFFSET_SOURCE_CAPACITY );
+        int blocksOffset = FlightRecorder.HEADER_SIZE + sourceCapacity * FlightRecorder.SOURCE_ENTRY_SIZE;
+        if ( blockSize <= FlightRecorder.BLOCK_HEADER_SIZE || blockCount <= 0 || sourceCapacity < 0
+                || blocksOffset + ( long ) blockSize * blockCount > buffer.capacity() ) {
+            throw new IOException( "Corrupt flight recorder header: " + mFile );
+        }
+
+        String[] sources = new String[Math.min( buffer.getInt( FlightRecorder.OFFSET_SOURCE_COUNT ),
+            sourceCapacity )];
+        for ( int id = 0; id < sources.length; id++ ) {
+            sources[id] = FlightRecorder.readSource( buffer, FlightRecorder.HEADER_SIZE, id );
+        }
+
+        // Blocks in the order they were written; unused blocks have sequence 0
+        final long[] sequences = new long[blockCount];
+        Integer[] order = new Integer[blockCount];
+        for ( int block = 0; block < blockCount; block++ ) {
+            sequences[block] = buffer.getLong( blocksOffset + block * blockSize );
+            order[block] = block;
+        }
+        Arrays.sort( order, new Comparator<Integer>() {
+            @Override
+            public int compare( Integer a, Integer b ) {
+                return Long.compare( sequences[a], sequences[b] );
+            }
+        } );
+
+        List<Record> records = new ArrayList<>();
+        for ( int block : order ) {
+            if ( sequences[block] != 0 ) {
+                readBlock( buffer, blocksOffset + block * blockSize, blockSize, sources, records );
+            }
+        }
+        return records;
+    }
+
+    private static void readBlock( ByteBuffer buffer, int start, int blockSize, String[] sources,
+                                   List<Record> records ) {
+        Level[] levels = Level.values();
+        int offset = FlightRecorder.BLOCK_HEADER_SIZE;
+        while ( offset + FlightRecorder.RECORD_HEADER_SIZE <= blockSize ) {
+            int position = start + offset;
+            int length = buffer.getShort( position ) & 0xffff;
+            int level = buffer.get( position + 2 ) & 0xff;
+            if ( length < FlightRecorder.RECORD_HEADER_SIZE || offset + length > blockSize
+                    || level >= levels.length ) {
+                return; // End of the block, or a torn record
+            }
+            int flags = buffer.get( position + 3 ) & 0xff;
+            int sourceId = buffer.getShort( position + 4 ) & 0xffff;
+            long time = buffer.getLong( position + 6 );
+            byte[] message = new byte[length - FlightRecorder.RECORD_HEADER_SIZE];
+            for ( int i = 0; i < message.length; i++ ) {
+                message[i] = buffer.get( position + FlightRecorder.RECORD_HEADER_SIZE + i );
+            }
+            records.add( new Record( levels[level], time,
+                sourceId < sources.length ? sources[sourceId] : "?",
+                new String( message, StandardCharsets.UTF_8 ),
+                ( flags & FlightRecorder.FLAG_TRUNCATED ) != 0 ) );
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the records as text, in the layout of the log view.
+     */
+    public void export( OutputStream output ) throws IOException {
+        LogTimestampFormatter timestampFormatter = new LogTimestampFormatter();
+        StringBuilder builder = new StringBuilder( 256 );
+        Writer writer = new BufferedWriter( new OutputStreamWriter( output, StandardCharsets.UTF_8 ) );
+        for ( Record record : read() ) {
+            builder.setLength( 0 );
+            LoggerHandler.appendEntry( builder, timestampFormatter, record.getLevel(),
+                record.getTime(), record.getSource(), record.getMessage() );
+            if ( record.isTruncated() ) builder.append( "..." );
+            writer.write( builder.append( '\n' ).toString() );
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the records as gzip compressed text to @c target, e.g. for attaching to a report.
+     */
+    public void exportGzip( File target ) throws IOException {
+        try ( GZIPOutputStream output = new GZIPOutputStream( new FileOutputStream( target ), 64 * 1024 ) ) {
+            export( output );
+            output.finish();
+        }
+    }
+
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 1 ) {
+            System.err.println( "usage: FlightRecorderReader <recorder file> [<output.txt.gz>]" );
+            System.exit( 1 );
+        }
+        FlightRecorderReader reader = new FlightRecorderReader( new File( args[0] ) );
+        if ( args.length > 1 ) {
+            reader.exportGzip( new File( args[1] ) );
+        } else {
+            reader.export( System.out );
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collapses a log event that repeats the previous event of its source into a count, reported
+ * as "last message repeated N times" when the source logs something else, or at most a second
+ * after the first repeat.
+ *
+ * Not thread safe; owned by the logging thread.
+ */
+class LogDeduplicator {
+
+    /**
+     * Receives the repeat counts.
+     */
+    interface Listener {
+        void onRepeated( Level level, long time, String source, long count );
+    }
+
+    private static final int sMaxSources = 1024;
+    private static final long sReportIntervalNanos = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    /**
+     * Checks an event against the previous event of its source. Repeats of that event pending
+     * a report are reported first if this one differs.
+     *
+     * @return @c true if the event is a repeat and is not to be logged
+     */
+    boolean isRepeat( Level level, long time, String source, String message, long nowNanos,
+                      Listener listener ) {
+        Entry entry = mEntries.get( source );
+        if ( entry == null ) {
+            if ( mEntries.size() >= sMaxSources ) flushAll( listener );
+            mEntries.put( source, entry = new Entry() );
+        } else if ( entry.mLevel == level && entry.mMessage != null && entry.mMessage.equals( message ) ) {
+            if ( entry.mRepeats++ == 0 ) entry.mFirstRepeatNanos = nowNanos;
+            entry.mTime = time;
+            return true;
+        } else {
+            report( source, entry, listener );
+        }
+        entry.mLevel = level;
+        entry.mMessage = message;
+        entry.mTime = time;
+        return false;
+    }
+
+    /**
+     * Reports repeats pending for over a second.
+     */
+    void flush( long nowNanos, Listener listener ) {
+        for ( Map.Entry<String, Entry> entry : mEntries.entrySet() ) {
+            Entry value = entry.getValue();
+            if ( value.mRepeats > 0 && nowNanos - value.mFirstRepeatNanos >= sReportIntervalNanos ) {
+                report( entry.getKey(), value, listener );
+            }
+        }
+    }
+
+    private void flushAll( Listener listener ) {
+        for ( Map.Entry<String, Entry> entry : mEntries.entrySet() ) {
+            report( entry.getKey(), entry.getValue(), listener );
+        }
+        mEntries.clear();
+    }
+
+    private static void report( String source, Entry entry, Listener listener ) {
+        if ( entry.mRepeats == 0 ) return;
+        listener.onRepeated( entry.mLevel, entry.mTime, source, entry.mRepeats );
+        entry.mRepeats = 0;
+    }
+
+    // The last event logged for a source
+    private static class Entry {
+        Level mLevel;
+        String mMessage;
+        long mTime; // Of the last repeat
+        long mRepeats;
+        long mFirstRepeatNanos;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.core.config.EngineConfiguration;
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+import com.amazon.sampleapp.aace.logger.config.LoggerConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runtime log level rules per log source.
+ *
+ * A rule gives the lowest level logged for a source, either an exact source name or a prefix
+ * ending in '*'. The longest matching prefix wins over shorter ones, an exact name wins over
+ * any prefix, and sources without a rule use the default level.
+ *
+ * Rules are compiled into an immutable lookup whenever they change, so @c isLoggable() takes no
+ * lock. Events below every rule are rejected with one comparison; otherwise the level for a
+ * source is resolved once and then found with a single hash lookup.
+ */
+public class LogFilter {
+
+    private static final int sMaxResolvedSources = 1024; // Bounds the memory held for odd sources
+
+    private Level mDefaultLevel;
+    private final Map<String, Level> mSourceLevels = new HashMap<>();
+    private volatile CompiledRules mRules;
+
+    public LogFilter( Level defaultLevel ) {
+        mDefaultLevel = defaultLevel;
+        mRules = compile();
+    }
+
+    public synchronized void setDefaultLevel( Level level ) {
+        mDefaultLevel = level;
+        mRules = compile();
+    }
+
+    public synchronized Level getDefaultLevel() { return mDefaultLevel; }
+
+    /**
+     * @param source A source name, or a prefix followed by '*'
+     * @param level The lowest level logged for @c source
+     */
+    public synchronized void setSourceLevel( String source, Level level ) {
+        mSourceLevels.put( source, level );
+        mRules = compile();
+    }
+
+    public synchronized void clearSourceLevel( String source ) {
+        if ( mSourceLevels.remove( source ) != null ) mRules = compile();
+    }
+
+    public synchronized void clearSourceLevels() {
+        mSourceLevels.clear();
+        mRules = compile();
+    }
+
+    /**
+     * @return @c true if an event at @c level from @c source passes the rules
+     */
+    public boolean isLoggable( Level level, String source ) {
+        CompiledRules rules = mRules;
+        int ordinal = level.ordinal();
+        if ( ordinal < rules.mLowestOrdinal ) return false;
+        if ( ordinal >= rules.mHighestOrdinal ) return true;
+        return ordinal >= rules.resolve( source );
+    }
+
+    /**
+     * Builds the rules as Engine logger rules for @c sink, so the Engine drops filtered events
+     * before they cross into Java. The Engine passes an event that matches any rule, so each
+     * rule's source filter leaves out the sources that a more specific rule covers. The Engine
+     * only reads these when it is configured; later changes apply on the Java side alone.
+     */
+    public synchronized EngineConfiguration[] createEngineRuleConfigs( String sink ) {
+        List<EngineConfiguration> configs = new ArrayList<>();
+        configs.add( LoggerConfiguration.createLoggerRuleConfig( sink, mDefaultLevel,
+            createSourceFilter( null ), "", "" ) );
+        for ( Map.Entry<String, Level> rule : mSourceLevels.entrySet() ) {
+            configs.add( LoggerConfiguration.createLoggerRuleConfig( sink, rule.getValue(),
+                createSourceFilter( rule.getKey() ), "", "" ) );
+        }
+        return configs.toArray( new EngineConfiguration[configs.size()] );
+    }
+
+    // Matches the sources the rule for source applies to; a null source is the default rule
+    private String createSourceFilter( String source ) {
+        String literal = source == null ? "" : isPrefix( source )
+            ? source.substring( 0, source.length() - 1 ) : source;
+        boolean prefix = source == null || isPrefix( source );
+        StringBuilder exclusions = new StringBuilder();
+        if ( prefix ) {
+            for ( String other : mSourceLevels.keySet() ) {
+                if ( !other.equals( source ) && other.startsWith( literal ) ) {
+                    exclusions.append( exclusions.length() > 0 ? "|" : "" ).append( toPattern( other ) );
+                }
+            }
+        }
+        StringBuilder filter = new StringBuilder( "^" );
+        if ( exclusions.length() > 0 ) filter.append( "(?!" ).append( exclusions ).append( ')' );
+        filter.append( escapeRegex( literal ) ).append( prefix ? ".*" : "$" );
+        return filter.toString();
+    }
+
+    private static String toPattern( String source ) {
+        return isPrefix( source ) ? escapeRegex( source.substring( 0, source.length() - 1 ) )
+            : escapeRegex( source ) + "$";
+    }
+
+    private static boolean isPrefix( String source ) {
+        return source.endsWith( "*" );
+    }
+
+    private static String escapeRegex( String text ) {
+        StringBuilder builder = new StringBuilder( text.length() + 8 );
+        for ( int i = 0; i < text.length(); i++ ) {
+            char c = text.charAt( i );
+            if ( "\\^$.|?*+()[]{}".indexOf( c ) >= 0 ) builder.append( '\\' );
+            builder.append( c );
+        }
+        return builder.toString();
+    }
+
+    private CompiledRules compile() {
+        int lowest = mDefaultLevel.ordinal();
+        int highest = mDefaultLevel.ordinal();
+        Map<String, Integer> exact = new HashMap<>();
+        final List<String> prefixes = new ArrayList<>();
+        final Map<String, Integer> prefixOrdinals = new HashMap<>();
+        for ( Map.Entry<String, Level> rule : mSourceLevels.entrySet() ) {
+            String source = rule.getKey();
+            int ordinal = rule.getValue().ordinal();
+            lowest = Math.min( lowest, ordinal );
+            highest = Math.max( highest, ordinal );
+            if ( isPrefix( source ) ) {
+                String prefix = source.substring( 0, source.length() - 1 );
+                prefixes.add( prefix );
+                prefixOrdinals.put( prefix, ordinal );
+            } else {
+                exact.put( source, ordinal );
+            }
+        }
+        // Longest prefix first, so the first match is the most specific
+        Collections.sort( prefixes, new Comparator<String>() {
+            @Override
+            public int compare( String a, String b ) {
+                return b.length() - a.length();
+            }
+        } );
+        int[] ordinals = new int[prefixes.size()];
+        for ( int i = 0; i < ordinals.length; i++ ) {
+            ordinals[i] = prefixOrdinals.get( prefixes.get( i ) );
+        }
+        return new CompiledRules( mDefaultLevel.ordinal(), lowest, highest, exact,
+            prefixes.toArray( new String[prefixes.size()] ), ordinals );
+    }
+
+    //
+    // Immutable lookup built from the rules, plus a cache of resolved sources
+    //
+
+    private static class CompiledRules {
+
+        private final int mDefaultOrdinal;
+        private final int mLowestOrdinal;
+        private final int mHighestOrdinal; // Every source logs events at or above this level
+        private final Map<String, Integer> mExact;
+        private final String[] mPrefixes;
+        private final int[] mPrefixOrdinals;
+        private final ConcurrentHashMap<String, Integer> mResolved = new ConcurrentHashMap<>();
+
+        CompiledRules( int defaultOrdinal, int lowestOrdinal, int highestOrdinal,
+                       Map<String, Integer> exact, String[] prefixes, int[] prefixOrdinals ) {
+            mDefaultOrdinal = defaultOrdinal;
+            mLowestOrdinal = lowestOrdinal;
+            mHighestOrdinal = highestOrdinal;
+            mExact = exact;
+            mPrefixes = prefixes;
+            mPrefixOrdinals = prefixOrdinals;
+        }
+
+        int resolve( String source ) {
+            if ( source == null ) return mDefaultOrdinal;
+            Integer ordinal = mResolved.get( source );
+            if ( ordinal != null ) return ordinal;
+            ordinal = mExact.get( source );
+            for ( int i = 0; ordinal == null && i < mPrefixes.length; i++ ) {
+                if ( source.startsWith( mPrefixes[i] ) ) ordinal = mPrefixOrdinals[i];
+            }
+            if ( ordinal == null ) ordinal = mDefaultOrdinal;
+            if ( mResolved.size() < sMaxResolvedSources ) mResolved.put( source, ordinal );
+            return ordinal;
+        }
+    }
+}
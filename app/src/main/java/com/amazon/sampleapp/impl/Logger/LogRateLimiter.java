@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limit per log source and level, with sampling of VERBOSE events.
+ *
+ * Each (source, level) pair may log a burst of events and then a steady rate. Events over the
+ * limit, and VERBOSE events left out by sampling, are counted against their pair. The count is
+ * reported with the next event of the pair that passes, or by @c sweep() within a second or so
+ * if none does, so suppressed events always show up in the log as a summary.
+ */
+public class LogRateLimiter {
+
+    /**
+     * Receives the summaries from @c sweep().
+     */
+    interface Listener {
+        void onSuppressed( Level level, String source, long count );
+    }
+
+    private static final double sDefaultEventsPerSecond = 100;
+    private static final double sDefaultBurst = 500;
+    private static final int sMaxSources = 1024; // Further sources share one set of buckets
+    private static final long sSweepIntervalNanos = TimeUnit.SECONDS.toNanos( 1 );
+    private static final Level[] sLevels = Level.values();
+
+    private final ConcurrentHashMap<String, Bucket[]> mBuckets = new ConcurrentHashMap<>();
+    private final Bucket[] mOverflowBuckets = createBuckets( "*" );
+    private volatile double mEventsPerSecond = sDefaultEventsPerSecond;
+    private volatile double mBurst = sDefaultBurst;
+    private volatile float mVerboseSampleRate = 1;
+    private final AtomicLong mRateLimitedCount = new AtomicLong();
+    private final AtomicLong mSampledOutCount = new AtomicLong();
+
+    /**
+     * @param eventsPerSecond The steady rate each (source, level) pair may log at
+     * @param burst The number of events a pair may log at once after being quiet
+     */
+    public void setRate( double eventsPerSecond, double burst ) {
+        mEventsPerSecond = eventsPerSecond;
+        mBurst = burst;
+    }
+
+    /**
+     * @param sampleRate The fraction of VERBOSE events kept, between 0 and 1
+     */
+    public void setVerboseSampleRate( float sampleRate ) {
+        mVerboseSampleRate = Math.max( 0, Math.min( 1, sampleRate ) );
+    }
+
+    public long getRateLimitedCount() { return mRateLimitedCount.get(); }
+
+    public long getSampledOutCount() { return mSampledOutCount.get(); }
+
+    /**
+     * Takes a token for an event. May be called from any thread.
+     *
+     * @return -1 if the event is suppressed, otherwise the number of events of the same source
+     * and level suppressed and not yet reported
+     */
+    long acquire( Level level, String source, long nowNanos ) {
+        Bucket bucket = getBuckets( source )[level.ordinal()];
+        if ( level == Level.VERBOSE && mVerboseSampleRate < 1
+                && ThreadLocalRandom.current().nextFloat() >= mVerboseSampleRate ) {
+            mSampledOutCount.incrementAndGet();
+            bucket.suppress( nowNanos );
+            return -1;
+        }
+        long suppressed = bucket.acquire( nowNanos, mEventsPerSecond, mBurst );
+        if ( suppressed < 0 ) mRateLimitedCount.incrementAndGet();
+        return suppressed;
+    }
+
+    /**
+     * Reports the events of each pair suppressed over a second ago and not reported yet.
+     */
+    void sweep( long nowNanos, Listener listener ) {
+        for ( Bucket[] buckets : mBuckets.values() ) {
+            sweep( buckets, nowNanos, listener );
+        }
+        sweep( mOverflowBuckets, nowNanos, listener );
+    }
+
+    private static void sweep( Bucket[] buckets, long nowNanos, Listener listener ) {
+        for ( int i = 0; i < buckets.length; i++ ) {
+            long count = buckets[i].takeSuppressed( nowNanos );
+            if ( count > 0 ) listener.onSuppressed( sLevels[i], buckets[i].mSource, count );
+        }
+    }
+
+    private Bucket[] getBuckets( String source ) {
+        if ( source == null ) return mOverflowBuckets;
+        Bucket[] buckets = mBuckets.get( source );
+        if ( buckets != null ) return buckets;
+        if ( mBuckets.size() >= sMaxSources ) return mOverflowBuckets;
+        buckets = createBuckets( source );
+        Bucket[] existing = mBuckets.putIfAbsent( source, buckets );
+        return existing != null ? existing : buckets;
+    }
+
+    private static Bucket[] createBuckets( String source ) {
+        Bucket[] buckets = new Bucket[sLevels.length];
+        for ( int i = 0; i < buckets.length; i++ ) buckets[i] = new Bucket( source );
+        return buckets;
+    }
+
+    //
+    // Token bucket of one (source, level) pair
+    //
+
+    private static class Bucket {
+
+        private final String mSource;
+        private double mTokens = -1; // Filled to the burst on first use
+        private long mRefillNanos;
+        private long mSuppressed; // Not yet reported
+        private long mSuppressedNanos; // Time of the first suppressed event not yet reported
+
+        Bucket( String source ) {
+            mSource = source;
+        }
+
+        synchronized long acquire( long nowNanos, double eventsPerSecond, double burst ) {
+            if ( mTokens < 0 ) {
+                mTokens = burst;
+            } else {
+                // Callers on other threads may pass a slightly older time
+                double refill = Math.max( 0, nowNanos - mRefillNanos ) * eventsPerSecond / 1e9;
+                mTokens = Math.min( burst, mTokens + refill );
+            }
+            mRefillNanos = Math.max( mRefillNanos, nowNanos );
+            if ( mTokens < 1 ) {
+                suppress( nowNanos );
+                return -1;
+            }
+            mTokens -= 1;
+            long suppressed = mSuppressed;
+            mSuppressed = 0;
+            return suppressed;
+        }
+
+        synchronized void suppress( long nowNanos ) {
+            if ( mSuppressed++ == 0 ) mSuppressedNanos = nowNanos;
+        }
+
+        synchronized long takeSuppressed( long nowNanos ) {
+            if ( mSuppressed == 0 || nowNanos - mSuppressedNanos < sSweepIntervalNanos ) return 0;
+            long suppressed = mSuppressed;
+            mSuppressed = 0;
+            return suppressed;
+        }
+    }
+}
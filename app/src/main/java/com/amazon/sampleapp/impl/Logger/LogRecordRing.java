@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated multi-producer/single-consumer ring of log records.
+ *
+ * Any thread may @c offer() a record; it claims a slot with one compare-and-set and stores the
+ * references it was given, so logging takes no lock and allocates nothing. When the ring is
+ * full the record is dropped and counted instead of blocking the caller. One consumer thread
+ * takes records in order with @c poll().
+ *
+ * Each slot carries a sequence number that tells producers and the consumer whose turn it is.
+ */
+class LogRecordRing {
+
+    private final int mMask;
+    private final Level[] mLevels;
+    private final long[] mTimes;
+    private final String[] mSources;
+    private final String[] mMessages;
+    private final AtomicLongArray mSequences;
+
+    private final AtomicLong mTail = new AtomicLong(); // Next record to claim
+    private long mHead; // Next record to take. Only the consumer advances it.
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    private volatile Thread mWaiter;
+
+    // The last record taken by poll()
+    private Level mLevel;
+    private long mTime;
+    private String mSource;
+    private String mMessage;
+
+    /**
+     * @param capacity Rounded up to a power of two
+     */
+    LogRecordRing( int capacity ) {
+        int size = Integer.highestOneBit( Math.max( 1, capacity - 1 ) ) << 1;
+        mMask = size - 1;
+        mLevels = new Level[size];
+        mTimes = new long[size];
+        mSources = new String[size];
+        mMessages = new String[size];
+        mSequences = new AtomicLongArray( size );
+        for ( int i = 0; i < size; i++ ) {
+            mSequences.set( i, i );
+        }
+    }
+
+    int capacity() { return mMask + 1; }
+
+    long getDroppedCount() { return mDroppedCount.get(); }
+
+    //
+    // Producer side
+    //
+
+    /**
+     * @return @c false if the ring is full and the record was dropped
+     */
+    boolean offer( Level level, long time, String source, String message ) {
+        long tail = mTail.get();
+        int index;
+        while ( true ) {
+            index = ( int ) ( tail & mMask );
+            long available = mSequences.get( index ) - tail;
+            if ( available == 0 ) {
+                if ( mTail.compareAndSet( tail, tail + 1 ) ) break;
+                tail = mTail.get();
+            } else if ( available < 0 ) {
+                // The consumer has not released this slot since the last lap
+                mDroppedCount.incrementAndGet();
+                return false;
+            } else {
+                tail = mTail.get(); // Another producer claimed it
+            }
+        }
+        mLevels[index] = level;
+        mTimes[index] = time;
+        mSources[index] = source;
+        mMessages[index] = message;
+        mSequences.lazySet( index, tail + 1 ); // Publish the record
+
+        Thread waiter = mWaiter;
+        if ( waiter != null ) LockSupport.unpark( waiter );
+        return true;
+    }
+
+    //
+    // Consumer side
+    //
+
+    /**
+     * Takes the oldest record. Its fields are available from @c level(), @c time(), @c source()
+     * and @c message() until the next call.
+     *
+     * @return @c false if no record is ready
+     */
+    boolean poll() {
+        int index = ( int ) ( mHead & mMask );
+        if ( mSequences.get( index ) != mHead + 1 ) {
+            return false;
+        }
+        mLevel = mLevels[index];
+        mTime = mTimes[index];
+        mSource = mSources[index];
+        mMessage = mMessages[index];
+        mSources[index] = null; // Do not hold on to messages once taken
+        mMessages[index] = null;
+        mSequences.lazySet( index, mHead + capacity() ); // Release the slot for the next lap
+        mHead++;
+        return true;
+    }
+
+    Level level() { return mLevel; }
+
+    long time() { return mTime; }
+
+    String source() { return mSource; }
+
+    String message() { return mMessage; }
+
+    /**
+     * Waits until a record may be ready, @c timeoutNanos have passed or the thread is
+     * interrupted.
+     */
+    void await( long timeoutNanos ) {
+        mWaiter = Thread.currentThread();
+        // A record offered before the waiter was visible is caught by this check
+        if ( mSequences.get( ( int ) ( mHead & mMask ) ) != mHead + 1 ) {
+            LockSupport.parkNanos( this, timeoutNanos );
+        }
+        mWaiter = null;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Formats log timestamps as "yyyy-MM-dd HH:mm:ss.SSS" without a @c SimpleDateFormat call per
+ * record. The date and time down to the second are formatted once per second, and the result
+ * for the last millisecond is reused, since log records arrive in bursts with equal timestamps.
+ *
+ * Not thread safe; owned by the logging thread.
+ */
+class LogTimestampFormatter {
+
+    private final SimpleDateFormat mSecondsFormat =
+        new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss.", Locale.getDefault() );
+    private final Date mDate = new Date();
+    private final StringBuilder mBuilder = new StringBuilder( 23 );
+
+    private long mSecond = Long.MIN_VALUE;
+    private String mSecondText;
+    private long mMillis = Long.MIN_VALUE;
+    private String mMillisText;
+
+    /**
+     * @param timeMillis Milliseconds since the epoch
+     */
+    String format( long timeMillis ) {
+        if ( timeMillis == mMillis ) {
+            return mMillisText;
+        }
+        long second = timeMillis / 1000;
+        if ( timeMillis < second * 1000 ) second--; // Round down before the epoch
+        if ( second != mSecond ) {
+            mDate.setTime( second * 1000 );
+            mSecondText = mSecondsFormat.format( mDate );
+            mSecond = second;
+        }
+        int millis = ( int ) ( timeMillis - second * 1000 );
+        mBuilder.setLength( 0 );
+        mBuilder.append( mSecondText )
+            .append( ( char ) ( '0' + millis / 100 ) )
+            .append( ( char ) ( '0' + millis / 10 % 10 ) )
+            .append( ( char ) ( '0' + millis % 10 ) );
+        mMillis = timeMillis;
+        mMillisText = mBuilder.toString();
+        return mMillisText;
+    }
+}
@@ -15,99 +15,163 @@
 
 package com.amazon.sampleapp.impl.Logger;
 
-import android.graphics.Color;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.amazon.sampleapp.aace.logger.Logger;
+import com.amazon.sampleapp.impl.Events.EventBus;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
 // import com.amazon.sampleapp.logView.LogEntry;
 // import com.amazon.sampleapp.logView.LogRecyclerViewAdapter;
 
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
-import java.util.Calendar;
-
+/**
+ * Receives log events from the Engine and passes them to the log observers.
+ *
+ * @c logEvent() is called on Engine threads, so it only stores the event in a preallocated
+ * ring. A background thread formats the events and publishes them once per batch as a
+ * @c List<String> of formatted entries, and writes them to the flight recorder if one is set.
+ * Events arriving while the ring is full are dropped.
+ *
+ * During log storms each source and level is rate limited, and an event that repeats the
+ * previous event of its source is counted instead of logged. Both counts are logged as
+ * summary entries from the same source.
+ *
+ * METRIC events are not rate limited; the log thread also records their values in the
+ * default @c MetricsRegistry.
+ */
 public class LoggerHandler extends Logger {
 
-    /* Log colors */
-    private static final int sColorVerbose = Color.parseColor( "#B3E5FC" ); // Light Blue
-    private static final int sColorInfo = Color.parseColor( "#FFFFFF" ); // White
-    private static final int sColorMetric = Color.parseColor( "#73C54C" ); // Light Green
-    private static final int sColorWarn = Color.parseColor( "#F57F17" ); // Orange
-    private static final int sColorError = Color.parseColor( "#D50000" ); // Red
-    private static final int sColorJsonTemplate = Color.parseColor( "#F9B702" ); // Gold
-
-    private static final SimpleDateFormat sTimeFormat // Note: not thread safe
-            = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault() );
-    private static final Level sLevel = Level.VERBOSE;
+    private static final Level sDefaultLevel = Level.INFO; // VERBOSE is opt-in per source
+
+    /**
+     * The id of the Engine log sink that delivers events to the platform @c Logger
+     */
+    public static final String ENGINE_SINK = "platform";
     private static final String sClientSourceTag = "CLI";
+    private static final int sRingCapacity = 4096;
+    private static final int sMaxBatchSize = 256;
+    private static final long sSweepIntervalNanos = TimeUnit.SECONDS.toNanos( 1 );
+    private static final long sShutdownTimeoutMs = 2000;
 
-    private LoggerObservable mObservable;
+    private final EventBus<List<String>> mLogBus = new EventBus<>( "log" );
+    private final LogRecordRing mRing = new LogRecordRing( sRingCapacity );
+    private final LogFilter mFilter;
+    private final LogRateLimiter mRateLimiter = new LogRateLimiter();
+    private volatile FlightRecorder mFlightRecorder;
+    private final Thread mLogThread;
+    private volatile boolean mStopping;
+    private LoggerObservable mObservable; // Created by the first addLogObserver( Observer )
 
     public LoggerHandler() {
-        mObservable = new LoggerObservable();
+        this( createLogFilter() );
+    }
+
+    /**
+     * @param filter The rules to apply, usually from @c createLogFilter() after its Engine rules
+     *        were passed to @c Engine.configure()
+     */
+    public LoggerHandler( LogFilter filter ) {
+        mFilter = filter;
+        mLogThread = new Thread( new LogWriterRunnable(), "LoggerHandler" );
+        mLogThread.setDaemon( true );
+        mLogThread.start();
     }
 
     // Handle log from Auto SDK
     @Override
     public boolean logEvent( Level level, long time, String source, String message ) {
-        if ( level.ordinal() >= sLevel.ordinal() ) {
-            int color;
-            switch ( level ) {
-                case VERBOSE:
-                    color = sColorVerbose;
-                    break;
-                case WARN:
-                    color = sColorWarn;
-                    break;
-                case CRITICAL:
-                case ERROR:
-                    color = sColorError;
-                    break;
-                case INFO:
-                    color = sColorInfo;
-                    break;
-                case METRIC:
-                    color = sColorMetric;
-                    break;
-                default:
-                    color = sColorInfo;
-            }
-
-            // Configure log for GUI log view
-            JSONObject json = new JSONObject();
-            try {
-                json.put( "text", String.format( "%-25s [%s] %3c%n%s",
-                        sTimeFormat.format( time ), source, level.toChar(), message ) );
-                json.put("textColor", color );
-                json.put( "source", source ); // For log view filtering
-                json.put( "level", level.toString() ); // For log view filtering
-            } catch ( JSONException e ) {
-                Log.e( sClientSourceTag, "Error: ", e );
-                return true;
-            }
-            // mObservable.log( json );
-            mObservable.log( message );
+        if ( !mFilter.isLoggable( level, source ) ) {
+            return true;
+        }
+        if ( level == Level.METRIC ) {
+            mRing.offer( level, time, source, message ); // Dropping some would skew the metrics
+            return true;
+        }
+        long suppressed = mRateLimiter.acquire( level, source, SystemClock.elapsedRealtimeNanos() );
+        if ( suppressed < 0 ) {
+            return true;
+        }
+        if ( suppressed > 0 ) {
+            mRing.offer( level, time, source, createSuppressedMessage( suppressed ) );
         }
+        mRing.offer( level, time, source, message );
         return true;
     }
 
-    /* Client level log methods. Will use Auto SDK Logger */
+    private static String createSuppressedMessage( long count ) {
+        return "Suppressed " + count + " messages of this source and level (rate limit or sampling)";
+    }
+
+    /**
+     * Stops the log thread once it has passed on the events already logged, and waits for it
+     * to end. Events logged afterwards are dropped. Call it after @c Engine.dispose() and before
+     * closing the flight recorder.
+     *
+     * Not named dispose(): @c NativeRef.dispose(), which releases the Engine binding, is final.
+     */
+    public void shutdown() {
+        mStopping = true;
+        LockSupport.unpark( mLogThread ); // An interrupt would close the flight recorder's channel
+        try {
+            mLogThread.join( sShutdownTimeoutMs );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        if ( mLogThread.isAlive() ) Log.w( sClientSourceTag, "Log thread did not stop" );
+    }
+
+    /**
+     * @return The rate limit and VERBOSE sampling applied to Engine log events
+     */
+    public LogRateLimiter getRateLimiter() { return mRateLimiter; }
+
+    /**
+     * @return The per-source level rules applied to log events
+     */
+    public LogFilter getLogFilter() { return mFilter; }
+
+    /**
+     * @return Rules at the default level. Pass its @c createEngineRuleConfigs( ENGINE_SINK ) to
+     * @c Engine.configure() so the Engine drops filtered events before they reach Java.
+     */
+    public static LogFilter createLogFilter() { return new LogFilter( sDefaultLevel ); }
+
+    /**
+     * Also writes every log event that passes the filter to @c recorder, or stops if
+     * @c recorder is @c null. Records are written by the log thread.
+     */
+    public void setFlightRecorder( FlightRecorder recorder ) {
+        mFlightRecorder = recorder;
+    }
+
+    public FlightRecorder getFlightRecorder() { return mFlightRecorder; }
+
+    /**
+     * @return The number of log events dropped because the log thread fell behind
+     */
+    public long getDroppedCount() { return mRing.getDroppedCount(); }
+
+    /* Client level log methods. Will use Auto SDK Logger. Filtered before crossing into the Engine. */
 
-    public void postVerbose( String tag, String message ) { log( Level.VERBOSE, tag, message ); }
-    public void postInfo( String tag, String message ) { log( Level.INFO, tag, message ); }
-    public void postWarn( String tag, String message ) { log( Level.WARN, tag, message ); }
-    public void postError( String tag, String message ) { log( Level.ERROR, tag, message ); }
+    public void postVerbose( String tag, String message ) { post( Level.VERBOSE, tag, message ); }
+    public void postInfo( String tag, String message ) { post( Level.INFO, tag, message ); }
+    public void postWarn( String tag, String message ) { post( Level.WARN, tag, message ); }
+    public void postError( String tag, String message ) { post( Level.ERROR, tag, message ); }
     public void postError( String tag, Throwable thr ) {
+        if ( !mFilter.isLoggable( Level.ERROR, tag ) ) return;
         try ( ByteArrayOutputStream os = new ByteArrayOutputStream() ) {
             PrintStream ps = new PrintStream( os );
             thr.printStackTrace( ps );
@@ -117,68 +181,142 @@ public class LoggerHandler extends Logger {
         } catch ( IOException e ) { Log.e( sClientSourceTag, "Error: ", e ); }
     }
 
+    private void post( Level level, String tag, String message ) {
+        if ( mFilter.isLoggable( level, tag ) ) log( level, tag, message );
+    }
+
     /* Additional client logs. Will insert log into GUI log view but not use Auto SDK Logger */
 
     // Client log for JSON Templates
     public void postJSONTemplate( String tag, String message ) {
-        Date currentTime = Calendar.getInstance().getTime();
-        Level level = Level.INFO;
-
-        JSONObject json = new JSONObject();
-        try {
-            json.put( "text", String.format( "%-25s [%s] %3c%n%s:%n%s",
-                    sTimeFormat.format( currentTime ), sClientSourceTag,
-                    level.toChar(), tag, message ) );
-            json.put( "textColor", sColorJsonTemplate );
-            json.put( "source", sClientSourceTag ); // For log view filtering
-            json.put( "level", level.toString() ); // For log view filtering
-
-        } catch ( JSONException e ) {
-            Log.e( sClientSourceTag, "Error: ", e );
-            return;
-        }
-        // mObservable.log( json, LogRecyclerViewAdapter.JSON_TEXT );
-        mObservable.log( message );
+        if ( !mFilter.isLoggable( Level.INFO, sClientSourceTag ) ) return;
+        mRing.offer( Level.INFO, System.currentTimeMillis(), sClientSourceTag, tag + ":\n" + message );
     }
 
     // Client log for display cards
     public void postDisplayCard( JSONObject template, int logType ) {
-        Level level = Level.INFO;
-        JSONObject json = new JSONObject();
-        try {
-            json.put( "template", template );
-            json.put( "source", sClientSourceTag ); // For log view filtering
-            json.put( "level", level.toString() ); // For log view filtering
-
-        } catch ( JSONException e ) { Log.e( sClientSourceTag, "Error: ", e ); }
-
-        mObservable.log( template.toString() );
+        if ( !mFilter.isLoggable( Level.INFO, sClientSourceTag ) ) return;
+        mRing.offer( Level.INFO, System.currentTimeMillis(), sClientSourceTag, template.toString() );
     }
 
-    /* Logger Observable for inserting logs into GUI log view */
+    /**
+     * Receives the formatted log entries in batches, e.g. for the GUI log view. Subscribe with
+     * @c Delivery.MAIN_THREAD to update views.
+     */
+    public EventBus<List<String>>.Subscription addLogObserver(
+            EventBus.Subscriber<List<String>> observer, EventBus.Delivery delivery ) {
+        return mLogBus.subscribe( observer, delivery );
+    }
 
+    /**
+     * @deprecated Subscribe with @c addLogObserver( Subscriber, Delivery ) instead
+     */
+    @Deprecated
     public static class LoggerObservable extends Observable {
 
-        public void log( String message ) {
+        public void log( List<String> entries ) {
             setChanged();
-            notifyObservers( message );
+            notifyObservers( entries );
         }
+    }
 
-        /*
-        public void log( JSONObject obj ) {
-            setChanged();
-            notifyObservers( new LogEntry( LogRecyclerViewAdapter.TEXT_LOG, obj ) );
+    /**
+     * Notifies @c observer of each batch of entries on the log thread, as before the event bus.
+     *
+     * @deprecated Use @c addLogObserver( Subscriber, Delivery )
+     */
+    @Deprecated
+    public synchronized void addLogObserver( Observer observer ) {
+        if ( mObservable == null ) {
+            final LoggerObservable observable = new LoggerObservable();
+            mLogBus.subscribe( new EventBus.Subscriber<List<String>>() {
+                @Override
+                public void onEvent( List<String> entries ) {
+                    observable.log( entries );
+                }
+            }, EventBus.Delivery.INLINE );
+            mObservable = observable;
+        }
+        mObservable.addObserver( observer );
+    }
+
+    //
+    // Log thread: ring -> formatted entries -> log bus
+    //
+
+    private class LogWriterRunnable implements Runnable, LogDeduplicator.Listener,
+            LogRateLimiter.Listener {
+
+        private final LogTimestampFormatter mTimestampFormatter = new LogTimestampFormatter();
+        private final StringBuilder mBuilder = new StringBuilder( 256 );
+        private final LogDeduplicator mDeduplicator = new LogDeduplicator();
+        private final MetricsRegistry mMetrics = MetricsRegistry.getDefault();
+        private long mLastSweepNanos;
+        private FlightRecorder mRecorder;
+        private List<String> mBatch;
+
+        @Override
+        public void run() {
+            while ( true ) {
+                // Once stopping, take one last pass over the ring, flushing every count
+                boolean stopping = mStopping;
+                if ( !stopping ) mRing.await( sSweepIntervalNanos );
+                long now = SystemClock.elapsedRealtimeNanos();
+                mRecorder = mFlightRecorder;
+                mBatch = null;
+                while ( ( stopping || mBatch == null || mBatch.size() < sMaxBatchSize ) && mRing.poll() ) {
+                    if ( mRing.level() == Level.METRIC ) {
+                        mMetrics.recordMetricEvent( mRing.source(), mRing.message() );
+                    }
+                    if ( !mDeduplicator.isRepeat( mRing.level(), mRing.time(), mRing.source(),
+                            mRing.message(), now, this ) ) {
+                        deliver( mRing.level(), mRing.time(), mRing.source(), mRing.message() );
+                    }
+                }
+                if ( stopping || now - mLastSweepNanos >= sSweepIntervalNanos ) {
+                    // Report counts of sources that have gone quiet
+                    mRateLimiter.sweep( now, this );
+                    mDeduplicator.flush( now, this );
+                    mLastSweepNanos = now;
+                }
+                if ( mBatch != null ) {
+                    mLogBus.publish( Collections.unmodifiableList( mBatch ) );
+                }
+                if ( stopping ) return;
+            }
         }
 
-        public void log( JSONObject obj, int logType ) {
-            setChanged();
-            notifyObservers( new LogEntry( logType, obj ) );
+        @Override
+        public void onRepeated( Level level, long time, String source, long count ) {
+            deliver( level, time, source, "Last message repeated " + count + " times" );
         }
 
-         */
+        @Override
+        public void onSuppressed( Level level, String source, long count ) {
+            deliver( level, System.currentTimeMillis(), source, createSuppressedMessage( count ) );
+        }
+
+        private void deliver( Level level, long time, String source, String message ) {
+            if ( mRecorder != null ) mRecorder.record( level, time, source, message );
+            if ( !mLogBus.hasSubscribers() ) return; // Nobody to format for
+            if ( mBatch == null ) mBatch = new ArrayList<>();
+            mBatch.add( format( level, time, source, message ) );
+        }
+
+        private String format( Level level, long time, String source, String message ) {
+            mBuilder.setLength( 0 );
+            appendEntry( mBuilder, mTimestampFormatter, level, time, source, message );
+            return mBuilder.toString();
+        }
     }
 
-    public void addLogObserver( Observer observer ) {
-        mObservable.addObserver( observer );
+    // Same layout as "%-25s [%s] %3c%n%s"
+    static void appendEntry( StringBuilder builder, LogTimestampFormatter timestampFormatter,
+                             Level level, long time, String source, String message ) {
+        int start = builder.length();
+        builder.append( timestampFormatter.format( time ) );
+        while ( builder.length() - start < 25 ) builder.append( ' ' );
+        builder.append( " [" ).append( source ).append( "]   " ).append( level.toChar() )
+            .append( '\n' ).append( message );
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic counter that many threads can increment without contending on one memory location.
+ *
+ * Each thread adds to one of several cells, each on its own cache line, and @c get() sums
+ * the cells.
+ */
+public class Counter {
+
+    private static final int sStripes = 8; // Power of two
+    private static final int sCellStride = 8; // 8 longs = 64 bytes between cells
+
+    private final AtomicLongArray mCells = new AtomicLongArray( sStripes * sCellStride );
+
+    Counter() {}
+
+    public void increment() { add( 1 ); }
+
+    public void add( long delta ) {
+        int stripe = ( int ) ( Thread.currentThread().getId() & ( sStripes - 1 ) );
+        mCells.getAndAdd( stripe * sCellStride, delta );
+    }
+
+    public long get() {
+        long sum = 0;
+        for ( int stripe = 0; stripe < sStripes; stripe++ ) {
+            sum += mCells.get( stripe * sCellStride );
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The current value of a quantity, e.g. a signal strength or queue depth.
+ */
+public class Gauge {
+
+    private final AtomicLong mValue = new AtomicLong();
+
+    Gauge() {}
+
+    public void set( long value ) { mValue.set( value ); }
+
+    public void add( long delta ) { mValue.addAndGet( delta ); }
+
+    public long get() { return mValue.get(); }
+}
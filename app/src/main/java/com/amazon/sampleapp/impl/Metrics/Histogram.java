@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of values over fixed buckets. Any thread may record; recording is a binary
+ * search and a few atomic updates, without locks or allocation.
+ */
+public class Histogram {
+
+    private final long[] mBounds; // Upper bounds, inclusive; the last bucket has none
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong( Long.MIN_VALUE );
+
+    Histogram( long[] bounds ) {
+        mBounds = bounds.clone();
+        Arrays.sort( mBounds );
+        mCounts = new AtomicLongArray( mBounds.length + 1 );
+    }
+
+    public void record( long value ) {
+        int bucket = Arrays.binarySearch( mBounds, value );
+        if ( bucket < 0 ) bucket = -bucket - 1;
+        mCounts.incrementAndGet( bucket );
+        mSum.addAndGet( value );
+        long max = mMax.get();
+        while ( value > max && !mMax.compareAndSet( max, value ) ) {
+            max = mMax.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[mCounts.length()];
+        for ( int i = 0; i < counts.length; i++ ) counts[i] = mCounts.get( i );
+        return new Snapshot( mBounds, counts, mSum.get(), mMax.get() );
+    }
+
+    /**
+     * Copy of a histogram. Counts may be off by values being recorded at the time.
+     */
+    public static class Snapshot {
+
+        private final long[] mBounds;
+        private final long[] mCounts;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        Snapshot( long[] bounds, long[] counts, long sum, long max ) {
+            mBounds = bounds;
+            mCounts = counts;
+            long count = 0;
+            for ( long bucketCount : counts ) count += bucketCount;
+            mCount = count;
+            mSum = sum;
+            mMax = count > 0 ? max : 0;
+        }
+
+        public long getCount() { return mCount; }
+
+        public long getSum() { return mSum; }
+
+        public long getMax() { return mMax; }
+
+        public long[] getBucketBounds() { return mBounds.clone(); }
+
+        public long[] getBucketCounts() { return mCounts.clone(); }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The upper bound of the bucket holding the percentile, or the largest value
+         * recorded if it falls in the last bucket
+         */
+        public long getPercentile( double percentile ) {
+            if ( mCount == 0 ) return 0;
+            long rank = ( long ) Math.ceil( mCount * percentile / 100 );
+            long seen = 0;
+            for ( int i = 0; i < mBounds.length; i++ ) {
+                seen += mCounts[i];
+                if ( seen >= rank ) return Math.min( mBounds[i], mMax );
+            }
+            return mMax;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes JSON snapshots of a @c MetricsRegistry to a local file or a local socket, once or
+ * periodically, e.g. for pulling with "adb pull" or reading with a host side collector over
+ * "adb forward tcp:PORT localabstract:NAME".
+ */
+public class MetricsExporter {
+
+    private static final String sTag = "MetricsExporter";
+
+    private final MetricsRegistry mRegistry;
+    private ScheduledExecutorService mExecutor;
+
+    public MetricsExporter( MetricsRegistry registry ) {
+        mRegistry = registry;
+    }
+
+    /**
+     * Replaces @c file with a snapshot. The snapshot is written to a temporary file and renamed,
+     * so readers never see a partial one.
+     */
+    public void writeToFile( File file ) throws IOException {
+        byte[] snapshot = createSnapshot();
+        File temp = new File( file.getPath() + ".tmp" );
+        try ( FileOutputStream output = new FileOutputStream( temp ) ) {
+            output.write( snapshot );
+            output.getFD().sync();
+        }
+        if ( !temp.renameTo( file ) ) {
+            temp.delete();
+            throw new IOException( "Cannot rename " + temp + " to " + file );
+        }
+    }
+
+    /**
+     * Connects to the local socket @c name in the abstract namespace and writes a snapshot
+     * followed by a newline.
+     */
+    public void writeToLocalSocket( String name ) throws IOException {
+        byte[] snapshot = createSnapshot();
+        LocalSocket socket = new LocalSocket();
+        try {
+            socket.connect( new LocalSocketAddress( name ) );
+            OutputStream output = socket.getOutputStream();
+            output.write( snapshot );
+            output.write( '\n' );
+            output.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private byte[] createSnapshot() throws IOException {
+        try {
+            return mRegistry.snapshot().toString().getBytes( StandardCharsets.UTF_8 );
+        } catch ( JSONException e ) {
+            throw new IOException( "Cannot create metrics snapshot", e );
+        }
+    }
+
+    /**
+     * Writes a snapshot to @c file every @c periodMs on a background thread until @c stop() is
+     * called. Replaces any earlier periodic export.
+     */
+    public synchronized void startFileExport( final File file, long periodMs ) {
+        schedule( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeToFile( file );
+                } catch ( IOException e ) {
+                    Log.w( sTag, "Cannot export metrics to " + file + ": " + e.getMessage() );
+                }
+            }
+        }, periodMs );
+    }
+
+    /**
+     * Writes a snapshot to the local socket @c name every @c periodMs on a background thread
+     * until @c stop() is called. Snapshots are skipped while nothing listens on the socket.
+     */
+    public synchronized void startLocalSocketExport( final String name, long periodMs ) {
+        schedule( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeToLocalSocket( name );
+                } catch ( IOException e ) {
+                    Log.v( sTag, "Cannot export metrics to socket " + name + ": " + e.getMessage() );
+                }
+            }
+        }, periodMs );
+    }
+
+    private void schedule( Runnable export, long periodMs ) {
+        stop();
+        mExecutor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+            @Override
+            public Thread newThread( Runnable runnable ) {
+                Thread thread = new Thread( runnable, sTag );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        mExecutor.scheduleWithFixedDelay( export, periodMs, periodMs, TimeUnit.MILLISECONDS );
+    }
+
+    public synchronized void stop() {
+        if ( mExecutor != null ) {
+            mExecutor.shutdownNow();
+            mExecutor = null;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Named counters, gauges and histograms shared by the handlers.
+ *
+ * Look a metric up once and keep it; updating it is lock free. Engine log events of level
+ * METRIC are turned into histograms by @c recordMetricEvent(), so Engine and Java side metrics
+ * end up in one snapshot.
+ *
+ * Metric names are dot separated, e.g. "network.statusChanges". Once @c MAX_SERIES metrics
+ * exist further ones still work but are left out of snapshots. Engine events may create at most
+ * @c MAX_ENGINE_SERIES of them, so arbitrary field names in Engine messages cannot crowd out the
+ * Java side metrics. Every series left out is counted in "metrics.droppedSeries".
+ */
+public class MetricsRegistry {
+
+    public static final int MAX_SERIES = 1024;
+    public static final int MAX_ENGINE_SERIES = 256;
+    public static final int MAX_ENGINE_NAME_LENGTH = 64;
+
+    /**
+     * Upper bounds in a 1-2-5 series from 1 to 10^7, e.g. for times in milliseconds or sizes in
+     * bytes.
+     */
+    public static final long[] DEFAULT_BUCKETS = createBuckets( 1, 10000000 );
+
+    private static final String sEngineMetricPrefix = "engine.";
+    private static final MetricsRegistry sDefault = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> mGauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> mHistograms = new ConcurrentHashMap<>();
+    private final AtomicInteger mEngineSeries = new AtomicInteger();
+    private final Counter mDroppedSeries = counter( "metrics.droppedSeries" );
+
+    /**
+     * @return The registry used by the handlers
+     */
+    public static MetricsRegistry getDefault() { return sDefault; }
+
+    public Counter counter( String name ) {
+        Counter counter = mCounters.get( name );
+        if ( counter != null ) return counter;
+        counter = new Counter();
+        if ( !hasRoom() ) {
+            mDroppedSeries.increment();
+            return counter;
+        }
+        Counter existing = mCounters.putIfAbsent( name, counter );
+        return existing != null ? existing : counter;
+    }
+
+    public Gauge gauge( String name ) {
+        Gauge gauge = mGauges.get( name );
+        if ( gauge != null ) return gauge;
+        gauge = new Gauge();
+        if ( !hasRoom() ) {
+            mDroppedSeries.increment();
+            return gauge;
+        }
+        Gauge existing = mGauges.putIfAbsent( name, gauge );
+        return existing != null ? existing : gauge;
+    }
+
+    /**
+     * @return A histogram with @c DEFAULT_BUCKETS
+     */
+    public Histogram histogram( String name ) {
+        return histogram( name, DEFAULT_BUCKETS );
+    }
+
+    /**
+     * @param bounds Inclusive upper bounds of the buckets. Only used if the histogram does not
+     * exist yet.
+     */
+    public Histogram histogram( String name, long[] bounds ) {
+        Histogram histogram = mHistograms.get( name );
+        if ( histogram != null ) return histogram;
+        histogram = new Histogram( bounds );
+        if ( !hasRoom() ) {
+            mDroppedSeries.increment();
+            return histogram;
+        }
+        Histogram existing = mHistograms.putIfAbsent( name, histogram );
+        return existing != null ? existing : histogram;
+    }
+
+    private boolean hasRoom() {
+        return mCounters.size() + mGauges.size() + mHistograms.size() < MAX_SERIES;
+    }
+
+    /**
+     * @return The number of times a new series was left out, because @c MAX_SERIES or
+     * @c MAX_ENGINE_SERIES was reached or an Engine field name was not a valid name
+     */
+    public long getDroppedSeriesCount() { return mDroppedSeries.get(); }
+
+    /**
+     * Records the values of an Engine METRIC log event. The message is read as "name=value"
+     * or "name:value" fields separated by ',', ';', '|' or spaces; each numeric value goes to
+     * the histogram "engine.<source>.<name>", rounded to a whole number. Any unit after the
+     * number, e.g. "ms", is ignored, as are fields without a number. Every event also counts
+     * towards "engine.<source>.events".
+     *
+     * Names must be letters, digits, '_', '-' or '.', and at most @c MAX_ENGINE_NAME_LENGTH long.
+     * New series beyond @c MAX_ENGINE_SERIES are dropped; existing ones keep recording.
+     */
+    public void recordMetricEvent( String source, String message ) {
+        if ( source == null ) source = "unknown";
+        if ( !isEngineName( source, 0, source.length() ) ) {
+            mDroppedSeries.increment();
+            return;
+        }
+        String prefix = sEngineMetricPrefix + source + ".";
+        String eventsName = prefix + "events";
+        Counter events = mCounters.get( eventsName );
+        if ( events == null ) {
+            if ( !reserveEngineSeries() ) return;
+            events = counter( eventsName );
+        }
+        events.increment();
+        if ( message == null ) return;
+
+        int length = message.length();
+        int start = 0;
+        while ( start < length ) {
+            int end = start;
+            while ( end < length && !isFieldSeparator( message.charAt( end ) ) ) end++;
+            recordField( prefix, message, start, end );
+            start = end + 1;
+        }
+    }
+
+    private static boolean isFieldSeparator( char c ) {
+        return c == ',' || c == ';' || c == '|' || Character.isWhitespace( c );
+    }
+
+    // Records the field in message[start, end) if it is a name and a number
+    private void recordField( String prefix, String message, int start, int end ) {
+        int split = -1;
+        for ( int i = end - 1; i > start; i-- ) {
+            char c = message.charAt( i );
+            if ( c == '=' || c == ':' ) {
+                split = i;
+                break;
+            }
+        }
+        if ( split < 0 ) return;
+
+        // Number at the start of the value: optional sign, digits, optional fraction
+        int i = split + 1;
+        if ( i < end && ( message.charAt( i ) == '-' || message.charAt( i ) == '+' ) ) i++;
+        int digitsStart = i;
+        while ( i < end && ( Character.isDigit( message.charAt( i ) ) || message.charAt( i ) == '.' ) ) i++;
+        if ( i == digitsStart ) return;
+        double value;
+        try {
+            value = Double.parseDouble( message.substring( split + 1, i ) );
+        } catch ( NumberFormatException e ) {
+            return;
+        }
+        if ( !isEngineName( message, start, split ) ) {
+            mDroppedSeries.increment();
+            return;
+        }
+        String name = prefix + message.substring( start, split );
+        Histogram histogram = mHistograms.get( name );
+        if ( histogram == null ) {
+            if ( !reserveEngineSeries() ) return;
+            histogram = histogram( name );
+        }
+        histogram.record( Math.round( value ) );
+    }
+
+    private static boolean isEngineName( String text, int start, int end ) {
+        if ( end <= start || end - start > MAX_ENGINE_NAME_LENGTH ) return false;
+        for ( int i = start; i < end; i++ ) {
+            char c = text.charAt( i );
+            if ( !( c < 128 && ( Character.isLetterOrDigit( c ) || c == '_' || c == '-' || c == '.' ) ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Takes one of the MAX_ENGINE_SERIES slots for a new Engine series, or counts it as dropped.
+    // Two threads creating the same series at once may both take a slot, which only lowers the
+    // limit slightly.
+    private boolean reserveEngineSeries() {
+        if ( mEngineSeries.incrementAndGet() <= MAX_ENGINE_SERIES ) return true;
+        mEngineSeries.decrementAndGet();
+        mDroppedSeries.increment();
+        return false;
+    }
+
+    /**
+     * @return All metrics, in the form
+     * <pre>
+     * { "timestamp": ms since the epoch,
+     *   "counters": { name: value, ... },
+     *   "gauges": { name: value, ... },
+     *   "histograms": { name: { "count", "sum", "max", "p50", "p90", "p99",
+     *                           "bounds": [...], "counts": [...] }, ... } }
+     * </pre>
+     * where the last bucket count is of values above the last bound.
+     */
+    public JSONObject snapshot() throws JSONException {
+        JSONObject counters = new JSONObject();
+        for ( Map.Entry<String, Counter> entry : new TreeMap<>( mCounters ).entrySet() ) {
+            counters.put( entry.getKey(), entry.getValue().get() );
+        }
+        JSONObject gauges = new JSONObject();
+        for ( Map.Entry<String, Gauge> entry : new TreeMap<>( mGauges ).entrySet() ) {
+            gauges.put( entry.getKey(), entry.getValue().get() );
+        }
+        JSONObject histograms = new JSONObject();
+        for ( Map.Entry<String, Histogram> entry : new TreeMap<>( mHistograms ).entrySet() ) {
+            histograms.put( entry.getKey(), toJson( entry.getValue().snapshot() ) );
+        }
+
+        JSONObject snapshot = new JSONObject();
+        snapshot.put( "timestamp", System.currentTimeMillis() );
+        snapshot.put( "counters", counters );
+        snapshot.put( "gauges", gauges );
+        snapshot.put( "histograms", histograms );
+        return snapshot;
+    }
+
+    private static JSONObject toJson( Histogram.Snapshot snapshot ) throws JSONException {
+        JSONArray bounds = new JSONArray();
+        for ( long bound : snapshot.getBucketBounds() ) bounds.put( bound );
+        JSONArray counts = new JSONArray();
+        for ( long count : snapshot.getBucketCounts() ) counts.put( count );
+
+        JSONObject histogram = new JSONObject();
+        histogram.put( "count", snapshot.getCount() );
+        histogram.put( "sum", snapshot.getSum() );
+        histogram.put( "max", snapshot.getMax() );
+        histogram.put( "p50", snapshot.getPercentile( 50 ) );
+        histogram.put( "p90", snapshot.getPercentile( 90 ) );
+        histogram.put( "p99", snapshot.getPercentile( 99 ) );
+        histogram.put( "bounds", bounds );
+        histogram.put( "counts", counts );
+        return histogram;
+    }
+
+    /**
+     * @return Upper bounds in a 1-2-5 series from @c min to @c max
+     */
+    public static long[] createBuckets( long min, long max ) {
+        int count = 0;
+        for ( long decade = min; decade <= max; decade *= 10 ) {
+            for ( int step : new int[] { 1, 2, 5 } ) {
+                if ( decade * step <= max ) count++;
+            }
+        }
+        long[] bounds = new long[count];
+        int i = 0;
+        for ( long decade = min; decade <= max; decade *= 10 ) {
+            for ( int step : new int[] { 1, 2, 5 } ) {
+                if ( decade * step <= max ) bounds[i++] = decade * step;
+            }
+        }
+        return bounds;
+    }
+}
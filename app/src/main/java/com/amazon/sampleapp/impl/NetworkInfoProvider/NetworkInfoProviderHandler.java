@@ -30,30 +30,38 @@ import android.os.AsyncTask;
 import com.amazon.sampleapp.aace.core.Engine;
 import com.amazon.sampleapp.aace.network.NetworkInfoProvider;
 import com.amazon.sampleapp.aace.network.NetworkProperties;
-
-import java.util.HashSet;
-import java.util.Set;
+import com.amazon.sampleapp.impl.Events.EventBus;
+import com.amazon.sampleapp.impl.Metrics.Counter;
+import com.amazon.sampleapp.impl.Metrics.Gauge;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
 
 public class NetworkInfoProviderHandler extends NetworkInfoProvider {
 
     private static final String sTag = "NetworkInfoProvider";
 
+    private static final Counter sStatusChangeMetric =
+        MetricsRegistry.getDefault().counter( "network.statusChanges" );
+    private static final Counter sDisconnectMetric = MetricsRegistry.getDefault().counter( "network.disconnects" );
+    private static final Gauge sConnectedMetric = MetricsRegistry.getDefault().gauge( "network.connected" );
+    private static final Gauge sWifiRssiMetric = MetricsRegistry.getDefault().gauge( "network.wifiRssi" );
+
     private final Activity mActivity;
     private final Engine mEngine;
     private final WifiManager mWifiManager;
     private final ConnectivityManager mConnectivityManager;
     private final NetworkChangeReceiver mReceiver;
 
-    private NetworkStatus mStatus;
+    private volatile NetworkStatus mStatus;
 
-    // List of Network Connection observers
-    private Set<NetworkConnectionObserver> mObservers;
+    // Network Connection observers
+    private final EventBus<NetworkStatus> mStatusBus = new EventBus<>( "networkStatus" );
+    // Orders a new observer's current status with the changes published around it
+    private final Object mStatusLock = new Object();
 
     public NetworkInfoProviderHandler( Activity activity, Engine engine ) {
         mActivity = activity;
         mEngine = engine;
         mStatus = NetworkStatus.UNKNOWN;
-        mObservers = new HashSet<>(1);
         Context context = mActivity.getApplicationContext();
         // Note: >=API 24 should use NetworkCallback to receive network change updates
         // instead of CONNECTIVITY_ACTION
@@ -76,14 +84,25 @@ public class NetworkInfoProviderHandler extends NetworkInfoProvider {
         public void onReceive( final Context context, final Intent intent )
         {
             if ( mConnectivityManager != null ) {
+                NetworkStatus previous = mStatus;
                 updateNetworkStatus();
                 int rssi = mWifiManager.getConnectionInfo().getRssi();
+                recordMetrics( previous, rssi );
                 networkStatusChanged( mStatus, rssi );
                 notifyConnectionStatusObservers( mStatus );
             }
         }
     }
 
+    private void recordMetrics( NetworkStatus previous, int rssi ) {
+        sStatusChangeMetric.increment();
+        if ( previous == NetworkStatus.CONNECTED && mStatus != NetworkStatus.CONNECTED ) {
+            sDisconnectMetric.increment();
+        }
+        sConnectedMetric.set( mStatus == NetworkStatus.CONNECTED ? 1 : 0 );
+        sWifiRssiMetric.set( rssi );
+    }
+
     public void unregister() { mActivity.getApplicationContext().unregisterReceiver( mReceiver ); }
 
     private void showAlertDialog( String message ) {
@@ -127,15 +146,34 @@ public class NetworkInfoProviderHandler extends NetworkInfoProvider {
     }
 
     // Connection State Observable methods
+
+    /**
+     * Notifies @c observer of the current status before returning, then of each change on a
+     * background thread.
+     */
     public void registerNetworkConnectionObserver( NetworkConnectionObserver observer ) {
+        registerNetworkConnectionObserver( observer, EventBus.Delivery.BACKGROUND );
+    }
+
+    public void registerNetworkConnectionObserver( final NetworkConnectionObserver observer,
+                                                   EventBus.Delivery delivery ) {
         if ( observer == null ) return;
-        mObservers.add( observer );
-        observer.onConnectionStatusChanged( mStatus );
+        EventBus.Subscriber<NetworkStatus> subscriber = new EventBus.Subscriber<NetworkStatus>() {
+            @Override
+            public void onEvent( NetworkStatus status ) {
+                observer.onConnectionStatusChanged( status );
+            }
+        };
+        // A change published after the current status is delivered behind it, never ahead of it
+        synchronized ( mStatusLock ) {
+            observer.onConnectionStatusChanged( mStatus );
+            mStatusBus.subscribe( subscriber, delivery );
+        }
     }
 
     private void notifyConnectionStatusObservers( NetworkStatus status ){
-        for ( NetworkConnectionObserver observer : mObservers ) {
-            observer.onConnectionStatusChanged( status );
+        synchronized ( mStatusLock ) {
+            mStatusBus.publish( status );
         }
     }
 
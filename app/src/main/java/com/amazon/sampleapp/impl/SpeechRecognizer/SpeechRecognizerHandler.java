@@ -18,6 +18,10 @@ package com.amazon.sampleapp.impl.SpeechRecognizer;
 import android.app.Activity;
 
 import com.amazon.sampleapp.aace.alexa.SpeechRecognizer;
+import com.amazon.sampleapp.impl.Audio.AudioInputHandler;
+import com.amazon.sampleapp.impl.Audio.AudioInputProviderHandler;
+import com.amazon.sampleapp.impl.Audio.VoiceActivityDetector;
+import com.amazon.sampleapp.impl.Events.EventBus;
 
 import java.util.Observable;
 import java.util.Observer;
@@ -30,23 +34,27 @@ public class SpeechRecognizerHandler extends SpeechRecognizer {
     private static final String TAG = SpeechRecognizerHandler.class.getSimpleName();
 
     private final Activity mActivity;
-    private AudioCueObservable mAudioCueObservable = new AudioCueObservable();
+    private final AudioInputProviderHandler mAudioInputProvider;
+    private final EventBus<AudioCueState> mAudioCueBus = new EventBus<>( "audioCue" );
+    private AudioCueObservable mAudioCueObservable; // Created by the first addObserver()
     private final ExecutorService mExecutor = Executors.newFixedThreadPool( 1 );
     private boolean mWakeWordEnabled;
     private boolean mAllowStopCapture = false; // Only true if holdToTalk() returned true
     // AutoVoiceChrome controller
 
     public SpeechRecognizerHandler( Activity activity,
+                                    AudioInputProviderHandler audioInputProvider,
                                     boolean wakeWordSupported,
                                     boolean wakeWordEnabled ) {
         super( wakeWordSupported && wakeWordEnabled );
         mActivity = activity;
+        mAudioInputProvider = audioInputProvider;
         mWakeWordEnabled = wakeWordEnabled;
     }
 
     @Override
     public boolean wakewordDetected( String wakeWord ) {
-        mAudioCueObservable.playAudioCue( AudioCueState.START_VOICE );
+        mAudioCueBus.publish( AudioCueState.START_VOICE );
 
         // Notify Error state to AutoVoiceChrome if disconnected with Alexa
 
@@ -55,18 +63,18 @@ public class SpeechRecognizerHandler extends SpeechRecognizer {
 
     @Override
     public void endOfSpeechDetected() {
-        mAudioCueObservable.playAudioCue( AudioCueState.END );
+        mAudioCueBus.publish( AudioCueState.END );
     }
 
     public void onTapToTalk() {
-        if ( tapToTalk() ) mAudioCueObservable.playAudioCue( AudioCueState.START_TOUCH );
+        if ( tapToTalk() ) mAudioCueBus.publish( AudioCueState.START_TOUCH );
     }
 
     public void onHoldToTalk() {
         mAllowStopCapture = false;
         if ( holdToTalk() ) {
             mAllowStopCapture = true;
-            mAudioCueObservable.playAudioCue( AudioCueState.START_TOUCH );
+            mAudioCueBus.publish( AudioCueState.START_TOUCH );
         }
     }
 
@@ -75,10 +83,71 @@ public class SpeechRecognizerHandler extends SpeechRecognizer {
         mAllowStopCapture = false;
     }
 
+    /**
+     * Starts a wake word interaction for a keyword found by a keyword spotter on the platform.
+     * The spotter must be fed from the default audio input, kept open with
+     * @c AudioInputHandler.startListening(). The audio from shortly before the keyword is
+     * written to the Engine ahead of live audio, so the first words are not clipped.
+     *
+     * @param keyword The keyword that was detected, e.g. "alexa"
+     * @param beginTimeNanos The @c SystemClock.elapsedRealtimeNanos() time the keyword began
+     * @param endTimeNanos The @c SystemClock.elapsedRealtimeNanos() time the keyword ended
+     * @return @c true if the Engine started a recognize event
+     */
+    public boolean onKeywordDetected( String keyword, long beginTimeNanos, long endTimeNanos ) {
+        AudioInputHandler audioInput = mAudioInputProvider.getDefaultAudioInput();
+        long[] indices = audioInput.prepareKeywordReplay( beginTimeNanos, endTimeNanos );
+        if ( indices == null ) return false;
+        if ( !startCapture( Initiator.WAKEWORD, indices[0], indices[1], keyword ) ) {
+            audioInput.cancelKeywordReplay();
+            return false;
+        }
+        mAudioCueBus.publish( AudioCueState.START_VOICE );
+        return true;
+    }
+
+    /**
+     * Enables on-device end of speech detection. When the local voice activity detector hears
+     * the user stop talking, capture is stopped without waiting for the Engine.
+     */
+    public void setEarlyEndpointingEnabled( boolean enabled ) {
+        AudioInputHandler audioInput = mAudioInputProvider.getDefaultAudioInput();
+        audioInput.setVoiceActivityDetector( enabled ? new VoiceActivityDetector( mEndOfSpeechListener ) : null );
+    }
+
+    private final VoiceActivityDetector.Listener mEndOfSpeechListener = new VoiceActivityDetector.Listener() {
+        @Override
+        public void onEndOfSpeech() {
+            // Called on the capture thread, which stopCapture() may wait on
+            mExecutor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    if ( stopCapture() ) {
+                        mAllowStopCapture = false;
+                        mAudioCueBus.publish( AudioCueState.END );
+                    }
+                }
+            } );
+        }
+    };
+
     /* For playing speech recognition audio cues */
 
     public enum AudioCueState { START_TOUCH, START_VOICE, END }
 
+    /**
+     * Receives the audio cues to play. Cues are published on Engine threads, so playing them
+     * inline would hold up the Engine.
+     */
+    public EventBus<AudioCueState>.Subscription addAudioCueObserver(
+            EventBus.Subscriber<AudioCueState> observer, EventBus.Delivery delivery ) {
+        return mAudioCueBus.subscribe( observer, delivery );
+    }
+
+    /**
+     * @deprecated Subscribe with @c addAudioCueObserver() instead
+     */
+    @Deprecated
     public static class AudioCueObservable extends Observable {
 
         void playAudioCue( AudioCueState state ) {
@@ -87,8 +156,23 @@ public class SpeechRecognizerHandler extends SpeechRecognizer {
         }
     }
 
-    public void addObserver( Observer observer ) {
-        if ( mAudioCueObservable == null ) mAudioCueObservable = new AudioCueObservable();
+    /**
+     * Notifies @c observer of each cue on the thread that publishes it, as before the event bus.
+     *
+     * @deprecated Use @c addAudioCueObserver(), which can move the cues off Engine threads
+     */
+    @Deprecated
+    public synchronized void addObserver( Observer observer ) {
+        if ( mAudioCueObservable == null ) {
+            final AudioCueObservable observable = new AudioCueObservable();
+            mAudioCueBus.subscribe( new EventBus.Subscriber<AudioCueState>() {
+                @Override
+                public void onEvent( AudioCueState state ) {
+                    observable.playAudioCue( state );
+                }
+            }, EventBus.Delivery.INLINE );
+            mAudioCueObservable = observable;
+        }
         mAudioCueObservable.addObserver( observer );
     }
 
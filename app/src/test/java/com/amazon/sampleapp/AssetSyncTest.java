@@ -0,0 +1,206 @@
+package com.amazon.sampleapp;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Syncs a mocked asset tree into a temporary folder, counting how often each asset is opened.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AssetSyncTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // Asset path to content; null content fails the copy halfway through
+    private final Map<String, byte[]> mAssets = new TreeMap<>();
+    private final Map<String, AtomicInteger> mOpens = new ConcurrentHashMap<>();
+    private final PackageInfo mPackageInfo = new PackageInfo();
+    private Context mContext;
+    private File mDest;
+    private File mManifest;
+
+    @Before
+    public void setUp() throws Exception {
+        mAssets.put("certs/ca.pem", bytes("certificate"));
+        mAssets.put("models/wakeword.bin", bytes("model weights"));
+        mPackageInfo.versionCode = 1;
+        mPackageInfo.lastUpdateTime = 1000;
+
+        AssetManager assets = mock(AssetManager.class);
+        when(assets.list(anyString())).thenAnswer(new Answer<String[]>() {
+            @Override
+            public String[] answer(InvocationOnMock invocation) {
+                String prefix = invocation.getArgument(0) + "/";
+                Map<String, Boolean> children = new TreeMap<>();
+                for (String path : mAssets.keySet()) {
+                    if (path.startsWith(prefix)) children.put(path.substring(prefix.length()).split("/")[0], true);
+                }
+                return children.keySet().toArray(new String[0]);
+            }
+        });
+        when(assets.open(anyString())).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) throws IOException {
+                String path = invocation.getArgument(0);
+                opens(path).incrementAndGet();
+                byte[] content = mAssets.get(path);
+                return content != null ? new ByteArrayInputStream(content) : new FailingInputStream();
+            }
+        });
+        PackageManager packageManager = mock(PackageManager.class);
+        when(packageManager.getPackageInfo(anyString(), anyInt())).thenReturn(mPackageInfo);
+        mContext = mock(Context.class);
+        when(mContext.getAssets()).thenReturn(assets);
+        when(mContext.getPackageManager()).thenReturn(packageManager);
+        when(mContext.getPackageName()).thenReturn("com.amazon.sampleapp");
+
+        mDest = mFolder.newFolder("files");
+        mManifest = new File(mDest, "assets.json");
+    }
+
+    @Test
+    public void anUnchangedApkSkipsIntactFilesWithoutOpeningTheAssets() {
+        AssetSync.Result first = sync();
+        assertEquals(2, first.getFilesCopied());
+        assertContent("certificate", "certs/ca.pem");
+
+        AssetSync.Result second = sync();
+
+        assertEquals(0, second.getFilesCopied());
+        assertEquals(2, second.getFilesSkipped());
+        assertEquals("certificate".length() + "model weights".length(), second.getBytesSkipped());
+        assertEquals(1, opens("certs/ca.pem").get());
+        assertEquals(1, opens("models/wakeword.bin").get());
+    }
+
+    @Test
+    public void aFileChangedOnDiskIsCopiedAgain() throws Exception {
+        sync();
+        writeDest("certs/ca.pem", "tampered with");
+
+        AssetSync.Result result = sync();
+
+        assertEquals(1, result.getFilesCopied());
+        assertEquals(1, result.getFilesSkipped());
+        assertContent("certificate", "certs/ca.pem");
+    }
+
+    @Test
+    public void afterAnApkUpdateOnlyAssetsWithANewChecksumAreCopied() throws Exception {
+        sync();
+        File model = new File(mDest, "models/wakeword.bin");
+        long modelModified = model.lastModified();
+        mAssets.put("certs/ca.pem", bytes("CERTIFICATE")); // Same size, new content
+        mPackageInfo.lastUpdateTime = 2000;
+
+        AssetSync.Result result = sync();
+
+        assertEquals(1, result.getFilesCopied());
+        assertEquals(1, result.getFilesSkipped());
+        assertContent("CERTIFICATE", "certs/ca.pem");
+        assertEquals(modelModified, model.lastModified());
+        // Both read for their checksum, only the changed one again to copy it
+        assertEquals(3, opens("certs/ca.pem").get());
+        assertEquals(2, opens("models/wakeword.bin").get());
+
+        // The manifest now trusts the new APK
+        sync();
+        assertEquals(3, opens("certs/ca.pem").get());
+    }
+
+    @Test
+    public void aFailedCopyLeavesThePreviousFileAndNoTemporaryFile() throws Exception {
+        sync();
+        mAssets.put("certs/ca.pem", null);
+        writeDest("certs/ca.pem", "old certificate"); // Forces a copy
+
+        AssetSync.Result result = sync();
+
+        assertEquals(1, result.getFilesFailed());
+        assertContent("old certificate", "certs/ca.pem");
+        assertFalse(new File(mDest, "certs/ca.pem.sync").exists());
+        assertFalse(new File(mManifest.getPath() + ".sync").exists());
+
+        // Not in the manifest, so retried by the next sync
+        mAssets.put("certs/ca.pem", bytes("certificate"));
+        assertEquals(1, sync().getFilesCopied());
+        assertContent("certificate", "certs/ca.pem");
+    }
+
+    private AssetSync.Result sync() {
+        return new AssetSync(mContext, mManifest)
+                .addDirectory("certs", new File(mDest, "certs"))
+                .addDirectory("models", new File(mDest, "models"))
+                .sync();
+    }
+
+    private AtomicInteger opens(String path) {
+        mOpens.putIfAbsent(path, new AtomicInteger());
+        return mOpens.get(path);
+    }
+
+    private void writeDest(String path, String content) throws IOException {
+        try (FileOutputStream os = new FileOutputStream(new File(mDest, path))) {
+            os.write(bytes(content));
+        }
+    }
+
+    private void assertContent(String expected, String path) {
+        File file = new File(mDest, path);
+        byte[] content = new byte[(int) file.length()];
+        try (FileInputStream is = new FileInputStream(file)) {
+            int read = 0;
+            while (read < content.length) read += is.read(content, read, content.length - read);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        assertArrayEquals(bytes(expected), content);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Returns a few bytes, then fails as an interrupted read would
+    private static class FailingInputStream extends InputStream {
+        private int mRemaining = 4;
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining-- > 0) return 'x';
+            throw new IOException("read failed");
+        }
+    }
+}
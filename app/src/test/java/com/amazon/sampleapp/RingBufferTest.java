@@ -0,0 +1,143 @@
+package com.amazon.sampleapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+    @Test
+    public void keepsTheNewestElementsOldestFirst() {
+        RingBuffer<Integer> buffer = new RingBuffer<>( 3 );
+        assertNull( buffer.peekLast() );
+        for ( int i = 1; i <= 5; i++ ) buffer.add( i );
+
+        assertEquals( Arrays.asList( 3, 4, 5 ), buffer );
+        assertEquals( Arrays.asList( 3, 4, 5 ), buffer.snapshot() );
+        assertEquals( Integer.valueOf( 5 ), buffer.peekLast() );
+        assertEquals( 5, buffer.getTotalAdded() );
+    }
+
+    @Test
+    public void clearKeepsTheTotal() {
+        RingBuffer<String> buffer = new RingBuffer<>( 2 );
+        buffer.addAll( Arrays.asList( "a", "b", "c" ) );
+        buffer.clear();
+
+        assertTrue( buffer.isEmpty() );
+        assertTrue( buffer.snapshot().isEmpty() );
+        assertEquals( 3, buffer.getTotalAdded() );
+        buffer.add( "d" );
+        assertEquals( Arrays.asList( "d" ), buffer.snapshot() );
+    }
+
+    @Test
+    public void longBufferKeepsTheNewestValues() {
+        LongRingBuffer buffer = new LongRingBuffer( 4 );
+        for ( long i = 0; i < 10; i++ ) buffer.add( i );
+
+        assertArrayEquals( new long[] { 6, 7, 8, 9 }, buffer.snapshot() );
+        assertEquals( 6, buffer.get( 0 ) );
+        buffer.clear();
+        assertEquals( 0, buffer.snapshot().length );
+    }
+
+    @Test
+    public void intBufferKeepsTheNewestValues() {
+        IntRingBuffer buffer = new IntRingBuffer( 3 );
+        for ( int i = 0; i < 7; i++ ) buffer.add( i );
+
+        assertArrayEquals( new int[] { 4, 5, 6 }, buffer.snapshot() );
+        assertEquals( 6, buffer.get( 2 ) );
+        assertEquals( 7, buffer.getTotalAdded() );
+        buffer.clear();
+        assertTrue( buffer.isEmpty() );
+        assertEquals( 0, buffer.snapshot().length );
+    }
+
+    @Test
+    public void byteChunkBufferKeepsTheNewestChunksAtTheirLengths() {
+        ByteChunkRingBuffer buffer = new ByteChunkRingBuffer( 2, 4 );
+        buffer.add( new byte[] { 1, 2, 3, 4 }, 0, 4 );
+        buffer.add( new byte[] { 9, 5, 6 }, 1, 2 );
+        buffer.add( new byte[] { 7 }, 0, 1 );
+
+        assertEquals( 2, buffer.size() );
+        assertEquals( 2, buffer.length( 0 ) );
+        byte[] target = new byte[3];
+        assertEquals( 1, buffer.get( 1, target, 2 ) );
+        assertArrayEquals( new byte[] { 0, 0, 7 }, target );
+        List<byte[]> snapshot = buffer.snapshot();
+        assertArrayEquals( new byte[] { 5, 6 }, snapshot.get( 0 ) );
+        assertArrayEquals( new byte[] { 7 }, snapshot.get( 1 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void byteChunkBufferRejectsChunksOverTheMaximum() {
+        new ByteChunkRingBuffer( 2, 4 ).add( new byte[5], 0, 5 );
+    }
+
+    @Test
+    public void concurrentBuffersBehaveTheSame() {
+        RingBuffer<Integer> buffer = RingBuffer.createConcurrent( 2 );
+        buffer.addAll( Arrays.asList( 1, 2, 3 ) );
+        assertEquals( Arrays.asList( 2, 3 ), buffer.snapshot() );
+        assertEquals( Integer.valueOf( 3 ), buffer.peekLast() );
+
+        IntRingBuffer ints = IntRingBuffer.createConcurrent( 2 );
+        for ( int i = 0; i < 3; i++ ) ints.add( i );
+        assertArrayEquals( new int[] { 1, 2 }, ints.snapshot() );
+
+        ByteChunkRingBuffer chunks = ByteChunkRingBuffer.createConcurrent( 1, 2 );
+        chunks.add( new byte[] { 1, 2 }, 0, 2 );
+        assertArrayEquals( new byte[] { 1, 2 }, chunks.snapshot().get( 0 ) );
+    }
+
+    @Test
+    public void snapshotsAreConsistentWhileAnotherThreadAdds() throws InterruptedException {
+        final LongRingBuffer values = LongRingBuffer.createConcurrent( 64 );
+        final RingBuffer<Long> elements = RingBuffer.createConcurrent( 64 );
+        final AtomicBoolean running = new AtomicBoolean( true );
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                while ( running.get() && failure.get() == null ) {
+                    check( values.snapshot() );
+                    List<Long> snapshot = elements.snapshot();
+                    long[] copy = new long[snapshot.size()];
+                    for ( int i = 0; i < copy.length; i++ ) copy[i] = snapshot.get( i );
+                    check( copy );
+                }
+            }
+
+            // A torn or overwritten slot breaks the run of consecutive values
+            private void check( long[] snapshot ) {
+                if ( snapshot.length > 64 ) failure.set( "size " + snapshot.length );
+                for ( int i = 1; i < snapshot.length; i++ ) {
+                    if ( snapshot[i] != snapshot[i - 1] + 1 ) {
+                        failure.set( Arrays.toString( snapshot ) );
+                        return;
+                    }
+                }
+            }
+        } );
+        reader.start();
+        for ( long i = 0; i < 2000000; i++ ) {
+            values.add( i );
+            elements.add( i );
+        }
+        running.set( false );
+        reader.join();
+
+        assertNull( failure.get() );
+    }
+}
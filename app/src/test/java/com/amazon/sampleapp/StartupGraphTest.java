@@ -0,0 +1,90 @@
+package com.amazon.sampleapp;
+
+import com.amazon.sampleapp.impl.Metrics.Gauge;
+import com.amazon.sampleapp.impl.Metrics.MetricsRegistry;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StartupGraphTest {
+
+    @Test
+    public void stepsRunAfterTheirDependencies() throws Exception {
+        StartupGraph graph = new StartupGraph(2);
+        final StartupGraph.Node<Integer> first = graph.add("first", constant(1));
+        StartupGraph.Node<Integer> second = graph.add("second", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return first.get() + 1;
+            }
+        }, first);
+        StartupGraph.Node<String> caller = graph.addOnCallerThread("caller", new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        }, second);
+
+        assertEquals(Integer.valueOf(2), graph.await(second));
+        assertEquals(Thread.currentThread().getName(), graph.await(caller));
+        graph.finish();
+    }
+
+    @Test
+    public void dependentsOfAFailedStepAreCancelled() throws Exception {
+        StartupGraph graph = new StartupGraph(1);
+        StartupGraph.Node<Integer> broken = graph.add("broken", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException("broken");
+            }
+        });
+        StartupGraph.Node<Integer> dependent = graph.add("dependent", constant(1), broken);
+
+        try {
+            graph.await(broken);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        try {
+            graph.await(dependent);
+            fail();
+        } catch (CancellationException e) {
+            assertEquals(StartupGraph.State.CANCELLED, dependent.getState());
+        }
+        graph.finish();
+    }
+
+    @Test
+    public void runTimeGaugeIsSetOnceWhenTheStepCompletes() throws Exception {
+        Gauge gauge = MetricsRegistry.getDefault().gauge("startup.gaugeStepMs");
+        gauge.set(-2);
+        StartupGraph graph = new StartupGraph(1);
+        StartupGraph.Node<Integer> step = graph.add("gaugeStep", constant(1));
+        graph.await(step);
+        assertTrue(gauge.get() >= 0);
+
+        // Reporting leaves the gauge alone
+        gauge.set(-1);
+        graph.getReport();
+        graph.finish();
+        assertEquals(-1, gauge.get());
+    }
+
+    private static Callable<Integer> constant(final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks each preprocessing stage on synthetic 16 KHZ frames.
+ */
+public class AudioProcessingChainTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = 160; // 10 ms
+
+    @Test
+    public void dcRemovalTakesOutTheOffsetAndKeepsTheTone() {
+        short[] samples = tone( 1000, 4000, 2 * SAMPLE_RATE, 3000 );
+        run( new DcRemovalStage(), samples );
+
+        // Measure the second second, once the blocker has settled
+        assertEquals( 0, mean( samples, SAMPLE_RATE ), 20 );
+        assertEquals( 4000 / Math.sqrt( 2 ), rms( samples, SAMPLE_RATE ), 40 );
+    }
+
+    @Test
+    public void highPassCutsRumbleAndPassesSpeech() {
+        double rumbleGainDb = gainDb( new HighPassStage(), 30 );
+        double speechGainDb = gainDb( new HighPassStage(), 1000 );
+
+        assertTrue( "30 Hz at " + rumbleGainDb + " dB", rumbleGainDb < -18 );
+        assertEquals( 0, speechGainDb, 0.2 );
+    }
+
+    @Test
+    public void fixedGainScalesAndClamps() {
+        short[] samples = tone( 1000, 1000, FRAME_SAMPLES * 2, 0 );
+        run( new GainStage( 20 ), samples );
+        assertEquals( 10000 / Math.sqrt( 2 ), rms( samples, 0 ), 100 );
+
+        // Samples over full scale are clamped, not wrapped around
+        short[] input = tone( 1000, 20000, FRAME_SAMPLES, 0 );
+        short[] loud = input.clone();
+        run( new GainStage( 20 ), loud );
+        for ( int i = 0; i < loud.length; i++ ) {
+            assertEquals( Integer.signum( input[i] ), Integer.signum( loud[i] ) );
+        }
+        assertEquals( Short.MAX_VALUE, max( loud ) );
+    }
+
+    @Test
+    public void automaticGainMovesSpeechTowardsTheTarget() {
+        GainStage quiet = GainStage.createAutomatic();
+        short[] samples = tone( 1000, 400, 3 * SAMPLE_RATE, 0 ); // About -41 dBFS
+        run( quiet, samples );
+        // Limited to the 12 dB maximum gain
+        assertEquals( 12, 20 * Math.log10( quiet.getGain() ), 0.1 );
+
+        GainStage loud = GainStage.createAutomatic();
+        samples = tone( 1000, 16000, SAMPLE_RATE, 0 ); // About -9 dBFS
+        run( loud, samples );
+        assertEquals( -20, dbfs( rms( samples, SAMPLE_RATE / 2 ) ), 0.5 );
+    }
+
+    @Test
+    public void automaticGainHoldsDuringNoise() {
+        GainStage gain = GainStage.createAutomatic();
+        run( gain, tone( 1000, 16000, SAMPLE_RATE, 0 ) );
+        float speechGain = gain.getGain();
+
+        run( gain, tone( 1000, 20, SAMPLE_RATE, 0 ) ); // Below the noise floor
+        assertEquals( speechGain, gain.getGain(), 0 );
+    }
+
+    @Test
+    public void softLimiterPassesQuietSamplesAndBendsPeaks() {
+        SoftLimiterStage limiter = new SoftLimiterStage();
+        float threshold = ( float ) Math.pow( 10, -3 / 20.0 ) * Short.MAX_VALUE;
+        short[] samples = { 0, 1000, -1000, ( short ) threshold, 30000, -30000, Short.MAX_VALUE, Short.MIN_VALUE };
+        short[] limited = samples.clone();
+        limiter.process( limited, limited.length );
+
+        for ( int i = 0; i < 4; i++ ) assertEquals( samples[i], limited[i] );
+        assertTrue( limited[4] > threshold && limited[4] < 30000 );
+        assertEquals( -limited[4], limited[5] );
+        assertTrue( limited[6] > limited[4] && limited[6] < Short.MAX_VALUE );
+        assertTrue( limited[7] < limited[5] && limited[7] > Short.MIN_VALUE );
+    }
+
+    @Test
+    public void chainProcessesTheFrameInPlace() {
+        AudioProcessingChain chain = new AudioProcessingChain( FRAME_SAMPLES );
+        chain.setStages( new GainStage( 6.0206f ) );
+        ByteBuffer frame = ByteBuffer.allocateDirect( FRAME_SAMPLES * 2 );
+        for ( int round = 0; round < 2; round++ ) {
+            for ( int i = 0; i < FRAME_SAMPLES; i++ ) frame.putShort( i * 2, ( short ) 1000 );
+            chain.process( frame, FRAME_SAMPLES * 2 );
+        }
+
+        for ( int i = 0; i < FRAME_SAMPLES; i++ ) assertEquals( 2000, frame.getShort( i * 2 ), 1 );
+        assertEquals( 1, chain.getStages().length );
+    }
+
+    private static void run( AudioProcessingStage stage, short[] samples ) {
+        short[] frame = new short[FRAME_SAMPLES];
+        for ( int offset = 0; offset < samples.length; offset += FRAME_SAMPLES ) {
+            int length = Math.min( FRAME_SAMPLES, samples.length - offset );
+            System.arraycopy( samples, offset, frame, 0, length );
+            stage.process( frame, length );
+            System.arraycopy( frame, 0, samples, offset, length );
+        }
+    }
+
+    // Gain of the second half second of a tone at frequencyHz through stage
+    private static double gainDb( AudioProcessingStage stage, double frequencyHz ) {
+        short[] samples = tone( frequencyHz, 10000, SAMPLE_RATE, 0 );
+        run( stage, samples );
+        return 20 * Math.log10( rms( samples, SAMPLE_RATE / 2 ) / ( 10000 / Math.sqrt( 2 ) ) );
+    }
+
+    private static short[] tone( double frequencyHz, double amplitude, int length, int offset ) {
+        short[] samples = new short[length];
+        for ( int i = 0; i < length; i++ ) {
+            samples[i] = ( short ) Math.round( offset + amplitude * Math.sin( 2 * Math.PI * frequencyHz * i / SAMPLE_RATE ) );
+        }
+        return samples;
+    }
+
+    private static short max( short[] samples ) {
+        short max = Short.MIN_VALUE;
+        for ( short sample : samples ) max = ( short ) Math.max( max, sample );
+        return max;
+    }
+
+    private static double mean( short[] samples, int from ) {
+        double sum = 0;
+        for ( int i = from; i < samples.length; i++ ) sum += samples[i];
+        return sum / ( samples.length - from );
+    }
+
+    private static double rms( short[] samples, int from ) {
+        double mean = mean( samples, from );
+        double sum = 0;
+        for ( int i = from; i < samples.length; i++ ) sum += ( samples[i] - mean ) * ( samples[i] - mean );
+        return Math.sqrt( sum / ( samples.length - from ) );
+    }
+
+    private static double dbfs( double rms ) {
+        return 20 * Math.log10( rms / Short.MAX_VALUE );
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import com.amazon.sampleapp.aace.audio.AudioStream;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads an @c AudioStream, mocked as the Engine would feed it, through @c AudioStreamDataSource.
+ */
+public class AudioStreamDataSourceTest {
+
+    private static final int STREAM_SIZE = 200 * 1024; // Over three times the replay window
+    private static final int ENGINE_CHUNK = 1000; // Bytes the Engine has ready per read
+
+    private final byte[] mContent = new byte[STREAM_SIZE];
+    private int mStreamPosition;
+    private int mEmptyReads; // Reads returning 0 before the next chunk is ready
+    private int mPendingEmptyReads;
+    private AudioStream mStream;
+
+    @Before
+    public void setUp() {
+        for ( int i = 0; i < mContent.length; i++ ) mContent[i] = ( byte ) ( i * 31 + i / 256 );
+        mStream = mock( AudioStream.class );
+        when( mStream.read( any( byte[].class ), anyInt(), anyInt() ) ).thenAnswer( new Answer<Integer>() {
+            @Override
+            public Integer answer( InvocationOnMock invocation ) {
+                if ( mPendingEmptyReads > 0 ) {
+                    mPendingEmptyReads--;
+                    return 0;
+                }
+                mPendingEmptyReads = mEmptyReads;
+                byte[] buffer = invocation.getArgument( 0 );
+                int offset = invocation.getArgument( 1 );
+                int size = Math.min( Math.min( ( int ) invocation.getArgument( 2 ), ENGINE_CHUNK ),
+                    STREAM_SIZE - mStreamPosition );
+                System.arraycopy( mContent, mStreamPosition, buffer, offset, size );
+                mStreamPosition += size;
+                return size;
+            }
+        } );
+        when( mStream.isClosed() ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( InvocationOnMock invocation ) {
+                return mStreamPosition == STREAM_SIZE;
+            }
+        } );
+    }
+
+    @Test
+    public void readsTheWholeStreamThenEndOfInput() throws IOException {
+        DataSource source = new AudioStreamDataSource.Factory( mStream ).createDataSource();
+        source.open( spec( 0 ) );
+
+        assertArrayEquals( mContent, readToEnd( source, 4096 ) );
+        assertEquals( C.RESULT_END_OF_INPUT, source.read( new byte[16], 0, 16 ) );
+    }
+
+    @Test
+    public void waitsWhileTheEngineHasNoData() throws IOException {
+        mEmptyReads = 2;
+        DataSource source = new AudioStreamDataSource.Factory( mStream ).createDataSource();
+        source.open( spec( 0 ) );
+
+        int length = 10 * ENGINE_CHUNK;
+        assertArrayEquals( Arrays.copyOf( mContent, length ), read( source, length ) );
+    }
+
+    @Test
+    public void reopenReplaysRecentBytesWithoutReadingTheStreamAgain() throws IOException {
+        DataSource.Factory factory = new AudioStreamDataSource.Factory( mStream );
+        DataSource source = factory.createDataSource();
+        source.open( spec( 0 ) );
+        byte[] first = read( source, 100000 );
+        source.close();
+
+        // A loader retry reopens the shared source at a recent position
+        DataSource retry = factory.createDataSource();
+        assertSame( source, retry );
+        retry.open( spec( 90000 ) );
+        assertEquals( 100000, mStreamPosition );
+        byte[] replayed = read( retry, 10000 );
+
+        assertArrayEquals( Arrays.copyOfRange( first, 90000, 100000 ), replayed );
+        assertEquals( 100000, mStreamPosition );
+        assertArrayEquals( Arrays.copyOfRange( mContent, 100000, STREAM_SIZE ), readToEnd( retry, 3000 ) );
+    }
+
+    @Test
+    public void openSkipsForwardAndThenReplaysTheSkippedTail() throws IOException {
+        DataSource source = new AudioStreamDataSource.Factory( mStream ).createDataSource();
+        source.open( spec( 150000 ) );
+        assertArrayEquals( Arrays.copyOfRange( mContent, 150000, 151000 ), read( source, 1000 ) );
+        source.close();
+
+        source.open( spec( 149000 ) );
+        assertArrayEquals( Arrays.copyOfRange( mContent, 149000, 151000 ), read( source, 2000 ) );
+    }
+
+    @Test
+    public void reopenBeforeTheWindowFails() throws IOException {
+        DataSource source = new AudioStreamDataSource.Factory( mStream ).createDataSource();
+        source.open( spec( 0 ) );
+        read( source, 100000 );
+        source.close();
+
+        try {
+            source.open( spec( 0 ) );
+            fail();
+        } catch ( IOException expected ) {
+        }
+    }
+
+    private static DataSpec spec( long position ) {
+        return new DataSpec( null, position, C.LENGTH_UNSET, null );
+    }
+
+    private static byte[] read( DataSource source, int length ) throws IOException {
+        byte[] data = new byte[length];
+        int total = 0;
+        while ( total < length ) {
+            int size = source.read( data, total, Math.min( 4096, length - total ) );
+            if ( size == C.RESULT_END_OF_INPUT ) fail( "End of input after " + total + " bytes" );
+            total += size;
+        }
+        return data;
+    }
+
+    private static byte[] readToEnd( DataSource source, int readSize ) throws IOException {
+        byte[] data = new byte[STREAM_SIZE];
+        int total = 0;
+        int size;
+        while ( ( size = source.read( data, total, Math.min( readSize, data.length - total ) ) ) != C.RESULT_END_OF_INPUT ) {
+            total += size;
+            if ( total == data.length ) break;
+        }
+        return Arrays.copyOf( data, total );
+    }
+}
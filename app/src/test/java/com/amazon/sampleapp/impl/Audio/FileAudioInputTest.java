@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks how fixtures are found and parsed, and how frames are paced.
+ */
+public class FileAudioInputTest {
+
+    private static final long FRAME = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void wavSamplesFollowTheFormatAndSkipOtherChunks() throws IOException {
+        File file = write( "speech.wav", riff( format( 1, 1, 16000, 16 ), chunk( "LIST", 5 ), chunk( "data", 640 ) ) );
+        // 12 RIFF header, 8 + 16 fmt, 8 + 5 + 1 padding LIST, 8 data header
+        assertArrayEquals( new long[] { 58, 640 }, findSamples( file ) );
+    }
+
+    @Test
+    public void wavDataLongerThanTheFileIsCut() throws IOException {
+        byte[] wav = riff( format( 1, 1, 16000, 16 ), chunk( "data", 640 ) );
+        File file = write( "cut.wav", Arrays.copyOf( wav, wav.length - 100 ) );
+        assertArrayEquals( new long[] { 44, 540 }, findSamples( file ) );
+    }
+
+    @Test
+    public void filesWithoutARiffHeaderAreRawSamples() throws IOException {
+        assertArrayEquals( new long[] { 0, 320 }, findSamples( write( "speech.pcm", new byte[320] ) ) );
+        assertArrayEquals( new long[] { 0, 4 }, findSamples( write( "short.pcm", new byte[4] ) ) );
+    }
+
+    @Test
+    public void wavInAnotherFormatIsRejected() throws IOException {
+        assertRejected( riff( format( 1, 2, 16000, 16 ), chunk( "data", 640 ) ) ); // Stereo
+        assertRejected( riff( format( 1, 1, 44100, 16 ), chunk( "data", 640 ) ) );
+        assertRejected( riff( format( 1, 1, 16000, 8 ), chunk( "data", 640 ) ) );
+        assertRejected( riff( format( 3, 1, 16000, 16 ), chunk( "data", 640 ) ) ); // Float
+        assertRejected( riff( chunk( "data", 640 ), format( 1, 1, 16000, 16 ) ) );
+        assertRejected( riff( format( 1, 1, 16000, 16 ) ) );
+    }
+
+    @Test
+    public void fixturesInADirectoryAreSortedByName() throws IOException {
+        File directory = mFolder.newFolder( "fixtures" );
+        new File( directory, "b.wav" ).createNewFile();
+        new File( directory, "a.pcm" ).createNewFile();
+        new File( directory, "nested" ).mkdir();
+        assertEquals( Arrays.asList( new File( directory, "a.pcm" ), new File( directory, "b.wav" ) ),
+            FileAudioInput.listFixtures( directory ) );
+
+        File file = write( "single.wav", new byte[0] );
+        assertEquals( Arrays.asList( file ), FileAudioInput.listFixtures( file ) );
+        assertEquals( 0, FileAudioInput.listFixtures( new File( directory, "missing" ) ).size() );
+    }
+
+    @Test
+    public void pacerSpacesFramesFromTheStart() {
+        FramePacer pacer = new FramePacer( FRAME );
+        pacer.start( 1000 );
+        assertEquals( 0, pacer.delayNanos( 1000 ) );
+        pacer.advance();
+        assertEquals( FRAME, pacer.delayNanos( 1000 ) );
+        assertEquals( FRAME - 400, pacer.delayNanos( 1400 ) );
+        pacer.advance();
+        assertEquals( 2 * FRAME, pacer.delayNanos( 1000 ) );
+    }
+
+    @Test
+    public void pacerCatchesUpAfterALateFrameWithoutDrifting() {
+        FramePacer pacer = new FramePacer( FRAME );
+        pacer.start( 0 );
+        pacer.advance();
+
+        // Woken 25 ms late: the overdue frames go out at once, then the schedule resumes
+        long now = FRAME + 25 * 1000000L;
+        assertEquals( 0, pacer.delayNanos( now ) );
+        pacer.advance();
+        assertEquals( 0, pacer.delayNanos( now ) );
+        pacer.advance();
+        assertEquals( 0, pacer.delayNanos( now ) );
+        pacer.advance();
+        assertEquals( 4 * FRAME - now, pacer.delayNanos( now ) );
+    }
+
+    @Test
+    public void pacerStartsOverFromANewStart() {
+        FramePacer pacer = new FramePacer( FRAME );
+        pacer.start( 0 );
+        for ( int i = 0; i < 10; i++ ) pacer.advance();
+        pacer.start( FRAME );
+        assertEquals( 0, pacer.delayNanos( FRAME ) );
+    }
+
+    private long[] findSamples( File file ) throws IOException {
+        try ( FileInputStream stream = new FileInputStream( file ) ) {
+            return FileAudioInput.findSamples( stream.getChannel() );
+        }
+    }
+
+    private void assertRejected( byte[] wav ) throws IOException {
+        try {
+            findSamples( write( "rejected.wav", wav ) );
+            fail();
+        } catch ( IOException expected ) {
+        }
+    }
+
+    private File write( String name, byte[] content ) throws IOException {
+        File file = new File( mFolder.getRoot(), name );
+        try ( FileOutputStream output = new FileOutputStream( file ) ) {
+            output.write( content );
+        }
+        return file;
+    }
+
+    private static byte[] riff( byte[]... chunks ) {
+        int size = 4;
+        for ( byte[] chunk : chunks ) size += chunk.length;
+        ByteBuffer riff = ByteBuffer.allocate( 8 + size ).order( ByteOrder.LITTLE_ENDIAN );
+        riff.put( "RIFF".getBytes() ).putInt( size ).put( "WAVE".getBytes() );
+        for ( byte[] chunk : chunks ) riff.put( chunk );
+        return riff.array();
+    }
+
+    private static byte[] format( int encoding, int channels, int sampleRate, int bitsPerSample ) {
+        int blockAlign = channels * bitsPerSample / 8;
+        return ByteBuffer.allocate( 24 ).order( ByteOrder.LITTLE_ENDIAN )
+            .put( "fmt ".getBytes() ).putInt( 16 )
+            .putShort( ( short ) encoding ).putShort( ( short ) channels )
+            .putInt( sampleRate ).putInt( sampleRate * blockAlign )
+            .putShort( ( short ) blockAlign ).putShort( ( short ) bitsPerSample )
+            .array();
+    }
+
+    // A chunk of zeros, padded to an even length as RIFF requires
+    private static byte[] chunk( String id, int size ) {
+        return ByteBuffer.allocate( 8 + size + ( size & 1 ) ).order( ByteOrder.LITTLE_ENDIAN )
+            .put( id.getBytes() ).putInt( size ).array();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads through a @c MediaCache from a local HTTP server standing in for the media host.
+ */
+@RunWith( RobolectricTestRunner.class )
+public class MediaCacheTest {
+
+    private static final int CLIP_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final byte[] mClip = new byte[CLIP_SIZE];
+
+    @Before
+    public void setUp() throws IOException {
+        for ( int i = 0; i < mClip.length; i++ ) mClip[i] = ( byte ) ( i * 31 );
+        mServer = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        mServer.createContext( "/", new HttpHandler() {
+            @Override
+            public void handle( HttpExchange exchange ) throws IOException {
+                mRequests.incrementAndGet();
+                exchange.getResponseHeaders().add( "Content-Type", "audio/mpeg" );
+                exchange.sendResponseHeaders( 200, mClip.length );
+                try ( OutputStream body = exchange.getResponseBody() ) {
+                    body.write( mClip );
+                }
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop( 0 );
+    }
+
+    @Test
+    public void secondReadIsServedFromTheCache() throws IOException {
+        MediaCache cache = new MediaCache( mFolder.newFolder(), "hits", 1024 * 1024 );
+        DataSource.Factory factory = createFactory( cache );
+
+        assertArrayEquals( mClip, read( factory, clipUri( "a.mp3" ) ) );
+        assertArrayEquals( mClip, read( factory, clipUri( "a.mp3" ) ) );
+
+        assertEquals( 1, mRequests.get() );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( CLIP_SIZE, cache.getMissBytes() );
+        assertEquals( CLIP_SIZE, cache.getHitBytes() );
+        assertEquals( CLIP_SIZE, cache.getCachedBytes() );
+    }
+
+    @Test
+    public void cacheHitsAreNotCountedAsEvictions() throws IOException {
+        MediaCache cache = new MediaCache( mFolder.newFolder(), "touches", 1024 * 1024 );
+        DataSource.Factory factory = createFactory( cache );
+
+        for ( int i = 0; i < 5; i++ ) {
+            read( factory, clipUri( "a.mp3" ) );
+        }
+
+        assertEquals( 0, cache.getEvictionCount() );
+    }
+
+    @Test
+    public void leastRecentlyUsedClipIsEvictedOverBudget() throws IOException {
+        // Room for one clip only
+        MediaCache cache = new MediaCache( mFolder.newFolder(), "evictions", CLIP_SIZE + CLIP_SIZE / 2 );
+        DataSource.Factory factory = createFactory( cache );
+
+        read( factory, clipUri( "a.mp3" ) );
+        read( factory, clipUri( "b.mp3" ) );
+
+        assertEquals( 1, cache.getEvictionCount() );
+        assertEquals( CLIP_SIZE, cache.getCachedBytes() );
+
+        // b is still cached, a has to be downloaded again
+        read( factory, clipUri( "b.mp3" ) );
+        assertEquals( 2, mRequests.get() );
+        read( factory, clipUri( "a.mp3" ) );
+        assertEquals( 3, mRequests.get() );
+        assertEquals( 3, cache.getMissCount() );
+        assertEquals( 2, cache.getEvictionCount() );
+    }
+
+    private DataSource.Factory createFactory( MediaCache cache ) {
+        return cache.createDataSourceFactory( new DefaultHttpDataSourceFactory( "test", cache ) );
+    }
+
+    private Uri clipUri( String name ) {
+        return Uri.parse( "http://127.0.0.1:" + mServer.getAddress().getPort() + "/" + name );
+    }
+
+    private static byte[] read( DataSource.Factory factory, Uri uri ) throws IOException {
+        DataSource dataSource = factory.createDataSource();
+        byte[] data = new byte[CLIP_SIZE];
+        int length = 0;
+        try {
+            dataSource.open( new DataSpec( uri ) );
+            int size;
+            while ( ( size = dataSource.read( data, length, data.length - length ) ) != C.RESULT_END_OF_INPUT ) {
+                length += size;
+                if ( length == data.length ) {
+                    assertEquals( C.RESULT_END_OF_INPUT, dataSource.read( new byte[1], 0, 1 ) );
+                    break;
+                }
+            }
+        } finally {
+            dataSource.close();
+        }
+        assertEquals( CLIP_SIZE, length );
+        return data;
+    }
+}
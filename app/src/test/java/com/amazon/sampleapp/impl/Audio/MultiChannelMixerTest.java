@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiChannelMixerTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME = 160; // 10 ms
+
+    private final Random mRandom = new Random( 1 );
+
+    @Test
+    public void bestChannelPassesTheChannelWithSpeech() {
+        MultiChannelMixer mixer = MultiChannelMixer.createBestChannel( 3 );
+        mixer.prepare( SAMPLE_RATE );
+        short[] output = new short[FRAME];
+
+        // Noise on every channel, then speech that only reaches channel 2 well
+        for ( int n = 0; n < 50; n++ ) mixer.mix( frame( 3, -1, 0 ), FRAME, output, 0 );
+        assertEquals( 0, mixer.getSelectedChannel() );
+        short[] input = null;
+        for ( int n = 0; n < 30; n++ ) mixer.mix( input = frame( 3, 2, 8000 ), FRAME, output, 0 );
+
+        assertEquals( 2, mixer.getSelectedChannel() );
+        for ( int i = 0; i < FRAME; i++ ) assertEquals( input[i * 3 + 2], output[i] );
+    }
+
+    @Test
+    public void bestChannelDoesNotSwitchForAShortBurst() {
+        MultiChannelMixer mixer = MultiChannelMixer.createBestChannel( 2 );
+        mixer.prepare( SAMPLE_RATE );
+        short[] output = new short[FRAME];
+
+        for ( int n = 0; n < 50; n++ ) mixer.mix( frame( 2, -1, 0 ), FRAME, output, 0 );
+        for ( int round = 0; round < 5; round++ ) {
+            // 150 ms louder on channel 1, then comparable again
+            for ( int n = 0; n < 15; n++ ) mixer.mix( frame( 2, 1, 8000 ), FRAME, output, 0 );
+            for ( int n = 0; n < 15; n++ ) mixer.mix( frame( 2, -1, 0 ), FRAME, output, 0 );
+        }
+        assertEquals( 0, mixer.getSelectedChannel() );
+    }
+
+    @Test
+    public void delayAndSumDelaysEachChannelAcrossFrames() {
+        // 125 us is 2 samples at 16 KHZ
+        MultiChannelMixer mixer = MultiChannelMixer.createDelayAndSum( new int[] { 0, 125 }, null );
+        mixer.prepare( SAMPLE_RATE );
+        short[] input = new short[FRAME * 2];
+        short[] output = new short[FRAME * 2];
+
+        // An impulse on both channels in the last sample of the first frame
+        input[( FRAME - 1 ) * 2] = 10000;
+        input[( FRAME - 1 ) * 2 + 1] = 10000;
+        mixer.mix( input, FRAME, output, 0 );
+        mixer.mix( new short[FRAME * 2], FRAME, output, FRAME );
+
+        for ( int i = 0; i < FRAME * 2; i++ ) {
+            int expected = i == FRAME - 1 || i == FRAME + 1 ? 5000 : 0;
+            assertEquals( "sample " + i, expected, output[i] );
+        }
+    }
+
+    @Test
+    public void delayAndSumAddsASteeredSourceInPhase() {
+        int[] delaysUs = { 125, 0 };
+        float[] weights = { 0.5f, 0.5f };
+        MultiChannelMixer steered = MultiChannelMixer.createDelayAndSum( delaysUs, weights );
+        steered.prepare( SAMPLE_RATE );
+        MultiChannelMixer plain = MultiChannelMixer.createDelayAndSum( new int[] { 0, 0 }, weights );
+        plain.prepare( SAMPLE_RATE );
+
+        // A 2 KHZ tone reaching channel 1 two samples after channel 0, a quarter period apart
+        double steeredEnergy = 0;
+        double plainEnergy = 0;
+        short[] output = new short[FRAME];
+        for ( int n = 0; n < 20; n++ ) {
+            short[] input = new short[FRAME * 2];
+            for ( int i = 0; i < FRAME; i++ ) {
+                int t = n * FRAME + i;
+                input[i * 2] = tone( t );
+                input[i * 2 + 1] = tone( t - 2 );
+            }
+            steered.mix( input, FRAME, output, 0 );
+            if ( n > 0 ) steeredEnergy += energy( output );
+            plain.mix( input, FRAME, output, 0 );
+            if ( n > 0 ) plainEnergy += energy( output );
+        }
+
+        double inputEnergy = 19 * FRAME * 10000.0 * 10000 / 2;
+        assertEquals( 0, 10 * Math.log10( steeredEnergy / inputEnergy ), 0.1 );
+        assertEquals( -3, 10 * Math.log10( plainEnergy / inputEnergy ), 0.1 );
+    }
+
+    private static short tone( int t ) {
+        return ( short ) Math.round( 10000 * Math.sin( 2 * Math.PI * 2000 * t / SAMPLE_RATE ) );
+    }
+
+    private static double energy( short[] samples ) {
+        double energy = 0;
+        for ( short sample : samples ) energy += sample * sample;
+        return energy;
+    }
+
+    // Interleaved noise on every channel, plus a tone of the given amplitude on one channel
+    private short[] frame( int channels, int speechChannel, int amplitude ) {
+        short[] frame = new short[FRAME * channels];
+        for ( int i = 0; i < FRAME; i++ ) {
+            for ( int c = 0; c < channels; c++ ) {
+                double sample = mRandom.nextGaussian() * 100;
+                if ( c == speechChannel ) sample += amplitude * Math.sin( 2 * Math.PI * 300 * i / SAMPLE_RATE );
+                frame[i * channels + c] = ( short ) Math.round( sample );
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the accuracy of @c PolyphaseResampler on sine tones from the common native capture
+ * rates down to 16 KHZ.
+ */
+public class PolyphaseResamplerTest {
+
+    private static final int OUTPUT_RATE = 16000;
+    private static final double AMPLITUDE = 10000;
+    private static final int SETTLE_SAMPLES = 2000; // Output skipped while the filter fills
+
+    @Test
+    public void producesTheOutputRate() {
+        for ( int inputRate : new int[] { 48000, 44100, 32000, 22050, 16000 } ) {
+            assertEquals( "from " + inputRate, OUTPUT_RATE, resample( inputRate, 1000, 1, inputRate / 100 ).length );
+        }
+    }
+
+    @Test
+    public void passesSpeechBandTonesAccurately() {
+        for ( int inputRate : new int[] { 48000, 44100 } ) {
+            for ( double frequency : new double[] { 300, 1000, 3000, 6000 } ) {
+                short[] output = resample( inputRate, frequency, 1, inputRate / 100 );
+                String tone = frequency + " Hz from " + inputRate;
+                assertEquals( tone, 0, gainDb( output ), 0.1 );
+                double snrDb = snrDb( output, frequency );
+                assertTrue( tone + " SNR " + snrDb + " dB", snrDb > 65 );
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTonesAboveTheOutputNyquist() {
+        for ( int inputRate : new int[] { 48000, 44100 } ) {
+            for ( double frequency : new double[] { 9000, 12000, 20000 } ) {
+                double gainDb = gainDb( resample( inputRate, frequency, 1, inputRate / 100 ) );
+                assertTrue( frequency + " Hz from " + inputRate + " aliases at " + gainDb + " dB", gainDb < -65 );
+            }
+        }
+    }
+
+    @Test
+    public void outputDoesNotDependOnHowInputIsSplit() {
+        short[] frames = resample( 44100, 1000, 1, 441 );
+        short[] oddChunks = resample( 44100, 1000, 1, 97 );
+        assertArrayEquals( frames, oddChunks );
+    }
+
+    @Test
+    public void resetStartsOver() {
+        PolyphaseResampler resampler = new PolyphaseResampler( 48000, OUTPUT_RATE, 480 );
+        short[] first = resample( resampler, 48000, 1000, 1, 480 );
+        resampler.reset();
+        assertArrayEquals( first, resample( resampler, 48000, 1000, 1, 480 ) );
+    }
+
+    private static short[] resample( int inputRate, double frequency, int seconds, int chunk ) {
+        return resample( new PolyphaseResampler( inputRate, OUTPUT_RATE, chunk ), inputRate, frequency,
+            seconds, chunk );
+    }
+
+    // Feeds a sine tone in chunks of the given size and collects the output
+    private static short[] resample( PolyphaseResampler resampler, int inputRate, double frequency,
+                                     int seconds, int chunk ) {
+        short[] output = new short[OUTPUT_RATE * seconds + 16];
+        ByteBuffer buffer = ByteBuffer.allocate( ( chunk * OUTPUT_RATE / inputRate + 2 ) * 2 );
+        int produced = 0;
+        long total = ( long ) inputRate * seconds;
+        for ( long t = 0; t < total; ) {
+            int length = ( int ) Math.min( chunk, total - t );
+            short[] input = resampler.inputBuffer();
+            for ( int i = 0; i < length; i++, t++ ) {
+                input[resampler.inputOffset() + i] =
+                    ( short ) Math.round( AMPLITUDE * Math.sin( 2 * Math.PI * frequency * t / inputRate ) );
+            }
+            int count = resampler.process( length, buffer );
+            for ( int i = 0; i < count; i++ ) output[produced++] = buffer.getShort( i * 2 );
+        }
+        return Arrays.copyOf( output, produced );
+    }
+
+    private static double gainDb( short[] output ) {
+        double energy = 0;
+        for ( int i = SETTLE_SAMPLES; i < output.length; i++ ) energy += output[i] * output[i];
+        double rms = Math.sqrt( energy / ( output.length - SETTLE_SAMPLES ) );
+        return 20 * Math.log10( Math.max( rms, 1e-9 ) / ( AMPLITUDE / Math.sqrt( 2 ) ) );
+    }
+
+    // Fits a sine at frequency by least squares and compares it with what is left over
+    private static double snrDb( short[] output, double frequency ) {
+        double cc = 0, ss = 0, sc = 0, cy = 0, sy = 0;
+        for ( int i = SETTLE_SAMPLES; i < output.length; i++ ) {
+            double c = Math.cos( 2 * Math.PI * frequency * i / OUTPUT_RATE );
+            double s = Math.sin( 2 * Math.PI * frequency * i / OUTPUT_RATE );
+            cc += c * c;
+            ss += s * s;
+            sc += s * c;
+            cy += c * output[i];
+            sy += s * output[i];
+        }
+        double determinant = cc * ss - sc * sc;
+        double a = ( cy * ss - sy * sc ) / determinant;
+        double b = ( sy * cc - cy * sc ) / determinant;
+        double signal = 0;
+        double noise = 0;
+        for ( int i = SETTLE_SAMPLES; i < output.length; i++ ) {
+            double fit = a * Math.cos( 2 * Math.PI * frequency * i / OUTPUT_RATE )
+                + b * Math.sin( 2 * Math.PI * frequency * i / OUTPUT_RATE );
+            signal += fit * fit;
+            noise += ( output[i] - fit ) * ( output[i] - fit );
+        }
+        return 10 * Math.log10( signal / noise );
+    }
+}
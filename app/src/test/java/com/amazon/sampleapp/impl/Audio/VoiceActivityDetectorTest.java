@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceActivityDetectorTest {
+
+    private static final int FRAME_SAMPLES = 160; // 10 ms at 16 kHz
+    private static final int FRAME_SIZE = FRAME_SAMPLES * 2;
+
+    private int mEndOfSpeechCount;
+    private final VoiceActivityDetector mDetector = new VoiceActivityDetector(
+        new VoiceActivityDetector.Listener() {
+            @Override
+            public void onEndOfSpeech() {
+                mEndOfSpeechCount++;
+            }
+        } );
+
+    @Test
+    public void speechFollowedByAPauseEndpointsOnce() {
+        feed( -55, 50 );
+        assertFalse( mDetector.process( frame( -20 ), FRAME_SIZE ) );
+        feed( -20, 100 );
+        assertTrue( mDetector.process( frame( -20 ), FRAME_SIZE ) );
+        feed( -55, 100 );
+
+        assertEquals( 1, mEndOfSpeechCount );
+        assertTrue( mDetector.isEndpointed() );
+        assertTrue( mDetector.isSuppressing() );
+    }
+
+    @Test
+    public void shortPausesDoNotEndSpeech() {
+        feed( -55, 50 );
+        for ( int word = 0; word < 5; word++ ) {
+            feed( -20, 40 );
+            feed( -55, 15 );
+        }
+        assertEquals( 0, mEndOfSpeechCount );
+    }
+
+    @Test
+    public void noiseStepDuringSpeechBecomesTheNewFloor() {
+        feed( -55, 50 );
+        feed( -20, 100 );
+        // The fan comes on, 25 dB above the old floor, and stays on
+        int frames = feed( -30, 1000 );
+
+        assertEquals( 1, mEndOfSpeechCount );
+        assertFalse( mDetector.process( frame( -30 ), FRAME_SIZE ) );
+        assertTrue( mDetector.isSuppressing() );
+        assertTrue( "took " + frames + " frames", frames < 1000 );
+    }
+
+    @Test
+    public void speechIsStillDetectedOverTheRaisedFloor() {
+        feed( -55, 50 );
+        feed( -30, 500 ); // Noise step before anyone speaks
+        assertFalse( mDetector.process( frame( -30 ), FRAME_SIZE ) );
+
+        feed( -10, 10 );
+        assertTrue( mDetector.process( frame( -10 ), FRAME_SIZE ) );
+    }
+
+    // Feeds up to count frames, stopping early at the end of speech. Returns the frames fed.
+    private int feed( float levelDbfs, int count ) {
+        ByteBuffer frame = frame( levelDbfs );
+        int endpoints = mEndOfSpeechCount;
+        for ( int i = 0; i < count; i++ ) {
+            mDetector.process( frame, FRAME_SIZE );
+            if ( mEndOfSpeechCount != endpoints ) return i + 1;
+        }
+        return count;
+    }
+
+    // A square wave at the given RMS level
+    private static ByteBuffer frame( float levelDbfs ) {
+        short amplitude = ( short ) Math.round( Short.MAX_VALUE * Math.pow( 10, levelDbfs / 20 ) );
+        ByteBuffer frame = ByteBuffer.allocate( FRAME_SIZE );
+        for ( int i = 0; i < FRAME_SAMPLES; i++ ) {
+            frame.putShort( i * 2, ( short ) ( i % 2 == 0 ? amplitude : -amplitude ) );
+        }
+        return frame;
+    }
+}
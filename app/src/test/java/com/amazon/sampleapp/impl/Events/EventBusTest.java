@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Events;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks inline and background delivery. Main thread delivery needs a Looper and is left to
+ * the app.
+ */
+public class EventBusTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public final TestName mTestName = new TestName();
+
+    @Test
+    public void inlineSubscribersRunOnThePublishingThreadBeforePublishReturns() {
+        EventBus<String> bus = createBus();
+        Recorder<String> first = new Recorder<>();
+        Recorder<String> second = new Recorder<>();
+        bus.subscribe( first, EventBus.Delivery.INLINE );
+        bus.subscribe( second, EventBus.Delivery.INLINE );
+
+        bus.publish( "a" );
+        bus.publish( "b" );
+
+        assertEquals( Arrays.asList( "a", "b" ), first.mEvents );
+        assertEquals( Arrays.asList( "a", "b" ), second.mEvents );
+        assertSame( Thread.currentThread(), first.mThread );
+    }
+
+    @Test
+    public void backgroundSubscribersReceiveEveryEventInOrderOffThePublishingThread() throws InterruptedException {
+        EventBus<Integer> bus = createBus();
+        int events = EventBus.QUEUE_CAPACITY / 2;
+        Recorder<Integer> recorder = new Recorder<>( events );
+        bus.subscribe( recorder, EventBus.Delivery.BACKGROUND );
+
+        List<Integer> published = new ArrayList<>();
+        for ( int i = 0; i < events; i++ ) {
+            bus.publish( i );
+            published.add( i );
+        }
+
+        assertTrue( recorder.await() );
+        assertEquals( published, recorder.events() );
+        assertNotSame( Thread.currentThread(), recorder.mThread );
+        assertEquals( 0, bus.getDroppedCount() );
+    }
+
+    @Test
+    public void aSubscriberThatFallsBehindLosesItsOldestEvents() throws InterruptedException {
+        EventBus<Integer> bus = createBus();
+        final CountDownLatch entered = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        int extra = 10;
+        Recorder<Integer> recorder = new Recorder<Integer>( 1 + EventBus.QUEUE_CAPACITY ) {
+            @Override
+            public void onEvent( Integer event ) {
+                super.onEvent( event );
+                if ( event == -1 ) {
+                    entered.countDown();
+                    awaitQuietly( release );
+                }
+            }
+        };
+        bus.subscribe( recorder, EventBus.Delivery.BACKGROUND );
+
+        // Hold the subscriber in its first event while the queue fills
+        bus.publish( -1 );
+        assertTrue( entered.await( TIMEOUT_SECONDS, TimeUnit.SECONDS ) );
+        for ( int i = 0; i < EventBus.QUEUE_CAPACITY + extra; i++ ) bus.publish( i );
+        release.countDown();
+
+        assertTrue( recorder.await() );
+        List<Integer> events = recorder.events();
+        assertEquals( 1 + EventBus.QUEUE_CAPACITY, events.size() );
+        assertEquals( Integer.valueOf( extra ), events.get( 1 ) );
+        assertEquals( Integer.valueOf( EventBus.QUEUE_CAPACITY + extra - 1 ), events.get( events.size() - 1 ) );
+        assertEquals( extra, bus.getDroppedCount() );
+    }
+
+    @Test
+    public void deliverPassesAnEventToOneSubscriberOnly() {
+        EventBus<String> bus = createBus();
+        Recorder<String> first = new Recorder<>();
+        Recorder<String> second = new Recorder<>();
+        EventBus<String>.Subscription subscription = bus.subscribe( first, EventBus.Delivery.INLINE );
+        bus.subscribe( second, EventBus.Delivery.INLINE );
+
+        subscription.deliver( "snapshot" );
+        bus.publish( "change" );
+
+        assertEquals( Arrays.asList( "snapshot", "change" ), first.mEvents );
+        assertEquals( Arrays.asList( "change" ), second.mEvents );
+    }
+
+    @Test
+    public void cancelledSubscribersReceiveNothingMore() {
+        EventBus<String> bus = createBus();
+        Recorder<String> recorder = new Recorder<>();
+        EventBus<String>.Subscription subscription = bus.subscribe( recorder, EventBus.Delivery.INLINE );
+        assertTrue( bus.hasSubscribers() );
+
+        bus.publish( "a" );
+        subscription.cancel();
+        bus.publish( "b" );
+        subscription.deliver( "c" );
+
+        assertEquals( Arrays.asList( "a" ), recorder.mEvents );
+        assertFalse( bus.hasSubscribers() );
+    }
+
+    @Test
+    public void aFailingSubscriberDoesNotStopTheOthers() {
+        EventBus<String> bus = createBus();
+        bus.subscribe( new EventBus.Subscriber<String>() {
+            @Override
+            public void onEvent( String event ) {
+                throw new IllegalStateException( event );
+            }
+        }, EventBus.Delivery.INLINE );
+        Recorder<String> recorder = new Recorder<>();
+        bus.subscribe( recorder, EventBus.Delivery.INLINE );
+
+        bus.publish( "a" );
+        bus.publish( "b" );
+
+        assertEquals( Arrays.asList( "a", "b" ), recorder.mEvents );
+    }
+
+    // Metrics are registered by bus name in the shared registry, so each test has its own
+    private <T> EventBus<T> createBus() {
+        return new EventBus<>( "test." + mTestName.getMethodName() );
+    }
+
+    private static void awaitQuietly( CountDownLatch latch ) {
+        try {
+            latch.await( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Records the events it receives and the thread of the last one
+    private static class Recorder<T> implements EventBus.Subscriber<T> {
+
+        final List<T> mEvents = Collections.synchronizedList( new ArrayList<T>() );
+        private final CountDownLatch mReceived;
+        volatile Thread mThread;
+
+        Recorder() {
+            this( 0 );
+        }
+
+        Recorder( int expected ) {
+            mReceived = new CountDownLatch( expected );
+        }
+
+        @Override
+        public void onEvent( T event ) {
+            mEvents.add( event );
+            mThread = Thread.currentThread();
+            mReceived.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return mReceived.await( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+
+        List<T> events() {
+            synchronized ( mEvents ) {
+                return new ArrayList<>( mEvents );
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes records with @c FlightRecorder, reopens the file and decodes it with
+ * @c FlightRecorderReader.
+ */
+public class FlightRecorderTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int BLOCKS_OFFSET = FlightRecorder.HEADER_SIZE + 256 * FlightRecorder.SOURCE_ENTRY_SIZE;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveCloseAndDecodeInOrder() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        FlightRecorder recorder = FlightRecorder.open( file, 4 );
+        recorder.record( Level.INFO, 1000, "AVS", "first" );
+        recorder.record( Level.ERROR, 2000, "Engine", "second \u00e9" );
+        recorder.record( Level.WARN, 3000, null, "no source" );
+        recorder.close();
+
+        List<FlightRecorderReader.Record> records = new FlightRecorderReader( file ).read();
+        assertEquals( 3, records.size() );
+        assertSame( Level.INFO, records.get( 0 ).getLevel() );
+        assertEquals( 1000, records.get( 0 ).getTime() );
+        assertEquals( "AVS", records.get( 0 ).getSource() );
+        assertEquals( "first", records.get( 0 ).getMessage() );
+        assertSame( Level.ERROR, records.get( 1 ).getLevel() );
+        assertEquals( "Engine", records.get( 1 ).getSource() );
+        assertEquals( "second \u00e9", records.get( 1 ).getMessage() );
+        assertEquals( "?", records.get( 2 ).getSource() );
+        assertFalse( records.get( 2 ).isTruncated() );
+    }
+
+    @Test
+    public void longMessagesAreCutAndFlagged() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        StringBuilder message = new StringBuilder();
+        for ( int i = 0; i < FlightRecorder.MAX_MESSAGE_BYTES + 100; i++ ) message.append( 'x' );
+        FlightRecorder recorder = FlightRecorder.open( file, 4 );
+        recorder.record( Level.INFO, 1, "AVS", message.toString() );
+        recorder.close();
+
+        FlightRecorderReader.Record record = new FlightRecorderReader( file ).read().get( 0 );
+        assertTrue( record.isTruncated() );
+        assertEquals( FlightRecorder.MAX_MESSAGE_BYTES, record.getMessage().length() );
+    }
+
+    @Test
+    public void wrapAroundKeepsTheNewestRecordsInOrder() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        FlightRecorder recorder = FlightRecorder.open( file, 3 );
+        int written = 1000; // About ten times what three blocks hold
+        for ( int i = 0; i < written; i++ ) recorder.record( Level.INFO, i, "AVS", message( i ) );
+        recorder.close();
+
+        List<FlightRecorderReader.Record> records = new FlightRecorderReader( file ).read();
+        // Two full blocks and part of the one being written
+        int perBlock = ( BLOCK_SIZE - FlightRecorder.BLOCK_HEADER_SIZE ) / recordSize();
+        assertTrue( "kept " + records.size(), records.size() > 2 * perBlock && records.size() <= 3 * perBlock );
+        assertSuffix( records, written );
+    }
+
+    @Test
+    public void reopenedRecorderAppendsAfterTheNewestBlock() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        FlightRecorder recorder = FlightRecorder.open( file, 3 );
+        for ( int i = 0; i < 500; i++ ) recorder.record( Level.INFO, i, "AVS", message( i ) );
+        recorder.close();
+
+        recorder = FlightRecorder.open( file, 3 );
+        for ( int i = 500; i < 520; i++ ) recorder.record( Level.INFO, i, "Engine", message( i ) );
+        recorder.close();
+
+        List<FlightRecorderReader.Record> records = new FlightRecorderReader( file ).read();
+        assertSuffix( records, 520 );
+        assertEquals( "AVS", records.get( records.size() - 21 ).getSource() );
+        assertEquals( "Engine", records.get( records.size() - 1 ).getSource() );
+    }
+
+    @Test
+    public void tornRecordEndsItsBlockAndLaterRecordsStillDecode() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        FlightRecorder recorder = FlightRecorder.open( file, 4 );
+        for ( int i = 0; i < 3; i++ ) recorder.record( Level.INFO, i, "AVS", message( i ) );
+        recorder.close();
+
+        // The process died while writing the third record: its length, written last, is unset
+        int third = BLOCKS_OFFSET + FlightRecorder.BLOCK_HEADER_SIZE + 2 * recordSize();
+        writeShort( file, third, 0 );
+        assertEquals( 2, new FlightRecorderReader( file ).read().size() );
+
+        // A garbage length reaching past the block reads the same way
+        writeShort( file, third, 0xffff );
+        assertEquals( 2, new FlightRecorderReader( file ).read().size() );
+
+        // The next process starts a fresh block, so its records follow the torn one
+        recorder = FlightRecorder.open( file, 4 );
+        recorder.record( Level.INFO, 3, "AVS", message( 3 ) );
+        recorder.close();
+        List<FlightRecorderReader.Record> records = new FlightRecorderReader( file ).read();
+        assertEquals( 3, records.size() );
+        assertEquals( message( 1 ), records.get( 1 ).getMessage() );
+        assertEquals( message( 3 ), records.get( 2 ).getMessage() );
+    }
+
+    @Test
+    public void fileWithAnotherLayoutIsStartedAgain() throws IOException {
+        File file = mFolder.newFile( "recorder.bin" );
+        FlightRecorder recorder = FlightRecorder.open( file, 4 );
+        recorder.record( Level.INFO, 1, "AVS", "old" );
+        recorder.close();
+
+        recorder = FlightRecorder.open( file, 8 );
+        recorder.record( Level.INFO, 2, "AVS", "new" );
+        recorder.close();
+
+        List<FlightRecorderReader.Record> records = new FlightRecorderReader( file ).read();
+        assertEquals( 1, records.size() );
+        assertEquals( "new", records.get( 0 ).getMessage() );
+    }
+
+    @Test
+    public void readerRejectsOtherFiles() throws IOException {
+        File file = mFolder.newFile( "other.bin" );
+        try ( RandomAccessFile other = new RandomAccessFile( file, "rw" ) ) {
+            other.setLength( 1024 );
+        }
+        try {
+            new FlightRecorderReader( file ).read();
+            fail();
+        } catch ( IOException expected ) {
+        }
+    }
+
+    // Records of equal size, numbered so their order can be checked
+    private static String message( int i ) {
+        return String.format( "message %06d with some padding to make it longer", i );
+    }
+
+    private static int recordSize() {
+        return FlightRecorder.RECORD_HEADER_SIZE + message( 0 ).length();
+    }
+
+    // The records are the last ones written, without gaps
+    private static void assertSuffix( List<FlightRecorderReader.Record> records, int written ) {
+        int first = written - records.size();
+        for ( int i = 0; i < records.size(); i++ ) {
+            assertEquals( first + i, records.get( i ).getTime() );
+            assertEquals( message( first + i ), records.get( i ).getMessage() );
+        }
+    }
+
+    private static void writeShort( File file, long position, int value ) throws IOException {
+        try ( RandomAccessFile output = new RandomAccessFile( file, "rw" ) ) {
+            output.seek( position );
+            output.write( value & 0xff ); // Little endian
+            output.write( ( value >> 8 ) & 0xff );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogDeduplicatorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final LogDeduplicator mDeduplicator = new LogDeduplicator();
+    private final List<String> mReports = new ArrayList<>();
+    private final LogDeduplicator.Listener mListener = new LogDeduplicator.Listener() {
+        @Override
+        public void onRepeated( Level level, long time, String source, long count ) {
+            mReports.add( source + " " + level + " " + count + " at " + time );
+        }
+    };
+
+    @Test
+    public void repeatsAreCountedAndReportedBeforeTheNextMessage() {
+        assertFalse( isRepeat( Level.WARN, 1, "AVS", "timeout", 0 ) );
+        assertTrue( isRepeat( Level.WARN, 2, "AVS", "timeout", 0 ) );
+        assertTrue( isRepeat( Level.WARN, 3, "AVS", "timeout", 0 ) );
+        assertEquals( Collections.emptyList(), mReports );
+
+        assertFalse( isRepeat( Level.WARN, 4, "AVS", "connected", 0 ) );
+        assertEquals( Arrays.asList( "AVS WARN 2 at 3" ), mReports );
+    }
+
+    @Test
+    public void aDifferentLevelOrSourceIsNotARepeat() {
+        assertFalse( isRepeat( Level.WARN, 1, "AVS", "timeout", 0 ) );
+        assertFalse( isRepeat( Level.ERROR, 2, "AVS", "timeout", 0 ) );
+        assertFalse( isRepeat( Level.ERROR, 3, "Engine", "timeout", 0 ) );
+        // Sources are tracked separately
+        assertTrue( isRepeat( Level.ERROR, 4, "AVS", "timeout", 0 ) );
+        assertEquals( Collections.emptyList(), mReports );
+    }
+
+    @Test
+    public void flushReportsRepeatsPendingForASecond() {
+        isRepeat( Level.INFO, 1, "AVS", "ping", 0 );
+        isRepeat( Level.INFO, 2, "AVS", "ping", SECOND / 2 );
+
+        mDeduplicator.flush( SECOND, mListener );
+        assertEquals( Collections.emptyList(), mReports );
+        mDeduplicator.flush( SECOND / 2 + SECOND, mListener );
+        assertEquals( Arrays.asList( "AVS INFO 1 at 2" ), mReports );
+
+        // The event is still the last one, so it keeps counting as a repeat
+        assertTrue( isRepeat( Level.INFO, 3, "AVS", "ping", 2 * SECOND ) );
+    }
+
+    @Test
+    public void manySourcesStayBounded() {
+        for ( int i = 0; i < 3000; i++ ) {
+            isRepeat( Level.INFO, i, "source" + i, "hello", 0 );
+            isRepeat( Level.INFO, i, "source" + i, "hello", 0 );
+        }
+        mDeduplicator.flush( SECOND, mListener );
+        // Every repeat is reported once, whether evicted early or flushed
+        assertEquals( 3000, mReports.size() );
+    }
+
+    private boolean isRepeat( Level level, long time, String source, String message, long nowNanos ) {
+        return mDeduplicator.isRepeat( level, time, source, message, nowNanos, mListener );
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogFilterTest {
+
+    @Test
+    public void sourcesWithoutARuleUseTheDefaultLevel() {
+        LogFilter filter = new LogFilter( Level.INFO );
+
+        assertFalse( filter.isLoggable( Level.VERBOSE, "AVS" ) );
+        assertTrue( filter.isLoggable( Level.INFO, "AVS" ) );
+        assertTrue( filter.isLoggable( Level.ERROR, null ) );
+
+        filter.setDefaultLevel( Level.WARN );
+        assertFalse( filter.isLoggable( Level.INFO, "AVS" ) );
+    }
+
+    @Test
+    public void exactNameBeatsTheLongestPrefixWhichBeatsShorterOnes() {
+        LogFilter filter = new LogFilter( Level.WARN );
+        filter.setSourceLevel( "aace.*", Level.INFO );
+        filter.setSourceLevel( "aace.alexa.*", Level.ERROR );
+        filter.setSourceLevel( "aace.alexa.AudioPlayer", Level.VERBOSE );
+
+        assertTrue( filter.isLoggable( Level.INFO, "aace.core.Engine" ) );
+        assertFalse( filter.isLoggable( Level.WARN, "aace.alexa.SpeechRecognizer" ) );
+        assertTrue( filter.isLoggable( Level.VERBOSE, "aace.alexa.AudioPlayer" ) );
+        assertFalse( filter.isLoggable( Level.VERBOSE, "aace.alexa.AudioPlayerX" ) );
+        assertFalse( filter.isLoggable( Level.INFO, "other" ) );
+    }
+
+    @Test
+    public void changedRulesApplyToSourcesAlreadyResolved() {
+        LogFilter filter = new LogFilter( Level.INFO );
+        filter.setSourceLevel( "AVS", Level.ERROR );
+        assertFalse( filter.isLoggable( Level.WARN, "AVS" ) );
+
+        filter.setSourceLevel( "AVS", Level.VERBOSE );
+        assertTrue( filter.isLoggable( Level.VERBOSE, "AVS" ) );
+
+        filter.clearSourceLevel( "AVS" );
+        assertFalse( filter.isLoggable( Level.VERBOSE, "AVS" ) );
+        assertTrue( filter.isLoggable( Level.INFO, "AVS" ) );
+
+        filter.setSourceLevel( "A*", Level.ERROR );
+        filter.clearSourceLevels();
+        assertTrue( filter.isLoggable( Level.INFO, "AVS" ) );
+    }
+
+    @Test
+    public void manySourcesResolveTheSameWay() {
+        LogFilter filter = new LogFilter( Level.INFO );
+        filter.setSourceLevel( "noisy.*", Level.ERROR );
+        // More sources than are cached
+        for ( int i = 0; i < 5000; i++ ) {
+            assertFalse( filter.isLoggable( Level.WARN, "noisy." + i ) );
+            assertTrue( filter.isLoggable( Level.INFO, "quiet." + i ) );
+        }
+    }
+}
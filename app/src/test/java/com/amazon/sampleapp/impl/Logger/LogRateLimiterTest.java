@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final List<String> mSummaries = new ArrayList<>();
+    private final LogRateLimiter.Listener mListener = new LogRateLimiter.Listener() {
+        @Override
+        public void onSuppressed( Level level, String source, long count ) {
+            mSummaries.add( source + " " + level + " " + count );
+        }
+    };
+
+    @Test
+    public void burstThenSteadyRate() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setRate( 10, 5 );
+        long now = SECOND;
+
+        for ( int i = 0; i < 5; i++ ) assertEquals( 0, limiter.acquire( Level.INFO, "AVS", now ) );
+        assertEquals( -1, limiter.acquire( Level.INFO, "AVS", now ) );
+        assertEquals( -1, limiter.acquire( Level.INFO, "AVS", now ) );
+        assertEquals( 2, limiter.getRateLimitedCount() );
+
+        // One token back after 100 ms, reporting the two events suppressed meanwhile
+        assertEquals( 2, limiter.acquire( Level.INFO, "AVS", now + SECOND / 10 ) );
+        assertEquals( -1, limiter.acquire( Level.INFO, "AVS", now + SECOND / 10 ) );
+    }
+
+    @Test
+    public void sourcesAndLevelsHaveTheirOwnBuckets() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setRate( 1, 1 );
+
+        assertEquals( 0, limiter.acquire( Level.INFO, "AVS", 0 ) );
+        assertEquals( -1, limiter.acquire( Level.INFO, "AVS", 0 ) );
+        assertEquals( 0, limiter.acquire( Level.WARN, "AVS", 0 ) );
+        assertEquals( 0, limiter.acquire( Level.INFO, "Engine", 0 ) );
+    }
+
+    @Test
+    public void sweepReportsQuietSourcesAfterASecond() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setRate( 1, 1 );
+        limiter.acquire( Level.INFO, "AVS", 0 );
+        limiter.acquire( Level.INFO, "AVS", 0 );
+        limiter.acquire( Level.INFO, "AVS", 0 );
+
+        limiter.sweep( SECOND / 2, mListener );
+        assertEquals( 0, mSummaries.size() );
+        limiter.sweep( SECOND, mListener );
+        assertEquals( 1, mSummaries.size() );
+        assertEquals( "AVS INFO 2", mSummaries.get( 0 ) );
+
+        // Reported once only
+        limiter.sweep( 2 * SECOND, mListener );
+        assertEquals( 1, mSummaries.size() );
+        assertEquals( 0, limiter.acquire( Level.INFO, "AVS", 3 * SECOND ) );
+    }
+
+    @Test
+    public void verboseSamplingCountsWhatItDrops() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setVerboseSampleRate( 0 );
+
+        for ( int i = 0; i < 10; i++ ) assertEquals( -1, limiter.acquire( Level.VERBOSE, "AVS", 0 ) );
+        assertEquals( 0, limiter.acquire( Level.INFO, "AVS", 0 ) );
+        assertEquals( 10, limiter.getSampledOutCount() );
+
+        limiter.setVerboseSampleRate( 1 );
+        assertEquals( 10, limiter.acquire( Level.VERBOSE, "AVS", 0 ) );
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogRecordRingTest {
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals( 2, new LogRecordRing( 1 ).capacity() );
+        assertEquals( 2, new LogRecordRing( 2 ).capacity() );
+        assertEquals( 8, new LogRecordRing( 8 ).capacity() );
+        assertEquals( 16, new LogRecordRing( 9 ).capacity() );
+    }
+
+    @Test
+    public void recordsComeOutInOrder() {
+        LogRecordRing ring = new LogRecordRing( 4 );
+        assertFalse( ring.poll() );
+        assertTrue( ring.offer( Level.INFO, 1, "AVS", "first" ) );
+        assertTrue( ring.offer( Level.WARN, 2, "Engine", "second" ) );
+
+        assertTrue( ring.poll() );
+        assertSame( Level.INFO, ring.level() );
+        assertEquals( 1, ring.time() );
+        assertEquals( "AVS", ring.source() );
+        assertEquals( "first", ring.message() );
+        assertTrue( ring.poll() );
+        assertEquals( "second", ring.message() );
+        assertFalse( ring.poll() );
+    }
+
+    @Test
+    public void fullRingDropsAndCountsUntilPolled() {
+        LogRecordRing ring = new LogRecordRing( 4 );
+        for ( int i = 0; i < 4; i++ ) assertTrue( ring.offer( Level.INFO, i, "AVS", "m" + i ) );
+        assertFalse( ring.offer( Level.INFO, 4, "AVS", "m4" ) );
+        assertEquals( 1, ring.getDroppedCount() );
+
+        assertTrue( ring.poll() );
+        assertTrue( ring.offer( Level.INFO, 5, "AVS", "m5" ) );
+        for ( String expected : new String[] { "m1", "m2", "m3", "m5" } ) {
+            assertTrue( ring.poll() );
+            assertEquals( expected, ring.message() );
+        }
+        assertFalse( ring.poll() );
+    }
+
+    @Test
+    public void awaitReturnsOnceARecordIsOffered() throws InterruptedException {
+        final LogRecordRing ring = new LogRecordRing( 4 );
+        Thread producer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep( 50 );
+                } catch ( InterruptedException e ) {
+                    return;
+                }
+                ring.offer( Level.INFO, 0, "AVS", "wake up" );
+            }
+        } );
+        producer.start();
+        long start = System.nanoTime();
+        while ( !ring.poll() ) ring.await( TimeUnit.SECONDS.toNanos( 10 ) );
+
+        assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 5 ) );
+        assertEquals( "wake up", ring.message() );
+        producer.join();
+    }
+
+    @Test
+    public void concurrentProducersKeepTheirOwnOrderAndLoseNothingUncounted() throws InterruptedException {
+        final LogRecordRing ring = new LogRecordRing( 256 );
+        final int producers = 4;
+        final int records = 200000;
+        final String[] sources = new String[producers];
+        final String[][] messages = new String[producers][records];
+        for ( int p = 0; p < producers; p++ ) {
+            sources[p] = Integer.toString( p );
+            for ( int i = 0; i < records; i++ ) messages[p][i] = Integer.toString( i );
+        }
+        Thread[] threads = new Thread[producers];
+        for ( int p = 0; p < producers; p++ ) {
+            final int producer = p;
+            threads[p] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    for ( int i = 0; i < records; i++ ) {
+                        ring.offer( Level.INFO, i, sources[producer], messages[producer][i] );
+                    }
+                }
+            } );
+            threads[p].start();
+        }
+
+        long[] last = { -1, -1, -1, -1 };
+        long received = 0;
+        String failure = null;
+        boolean producing = true;
+        while ( true ) {
+            if ( !ring.poll() ) {
+                // Once every producer has ended, drain what they left and stop
+                if ( !producing ) break;
+                producing = false;
+                for ( Thread thread : threads ) producing |= thread.isAlive();
+                continue;
+            }
+            int producer = Integer.parseInt( ring.source() );
+            long time = ring.time();
+            if ( time <= last[producer] || !ring.message().equals( Long.toString( time ) ) ) {
+                failure = "producer " + producer + " record " + time + " after " + last[producer];
+            }
+            last[producer] = time;
+            received++;
+        }
+        for ( Thread thread : threads ) thread.join();
+
+        assertNull( failure );
+        assertEquals( producers * ( long ) records, received + ring.getDroppedCount() );
+    }
+}
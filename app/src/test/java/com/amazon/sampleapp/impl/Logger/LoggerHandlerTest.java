@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Logger;
+
+import com.amazon.sampleapp.aace.logger.Logger.Level;
+import com.amazon.sampleapp.impl.Events.EventBus;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoggerHandlerTest {
+
+    @Test
+    public void shutdownPassesOnPendingEventsAndEndsTheLogThread() {
+        int threadsBefore = countLogThreads();
+        LoggerHandler handler = new LoggerHandler();
+        final List<String> entries = new ArrayList<>();
+        handler.addLogObserver( new EventBus.Subscriber<List<String>>() {
+            @Override
+            public void onEvent( List<String> batch ) {
+                synchronized ( entries ) {
+                    entries.addAll( batch );
+                }
+            }
+        }, EventBus.Delivery.INLINE );
+
+        handler.logEvent( Level.INFO, System.currentTimeMillis(), "AVS", "last words" );
+        handler.shutdown();
+
+        synchronized ( entries ) {
+            assertEquals( 1, entries.size() );
+            assertTrue( entries.get( 0 ), entries.get( 0 ).endsWith( "last words" ) );
+        }
+        assertEquals( threadsBefore, countLogThreads() );
+    }
+
+    private static int countLogThreads() {
+        int count = 0;
+        for ( Thread thread : Thread.getAllStackTraces().keySet() ) {
+            if ( thread.getName().equals( "LoggerHandler" ) && thread.isAlive() ) count++;
+        }
+        return count;
+    }
+}
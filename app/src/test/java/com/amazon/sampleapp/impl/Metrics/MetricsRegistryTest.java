@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.sampleapp.impl.Metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void engineFieldsBecomeHistograms() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.recordMetricEvent( "AVS", "latency=120ms, bytes:2048 name=none" );
+        registry.recordMetricEvent( "AVS", "latency=80" );
+
+        assertEquals( 2, registry.counter( "engine.AVS.events" ).get() );
+        assertEquals( 2, registry.histogram( "engine.AVS.latency" ).snapshot().getCount() );
+        assertEquals( 200, registry.histogram( "engine.AVS.latency" ).snapshot().getSum() );
+        assertEquals( 2048, registry.histogram( "engine.AVS.bytes" ).snapshot().getSum() );
+        assertEquals( 0, registry.getDroppedSeriesCount() );
+    }
+
+    @Test
+    public void invalidEngineNamesAreDropped() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.recordMetricEvent( "AVS", "caf\u00e9=1 {\"x\"=2" );
+
+        assertEquals( 2, registry.getDroppedSeriesCount() );
+    }
+
+    @Test
+    public void engineSeriesCannotCrowdOutJavaMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        for ( int i = 0; i < MetricsRegistry.MAX_SERIES; i++ ) {
+            registry.recordMetricEvent( "AVS", "field" + i + "=1" );
+        }
+        long dropped = registry.getDroppedSeriesCount();
+        assertEquals( MetricsRegistry.MAX_SERIES - MetricsRegistry.MAX_ENGINE_SERIES + 1, dropped );
+
+        // Existing Engine series keep recording, and Java side metrics are still registered
+        registry.recordMetricEvent( "AVS", "field0=5" );
+        assertEquals( 2, registry.histogram( "engine.AVS.field0" ).snapshot().getCount() );
+        Counter counter = registry.counter( "audio.input.overruns" );
+        assertSame( counter, registry.counter( "audio.input.overruns" ) );
+        assertEquals( dropped, registry.getDroppedSeriesCount() );
+    }
+}